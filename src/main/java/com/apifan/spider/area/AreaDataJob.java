@@ -0,0 +1,35 @@
+package com.apifan.spider.area;
+
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.time.Duration;
+
+/**
+ * 行政区划代码数据定时任务
+ * 自定义参数: fileUrl 数据文件下载地址，cssSelector CSS选择器
+ *
+ * @author yin
+ */
+public class AreaDataJob implements Spider {
+
+    @Override
+    public String getName() {
+        return "area";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "0 4 1 * *";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(10L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        new AreaDataUpdater(context.getProperty("fileUrl"), context.getProperty("cssSelector"), context.getBasePath()).process();
+    }
+}
@@ -0,0 +1,214 @@
+package com.apifan.spider.common.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import okhttp3.Dns;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带缓存的DNS解析
+ * 解析成功的结果缓存 positiveTtlMillis，解析失败的结果缓存 negativeTtlMillis(期间直接抛出UnknownHostException)；
+ * 同一主机的并发解析合并为一次；可在调度下载前异步预解析主机名。
+ * JDK的解析接口不提供记录本身的TTL，因此使用固定的TTL
+ *
+ * @author yin
+ */
+public class CachingDns implements Dns {
+    private static final Logger logger = LoggerFactory.getLogger(CachingDns.class);
+
+    /**
+     * 默认的成功结果缓存时间(5分钟)
+     */
+    public static final long DEFAULT_POSITIVE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5L);
+
+    /**
+     * 默认的失败结果缓存时间(30秒)
+     */
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30L);
+
+    /**
+     * 缓存的主机数上限
+     */
+    private static final int MAX_HOSTS = 10000;
+
+    /**
+     * 预解析线程数
+     */
+    private static final int PREFETCH_THREADS = 4;
+
+    private final Dns delegate;
+
+    private final long positiveTtlMillis;
+
+    private final long negativeTtlMillis;
+
+    private final Cache<String, Entry> cache = CacheBuilder.newBuilder().maximumSize(MAX_HOSTS).build();
+
+    private final SingleFlight<String, List<InetAddress>> lookups = new SingleFlight<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong prefetches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * 预解析线程池(守护线程，首次预解析时创建)
+     */
+    private volatile ExecutorService prefetchExecutor;
+
+    /**
+     * 构造函数(使用系统DNS和默认的缓存时间)
+     */
+    public CachingDns() {
+        this(Dns.SYSTEM, DEFAULT_POSITIVE_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param delegate          实际的DNS解析
+     * @param positiveTtlMillis 成功结果缓存时间(毫秒)
+     * @param negativeTtlMillis 失败结果缓存时间(毫秒)
+     */
+    public CachingDns(Dns delegate, long positiveTtlMillis, long negativeTtlMillis) {
+        this.delegate = delegate;
+        this.positiveTtlMillis = positiveTtlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        Entry entry = cache.getIfPresent(hostname);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            hits.incrementAndGet();
+            if (entry.addresses == null) {
+                negativeHits.incrementAndGet();
+                throw new UnknownHostException(hostname + " (解析失败，已缓存)");
+            }
+            return entry.addresses;
+        }
+        misses.incrementAndGet();
+        return resolve(hostname);
+    }
+
+    /**
+     * 异步预解析主机名(已有有效缓存的跳过)
+     *
+     * @param hostnames 主机名
+     */
+    public void prefetch(Collection<String> hostnames) {
+        if (hostnames == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (String hostname : hostnames) {
+            if (StringUtils.isEmpty(hostname)) {
+                continue;
+            }
+            Entry entry = cache.getIfPresent(hostname);
+            if (entry != null && entry.expiresAt > now) {
+                continue;
+            }
+            prefetches.incrementAndGet();
+            prefetchExecutor().execute(() -> {
+                try {
+                    resolve(hostname);
+                } catch (UnknownHostException e) {
+                    logger.debug("预解析 {} 失败", hostname);
+                }
+            });
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 获取统计数据
+     *
+     * @return
+     */
+    public DnsMetrics getMetrics() {
+        DnsMetrics metrics = new DnsMetrics();
+        metrics.setHits(hits.get());
+        metrics.setMisses(misses.get());
+        metrics.setNegativeHits(negativeHits.get());
+        metrics.setPrefetches(prefetches.get());
+        metrics.setFailures(failures.get());
+        metrics.setCachedHosts(cache.size());
+        return metrics;
+    }
+
+    /**
+     * 解析并缓存结果(同一主机的并发解析合并为一次)
+     */
+    private List<InetAddress> resolve(String hostname) throws UnknownHostException {
+        try {
+            return lookups.execute(hostname, () -> {
+                try {
+                    List<InetAddress> addresses = Collections.unmodifiableList(delegate.lookup(hostname));
+                    cache.put(hostname, new Entry(addresses, System.currentTimeMillis() + positiveTtlMillis));
+                    return addresses;
+                } catch (UnknownHostException e) {
+                    failures.incrementAndGet();
+                    cache.put(hostname, new Entry(null, System.currentTimeMillis() + negativeTtlMillis));
+                    throw e;
+                }
+            }, result -> true);
+        } catch (UnknownHostException e) {
+            throw e;
+        } catch (IOException e) {
+            UnknownHostException exception = new UnknownHostException(hostname);
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    private ExecutorService prefetchExecutor() {
+        if (prefetchExecutor == null) {
+            synchronized (this) {
+                if (prefetchExecutor == null) {
+                    AtomicInteger counter = new AtomicInteger();
+                    prefetchExecutor = Executors.newFixedThreadPool(PREFETCH_THREADS, r -> {
+                        Thread thread = new Thread(r, "dns-prefetch-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return prefetchExecutor;
+    }
+
+    /**
+     * 缓存条目，addresses为null表示解析失败
+     */
+    private static final class Entry {
+        private final List<InetAddress> addresses;
+        private final long expiresAt;
+
+        private Entry(List<InetAddress> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
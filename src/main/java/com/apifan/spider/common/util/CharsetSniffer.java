@@ -0,0 +1,127 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.MediaType;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 响应体字符集识别
+ * 依次取自BOM、Content-Type、HTML的meta标签(或XML声明)
+ *
+ * @author yin
+ */
+final class CharsetSniffer {
+
+    /**
+     * 查找meta标签的字节数
+     */
+    private static final int SNIFF_LENGTH = 2048;
+
+    /**
+     * 匹配 charset=xxx 或 encoding="xxx"
+     */
+    private static final Pattern CHARSET_PATTERN = Pattern.compile("(?:charset|encoding)\\s*=\\s*[\"']?\\s*([\\w.:-]+)", Pattern.CASE_INSENSITIVE);
+
+    private static final byte[] UTF_8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] UTF_16BE_BOM = {(byte) 0xFE, (byte) 0xFF};
+    private static final byte[] UTF_16LE_BOM = {(byte) 0xFF, (byte) 0xFE};
+
+    private CharsetSniffer() {
+    }
+
+    /**
+     * 识别字符集
+     *
+     * @param body        响应体
+     * @param contentType Content-Type
+     * @return 字符集，都未声明时为null
+     */
+    static Charset detect(byte[] body, MediaType contentType) {
+        Charset charset = fromBom(body);
+        if (charset != null) {
+            return charset;
+        }
+        charset = contentType != null ? forName(contentType.charset() != null ? contentType.charset().name() : null) : null;
+        if (charset != null) {
+            return charset;
+        }
+        return fromMarkup(body);
+    }
+
+    /**
+     * BOM的长度
+     *
+     * @param body 响应体
+     * @return 没有BOM时为0
+     */
+    static int bomLength(byte[] body) {
+        if (startsWith(body, UTF_8_BOM)) {
+            return UTF_8_BOM.length;
+        }
+        if (startsWith(body, UTF_16BE_BOM) || startsWith(body, UTF_16LE_BOM)) {
+            return UTF_16BE_BOM.length;
+        }
+        return 0;
+    }
+
+    private static Charset fromBom(byte[] body) {
+        if (startsWith(body, UTF_8_BOM)) {
+            return StandardCharsets.UTF_8;
+        }
+        if (startsWith(body, UTF_16BE_BOM)) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (startsWith(body, UTF_16LE_BOM)) {
+            return StandardCharsets.UTF_16LE;
+        }
+        return null;
+    }
+
+    private static Charset fromMarkup(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        //meta标签和XML声明只含ASCII字符
+        String head = new String(body, 0, Math.min(body.length, SNIFF_LENGTH), StandardCharsets.ISO_8859_1);
+        int metaIndex = head.toLowerCase().indexOf("<meta");
+        int declIndex = head.startsWith("<?xml") ? 0 : -1;
+        int from = declIndex >= 0 ? declIndex : metaIndex;
+        if (from < 0) {
+            return null;
+        }
+        Matcher matcher = CHARSET_PATTERN.matcher(head);
+        return matcher.find(from) ? forName(matcher.group(1)) : null;
+    }
+
+    private static Charset forName(String name) {
+        if (name == null) {
+            return null;
+        }
+        //gb2312页面经常包含GBK字符
+        if ("gb2312".equalsIgnoreCase(name)) {
+            name = "GBK";
+        }
+        try {
+            return Charset.forName(name);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] body, byte[] prefix) {
+        if (body == null || body.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (body[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,179 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个主机的熔断器
+ * 失败指IO异常或5xx响应；慢请求按发出请求到收到响应头的耗时判断
+ *
+ * @author yin
+ */
+final class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String host;
+
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long slowCallDurationMillis;
+    private final int slowCallRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    /**
+     * 最近请求结果的环形窗口
+     */
+    private final byte[] window;
+    private int index;
+    private int count;
+    private int failures;
+    private int slowCalls;
+
+    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+    private long openedAt;
+
+    /**
+     * 半开状态下剩余可放行的试探请求数和已完成的试探请求数
+     */
+    private int halfOpenPermits;
+    private int halfOpenCompleted;
+
+    CircuitBreaker(String host, CircuitBreakerConfig config) {
+        this.host = host;
+        this.window = new byte[Math.max(1, config.getWindowSize())];
+        this.minimumCalls = Math.max(1, Math.min(config.getMinimumCalls(), window.length));
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.slowCallDurationMillis = config.getSlowCallDurationMillis();
+        this.slowCallRateThreshold = config.getSlowCallRateThreshold();
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMillis());
+        this.halfOpenCalls = Math.max(1, config.getHalfOpenCalls());
+    }
+
+    /**
+     * 申请发出一个请求
+     *
+     * @throws CircuitBreakerOpenException 熔断器打开或半开状态的试探请求已用完
+     */
+    synchronized void acquire() throws CircuitBreakerOpenException {
+        if (state == CircuitBreakerState.OPEN) {
+            long remaining = openedAt + openDurationNanos - System.nanoTime();
+            if (remaining > 0L) {
+                throw new CircuitBreakerOpenException(host, Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            }
+            state = CircuitBreakerState.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenCompleted = 0;
+            logger.info("主机 {} 的熔断器进入半开状态", host);
+        }
+        if (state == CircuitBreakerState.HALF_OPEN) {
+            if (halfOpenPermits <= 0) {
+                throw new CircuitBreakerOpenException(host, 1L);
+            }
+            halfOpenPermits--;
+        }
+    }
+
+    /**
+     * 记录请求结果
+     * 被取消或被中断的请求不计入统计
+     *
+     * @param response 响应
+     * @param error    异常
+     */
+    void record(Response response, IOException error) {
+        if (error instanceof InterruptedIOException && !(error instanceof SocketTimeoutException)) {
+            release();
+            return;
+        }
+        if (error != null || response.code() >= 500) {
+            onResult(FAILURE);
+        } else if (response.receivedResponseAtMillis() - response.sentRequestAtMillis() >= slowCallDurationMillis) {
+            onResult(SLOW);
+        } else {
+            onResult(SUCCESS);
+        }
+    }
+
+    /**
+     * 归还未使用的试探请求(请求被取消时)
+     */
+    synchronized void release() {
+        if (state == CircuitBreakerState.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    synchronized CircuitBreakerState getState() {
+        return state;
+    }
+
+    private synchronized void onResult(byte outcome) {
+        if (state == CircuitBreakerState.OPEN) {
+            //打开前已发出的请求
+            return;
+        }
+        if (state == CircuitBreakerState.HALF_OPEN) {
+            if (outcome != SUCCESS) {
+                open();
+            } else if (++halfOpenCompleted >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        if (count == window.length) {
+            forget(window[index]);
+        } else {
+            count++;
+        }
+        window[index] = outcome;
+        index = (index + 1) % window.length;
+        if (outcome == FAILURE) {
+            failures++;
+        } else if (outcome == SLOW) {
+            slowCalls++;
+        }
+        if (count >= minimumCalls && (failures * 100 >= failureRateThreshold * count || slowCalls * 100 >= slowCallRateThreshold * count)) {
+            logger.warn("主机 {} 最近 {} 个请求中失败 {} 个、慢请求 {} 个，熔断器打开", host, count, failures, slowCalls);
+            open();
+        }
+    }
+
+    private void forget(byte outcome) {
+        if (outcome == FAILURE) {
+            failures--;
+        } else if (outcome == SLOW) {
+            slowCalls--;
+        }
+    }
+
+    private void open() {
+        state = CircuitBreakerState.OPEN;
+        openedAt = System.nanoTime();
+        resetWindow();
+    }
+
+    private void close() {
+        state = CircuitBreakerState.CLOSED;
+        resetWindow();
+        logger.info("主机 {} 的熔断器已关闭", host);
+    }
+
+    private void resetWindow() {
+        index = 0;
+        count = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
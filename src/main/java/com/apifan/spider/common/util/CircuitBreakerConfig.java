@@ -0,0 +1,124 @@
+package com.apifan.spider.common.util;
+
+/**
+ * 熔断器配置
+ * 按最近 windowSize 次请求统计失败率和慢请求率，任一超过阈值时熔断器打开；
+ * 打开 openDurationMillis 后进入半开状态，放行 halfOpenCalls 个试探请求，全部成功则关闭，否则重新打开
+ *
+ * @author yin
+ */
+public class CircuitBreakerConfig {
+
+    /**
+     * 统计窗口大小(最近的请求数)
+     */
+    private int windowSize = 20;
+
+    /**
+     * 开始计算失败率所需的最少请求数
+     */
+    private int minimumCalls = 10;
+
+    /**
+     * 失败率阈值(百分比)
+     */
+    private int failureRateThreshold = 50;
+
+    /**
+     * 慢请求的耗时阈值(毫秒)
+     */
+    private long slowCallDurationMillis = 30000L;
+
+    /**
+     * 慢请求率阈值(百分比)
+     */
+    private int slowCallRateThreshold = 100;
+
+    /**
+     * 打开状态的持续时间(毫秒)
+     */
+    private long openDurationMillis = 30000L;
+
+    /**
+     * 半开状态下放行的试探请求数
+     */
+    private int halfOpenCalls = 3;
+
+    /**
+     * 构造函数(使用默认配置)
+     */
+    public CircuitBreakerConfig() {
+        super();
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param windowSize           统计窗口大小
+     * @param minimumCalls         开始计算失败率所需的最少请求数
+     * @param failureRateThreshold 失败率阈值(百分比)
+     * @param openDurationMillis   打开状态的持续时间(毫秒)
+     */
+    public CircuitBreakerConfig(int windowSize, int minimumCalls, int failureRateThreshold, long openDurationMillis) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getSlowCallDurationMillis() {
+        return slowCallDurationMillis;
+    }
+
+    public void setSlowCallDurationMillis(long slowCallDurationMillis) {
+        this.slowCallDurationMillis = slowCallDurationMillis;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    public void setOpenDurationMillis(long openDurationMillis) {
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+}
@@ -0,0 +1,37 @@
+package com.apifan.spider.common.util;
+
+import java.io.IOException;
+
+/**
+ * 主机的熔断器打开时请求快速失败抛出的异常
+ *
+ * @author yin
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主机名
+     */
+    private final String host;
+
+    /**
+     * 距离进入半开状态的剩余时间(毫秒)
+     */
+    private final long remainingMillis;
+
+    public CircuitBreakerOpenException(String host, long remainingMillis) {
+        super("主机 " + host + " 的熔断器已打开，" + remainingMillis + " 毫秒后重新尝试");
+        this.host = host;
+        this.remainingMillis = remainingMillis;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public long getRemainingMillis() {
+        return remainingMillis;
+    }
+}
@@ -0,0 +1,24 @@
+package com.apifan.spider.common.util;
+
+/**
+ * 熔断器状态
+ *
+ * @author yin
+ */
+public enum CircuitBreakerState {
+
+    /**
+     * 关闭(正常放行)
+     */
+    CLOSED,
+
+    /**
+     * 打开(快速失败)
+     */
+    OPEN,
+
+    /**
+     * 半开(放行少量试探请求)
+     */
+    HALF_OPEN
+}
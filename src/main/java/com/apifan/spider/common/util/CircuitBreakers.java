@@ -0,0 +1,92 @@
+package com.apifan.spider.common.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按主机熔断
+ * 默认对所有主机启用(使用 CircuitBreakerConfig 的默认配置)，可按域名覆盖配置，remove("*")可关闭默认熔断。
+ * 熔断器打开时，发往该主机的请求直接抛出 CircuitBreakerOpenException，不再占用线程和连接等待超时
+ *
+ * @author yin
+ */
+public final class CircuitBreakers {
+
+    /**
+     * 熔断配置
+     */
+    private static final DomainConfigs<CircuitBreakerConfig> configs = new DomainConfigs<>();
+
+    /**
+     * 主机 -> 熔断器
+     */
+    private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    static {
+        configs.put(DomainConfigs.ANY, new CircuitBreakerConfig());
+    }
+
+    private CircuitBreakers() {
+    }
+
+    /**
+     * 配置域名的熔断参数(对该域名及其子域名生效，"*"表示所有主机)
+     * 已创建的熔断器会被重置
+     *
+     * @param domain 域名
+     * @param config 熔断配置
+     */
+    public static void configure(String domain, CircuitBreakerConfig config) {
+        configs.put(domain, config);
+        breakers.clear();
+    }
+
+    /**
+     * 取消域名的熔断配置
+     *
+     * @param domain 域名
+     */
+    public static void remove(String domain) {
+        configs.remove(domain);
+        breakers.clear();
+    }
+
+    /**
+     * 重置所有熔断器(全部回到关闭状态)
+     */
+    public static void reset() {
+        breakers.clear();
+    }
+
+    /**
+     * 获取各主机的熔断器状态
+     *
+     * @return 主机 -> 熔断器状态
+     */
+    public static Map<String, CircuitBreakerState> getStates() {
+        Map<String, CircuitBreakerState> states = new TreeMap<>();
+        breakers.forEach((host, breaker) -> states.put(host, breaker.getState()));
+        return states;
+    }
+
+    /**
+     * 为某个主机的请求申请熔断器许可
+     *
+     * @param host 主机名
+     * @return 熔断器(未启用熔断时为null)
+     * @throws CircuitBreakerOpenException 熔断器已打开
+     */
+    static CircuitBreaker acquire(String host) throws CircuitBreakerOpenException {
+        CircuitBreaker breaker = breakers.get(host);
+        if (breaker == null) {
+            CircuitBreakerConfig config = configs.resolve(host);
+            if (config == null) {
+                return null;
+            }
+            breaker = breakers.computeIfAbsent(host, k -> new CircuitBreaker(host, config));
+        }
+        breaker.acquire();
+        return breaker;
+    }
+}
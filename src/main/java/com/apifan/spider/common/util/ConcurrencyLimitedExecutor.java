@@ -0,0 +1,132 @@
+package com.apifan.spider.common.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用信号量限制并发任务数的线程池
+ * 任务交给底层线程池(每个任务一个虚拟线程)后在任务线程内等待执行许可；
+ * 指定队列容量时，已提交未完成的任务数达到 并发数+队列容量 后按 QueueFullPolicy 阻塞提交方或由提交方执行
+ *
+ * @author yin
+ */
+final class ConcurrencyLimitedExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+
+    /**
+     * 执行许可
+     */
+    private final Semaphore permits;
+
+    /**
+     * 提交许可，不限制队列时为null
+     */
+    private final Semaphore pending;
+
+    private final QueueFullPolicy policy;
+
+    ConcurrencyLimitedExecutor(ExecutorService delegate, int concurrency) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(concurrency);
+        this.pending = null;
+        this.policy = null;
+    }
+
+    ConcurrencyLimitedExecutor(ExecutorService delegate, int concurrency, int queueCapacity, QueueFullPolicy policy) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(concurrency);
+        this.pending = new Semaphore(concurrency + queueCapacity);
+        this.policy = policy;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (delegate.isShutdown()) {
+            throw new RejectedExecutionException("线程池已关闭");
+        }
+        if (pending == null) {
+            delegate.execute(() -> runWithPermit(command));
+            return;
+        }
+        if (policy == QueueFullPolicy.CALLER_RUNS) {
+            if (!pending.tryAcquire()) {
+                command.run();
+                return;
+            }
+        } else {
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("等待提交任务时被中断", e);
+            }
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    runWithPermit(command);
+                } finally {
+                    pending.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 取得执行许可后执行任务
+     * 等待许可时被中断(如 shutdownNow)的任务不会静默丢弃：submit 提交的任务被取消，等待其结果的调用方不会一直阻塞；
+     * 其他任务带着中断标记直接执行，由任务自己响应中断
+     */
+    private void runWithPermit(Runnable command) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (command instanceof Future) {
+                ((Future<?>) command).cancel(false);
+            } else {
+                command.run();
+            }
+            return;
+        }
+        try {
+            command.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
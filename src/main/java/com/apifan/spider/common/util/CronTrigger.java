@@ -0,0 +1,175 @@
+package com.apifan.spider.common.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * cron表达式触发器
+ * 5段表达式：分(0-59) 时(0-23) 日(1-31) 月(1-12或JAN-DEC) 周(0-7或SUN-SAT，0和7都是周日)；
+ * 每段支持 *、数值、范围(a-b)、列表(a,b)和步长(星号/n、a-b/n)；日和周都不是 * 时满足其一即触发(与crontab一致)
+ *
+ * @author yin
+ */
+public final class CronTrigger implements Trigger {
+
+    private static final String[] MONTH_NAMES = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+
+    private static final String[] DAY_OF_WEEK_NAMES = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+
+    /**
+     * 向后查找触发时间的最大年数，超过时认为不会再触发(如2月30日)
+     */
+    private static final int MAX_YEARS_AHEAD = 5;
+
+    private final String expression;
+
+    private final BitSet minutes;
+
+    private final BitSet hours;
+
+    private final BitSet daysOfMonth;
+
+    private final BitSet months;
+
+    private final BitSet daysOfWeek;
+
+    /**
+     * 日是否为 *
+     */
+    private final boolean anyDayOfMonth;
+
+    /**
+     * 周是否为 *
+     */
+    private final boolean anyDayOfWeek;
+
+    /**
+     * 构造函数
+     *
+     * @param expression cron表达式
+     */
+    public CronTrigger(String expression) {
+        String[] fields = StringUtils.split(StringUtils.trimToEmpty(expression));
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("cron表达式应有5段: " + expression);
+        }
+        this.expression = expression.trim();
+        this.minutes = parseField(fields[0], 0, 59, null);
+        this.hours = parseField(fields[1], 0, 23, null);
+        this.daysOfMonth = parseField(fields[2], 1, 31, null);
+        this.months = parseField(fields[3], 1, 12, MONTH_NAMES);
+        BitSet dow = parseField(fields[4], 0, 7, DAY_OF_WEEK_NAMES);
+        if (dow.get(7)) {
+            dow.set(0);
+            dow.clear(7);
+        }
+        this.daysOfWeek = dow;
+        this.anyDayOfMonth = "*".equals(fields[2]);
+        this.anyDayOfWeek = "*".equals(fields[4]);
+    }
+
+    @Override
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        int maxYear = after.getYear() + MAX_YEARS_AHEAD;
+        while (time.getYear() <= maxYear) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+                continue;
+            }
+            if (!matchesDay(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+                continue;
+            }
+            if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                continue;
+            }
+            if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+                continue;
+            }
+            return time;
+        }
+        return null;
+    }
+
+    private boolean matchesDay(ZonedDateTime time) {
+        boolean dom = daysOfMonth.get(time.getDayOfMonth());
+        boolean dow = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dom && dow;
+        }
+        return dom || dow;
+    }
+
+    /**
+     * 解析一段表达式
+     *
+     * @param field 表达式
+     * @param min   最小值
+     * @param max   最大值
+     * @param names 取值的英文缩写(下标+min为对应的值)，可为null
+     * @return 满足条件的取值
+     */
+    private BitSet parseField(String field, int min, int max, String[] names) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : StringUtils.split(field, ',')) {
+            int step = 1;
+            String range = part;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, max, null);
+                range = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if ("*".equals(range)) {
+                from = min;
+                to = max;
+            } else if (range.indexOf('-') > 0) {
+                from = parseNumber(StringUtils.substringBefore(range, "-"), min, max, names);
+                to = parseNumber(StringUtils.substringAfter(range, "-"), min, max, names);
+            } else {
+                from = parseNumber(range, min, max, names);
+                //a/n 表示从a开始到最大值
+                to = slash >= 0 ? max : from;
+            }
+            if (from > to) {
+                throw new IllegalArgumentException("cron表达式范围错误: " + part);
+            }
+            for (int i = from; i <= to; i += step) {
+                values.set(i);
+            }
+        }
+        return values;
+    }
+
+    private int parseNumber(String value, int min, int max, String[] names) {
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equalsIgnoreCase(value)) {
+                    return i + min;
+                }
+            }
+        }
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("cron表达式取值错误: " + value + " (" + expression + ")");
+        }
+        if (number < min || number > max) {
+            throw new IllegalArgumentException("cron表达式取值超出范围[" + min + "," + max + "]: " + value);
+        }
+        return number;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,100 @@
+package com.apifan.spider.common.util;
+
+import java.io.Serializable;
+
+/**
+ * DNS缓存统计
+ *
+ * @author yin
+ */
+public class DnsMetrics implements Serializable {
+    private static final long serialVersionUID = -2390517246571528306L;
+
+    /**
+     * 命中缓存的次数(含命中解析失败的缓存)
+     */
+    private long hits;
+
+    /**
+     * 未命中缓存、需要解析的次数
+     */
+    private long misses;
+
+    /**
+     * 命中解析失败缓存的次数
+     */
+    private long negativeHits;
+
+    /**
+     * 预解析的主机数
+     */
+    private long prefetches;
+
+    /**
+     * 解析失败的次数
+     */
+    private long failures;
+
+    /**
+     * 当前缓存的主机数
+     */
+    private long cachedHosts;
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getNegativeHits() {
+        return negativeHits;
+    }
+
+    public void setNegativeHits(long negativeHits) {
+        this.negativeHits = negativeHits;
+    }
+
+    public long getPrefetches() {
+        return prefetches;
+    }
+
+    public void setPrefetches(long prefetches) {
+        this.prefetches = prefetches;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public void setFailures(long failures) {
+        this.failures = failures;
+    }
+
+    public long getCachedHosts() {
+        return cachedHosts;
+    }
+
+    public void setCachedHosts(long cachedHosts) {
+        this.cachedHosts = cachedHosts;
+    }
+
+    /**
+     * 命中率
+     *
+     * @return
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total > 0 ? (double) hits / total : 0.0D;
+    }
+}
@@ -0,0 +1,86 @@
+package com.apifan.spider.common.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按域名配置的参数表
+ * 查找顺序：完整主机名、逐级上级域名(如 img.example.com -> example.com -> com)、通配符"*"
+ *
+ * @param <T> 配置类型
+ * @author yin
+ */
+final class DomainConfigs<T> {
+
+    /**
+     * 匹配所有主机的通配符
+     */
+    static final String ANY = "*";
+
+    private final Map<String, T> configs = new ConcurrentHashMap<>();
+
+    /**
+     * 设置域名的配置
+     *
+     * @param domain 域名(或"*")
+     * @param config 配置
+     */
+    void put(String domain, T config) {
+        configs.put(normalize(domain), config);
+    }
+
+    /**
+     * 仅在域名尚未配置时设置配置
+     *
+     * @param domain 域名(或"*")
+     * @param config 配置
+     */
+    void putIfAbsent(String domain, T config) {
+        configs.putIfAbsent(normalize(domain), config);
+    }
+
+    /**
+     * 移除域名的配置
+     *
+     * @param domain 域名(或"*")
+     */
+    void remove(String domain) {
+        configs.remove(normalize(domain));
+    }
+
+    /**
+     * 查找主机适用的配置
+     *
+     * @param host 主机名
+     * @return 配置，没有匹配时为null
+     */
+    T resolve(String host) {
+        if (configs.isEmpty()) {
+            return null;
+        }
+        if (StringUtils.isNotEmpty(host)) {
+            String domain = host.toLowerCase();
+            while (true) {
+                T config = configs.get(domain);
+                if (config != null) {
+                    return config;
+                }
+                int dot = domain.indexOf('.');
+                if (dot < 0) {
+                    break;
+                }
+                domain = domain.substring(dot + 1);
+            }
+        }
+        return configs.get(ANY);
+    }
+
+    private static String normalize(String domain) {
+        if (StringUtils.isEmpty(domain)) {
+            throw new IllegalArgumentException("域名为空");
+        }
+        return domain.trim().toLowerCase();
+    }
+}
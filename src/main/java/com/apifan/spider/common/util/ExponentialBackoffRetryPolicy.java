@@ -0,0 +1,136 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指数退避重试策略(Full Jitter)
+ * 第n次重试前等待 [0, min(maxDelay, baseDelay * 2^(n-1))) 之间的随机时间；
+ * 响应带有Retry-After时至少等待其指定的时间，超过maxDelay则不再重试。
+ * 只重试幂等的请求方法，可重试的状态码为408/429/500/502/503/504，可重试的异常为超时、连接被拒绝/重置和连接意外关闭
+ *
+ * @author yin
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    /**
+     * 可重试的状态码
+     */
+    private static final Set<Integer> RETRYABLE_CODES = new HashSet<>(Arrays.asList(408, 429, 500, 502, 503, 504));
+
+    /**
+     * 幂等的请求方法
+     */
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE"));
+
+    /**
+     * 最多尝试次数(含首次请求)
+     */
+    private final int maxAttempts;
+
+    /**
+     * 基础等待时间(毫秒)
+     */
+    private final long baseDelayMillis;
+
+    /**
+     * 最长等待时间(毫秒)
+     */
+    private final long maxDelayMillis;
+
+    /**
+     * 默认最多尝试3次，基础等待500毫秒，最长等待30秒
+     */
+    public ExponentialBackoffRetryPolicy() {
+        this(3, 500L, 30000L);
+    }
+
+    /**
+     * @param maxAttempts     最多尝试次数(含首次请求)
+     * @param baseDelayMillis 基础等待时间(毫秒)
+     * @param maxDelayMillis  最长等待时间(毫秒)
+     */
+    public ExponentialBackoffRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1 || baseDelayMillis < 0L || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("重试参数无效");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @Override
+    public long retryDelayMillis(Request request, int attempt, Response response, IOException error) {
+        if (attempt >= maxAttempts || !IDEMPOTENT_METHODS.contains(request.method())) {
+            return -1L;
+        }
+        if (response != null && !RETRYABLE_CODES.contains(response.code())) {
+            return -1L;
+        }
+        if (error != null && !isRetryable(error)) {
+            return -1L;
+        }
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+        long delay = ceiling > 0L ? ThreadLocalRandom.current().nextLong(ceiling) : 0L;
+        if (response != null) {
+            long retryAfter = parseRetryAfter(response.header("Retry-After"));
+            if (retryAfter > maxDelayMillis) {
+                return -1L;
+            }
+            delay = Math.max(delay, retryAfter);
+        }
+        return delay;
+    }
+
+    /**
+     * 判断异常是否可以重试
+     *
+     * @param error 异常
+     * @return 是否可以重试
+     */
+    protected boolean isRetryable(IOException error) {
+        return error instanceof SocketTimeoutException || error instanceof SocketException || error instanceof EOFException
+                || StringUtils.startsWith(error.getMessage(), "unexpected end of stream");
+    }
+
+    /**
+     * 解析Retry-After(秒数或HTTP日期)
+     *
+     * @param value Retry-After的值
+     * @return 等待时间(毫秒)，无法解析时返回0，秒数超出long范围时返回Long.MAX_VALUE
+     */
+    static long parseRetryAfter(String value) {
+        if (StringUtils.isBlank(value)) {
+            return 0L;
+        }
+        value = value.trim();
+        if (StringUtils.isNumeric(value)) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                //超出long范围，视为超过最长等待时间
+                return Long.MAX_VALUE;
+            }
+        }
+        try {
+            long millis = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0L, millis - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.apifan.spider.common.util;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * 流水线的抓取阶段
+ * 把URL抓取并解析为文档对象，由流水线的抓取线程并发调用，实现需要线程安全
+ *
+ * @author yin
+ */
+@FunctionalInterface
+public interface Fetcher {
+
+    /**
+     * 抓取页面
+     *
+     * @param url URL
+     * @return 文档对象，返回null或抛出异常时记为抓取失败
+     * @throws Exception
+     */
+    Document fetch(String url) throws Exception;
+}
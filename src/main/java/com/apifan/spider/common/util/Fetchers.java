@@ -0,0 +1,79 @@
+package com.apifan.spider.common.util;
+
+import org.jsoup.nodes.Document;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * 常用的流水线抓取方式
+ * 返回的页面以请求的URL为baseUri，解析阶段可以用 baseUri() 取得页面URL、用 absUrl 解析相对链接
+ *
+ * @author yin
+ */
+public final class Fetchers {
+
+    private Fetchers() {
+    }
+
+    /**
+     * 通过HTTP缓存抓取(缓存未过期时不发请求)
+     *
+     * @param cache   HTTP缓存
+     * @param proxy   代理(可为null)
+     * @param charset 页面字符集(为空时使用UTF-8)
+     * @return 抓取方式
+     */
+    public static Fetcher cached(HttpCache cache, HttpProxyConfig proxy, String charset) {
+        return url -> {
+            File file = HttpUtils.getCached(url, null, proxy, cache);
+            if (file == null) {
+                throw new IOException("无法下载 " + url);
+            }
+            Document document = JsoupUtils.getDocument(file, charset);
+            document.setBaseUri(url);
+            return document;
+        };
+    }
+
+    /**
+     * 下载到本地文件后解析，文件已存在时不再下载
+     *
+     * @param fileOf  URL对应的本地文件
+     * @param proxy   代理(可为null)
+     * @param charset 页面字符集(为空时使用UTF-8)
+     * @return 抓取方式
+     */
+    public static Fetcher toFile(Function<String, File> fileOf, HttpProxyConfig proxy, String charset) {
+        return url -> {
+            File file = fileOf.apply(url);
+            if (!file.exists() && !HttpUtils.download(url, file.getAbsolutePath(), proxy)) {
+                throw new IOException("无法下载 " + url);
+            }
+            Document document = JsoupUtils.getDocument(file, charset);
+            document.setBaseUri(url);
+            return document;
+        };
+    }
+
+    /**
+     * 直接在内存中解析响应，不落盘
+     *
+     * @param template       请求模板
+     * @param proxy          代理(可为null)
+     * @param defaultCharset 响应没有声明字符集时使用的字符集(为空时使用UTF-8)
+     * @return 抓取方式
+     */
+    public static Fetcher inMemory(RequestTemplate template, HttpProxyConfig proxy, String defaultCharset) {
+        return url -> {
+            HttpResponse response = HttpUtils.get(url, template, proxy);
+            if (response == null || response.getCode() != 200) {
+                throw new IOException("请求失败 " + url + (response != null ? " 状态码 " + response.getCode() : ""));
+            }
+            Document document = JsoupUtils.getDocument(response, defaultCharset);
+            document.setBaseUri(url);
+            return document;
+        };
+    }
+}
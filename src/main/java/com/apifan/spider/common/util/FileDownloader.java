@@ -0,0 +1,414 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 文件下载写入器
+ * 通过FileChannel以大块直接缓冲区写入临时文件(.part)，完整写入后原子重命名为目标文件，
+ * 因此目标文件一旦存在即是完整的；下载中断时保留临时文件，下次请求通过Range/If-Range续传
+ *
+ * @author yin
+ */
+final class FileDownloader {
+    private static final Logger logger = LoggerFactory.getLogger(FileDownloader.class);
+
+    /**
+     * 临时文件后缀
+     */
+    static final String PART_SUFFIX = ".part";
+
+    /**
+     * 续传信息文件后缀
+     */
+    private static final String META_SUFFIX = ".meta";
+
+    private static final String KEY_URL = "url";
+
+    private static final String KEY_VALIDATOR = "validator";
+
+    /**
+     * 写入缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * 直接缓冲区的数量上限(与CPU核数相关，而不是与线程数相关，虚拟线程模式下也不会随任务数增长)
+     */
+    private static final int MAX_DIRECT_BUFFERS = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * 空闲的直接缓冲区，在下载之间复用
+     */
+    private static final BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(MAX_DIRECT_BUFFERS);
+
+    /**
+     * 已分配的直接缓冲区数量
+     */
+    private static final AtomicInteger directBuffers = new AtomicInteger();
+
+    private FileDownloader() {
+    }
+
+    /**
+     * 获取目标文件对应的临时文件
+     *
+     * @param target 目标文件
+     * @return 临时文件
+     */
+    static File partFileOf(File target) {
+        return new File(target.getParentFile(), target.getName() + PART_SUFFIX);
+    }
+
+    /**
+     * 获取目标文件对应的续传信息文件(记录URL以及ETag/Last-Modified)
+     *
+     * @param target 目标文件
+     * @return 续传信息文件
+     */
+    static File metaFileOf(File target) {
+        return new File(target.getParentFile(), target.getName() + PART_SUFFIX + META_SUFFIX);
+    }
+
+    /**
+     * 可续传的字节数
+     *
+     * @param target 目标文件
+     * @param url    URL
+     * @return 已下载且可续传的字节数，不可续传时为0
+     */
+    static long resumableLength(File target, String url) {
+        File partFile = partFileOf(target);
+        if (!partFile.isFile() || partFile.length() == 0L) {
+            return 0L;
+        }
+        Properties meta = readMeta(target);
+        if (meta == null || !url.equals(meta.getProperty(KEY_URL)) || StringUtils.isEmpty(meta.getProperty(KEY_VALIDATOR))) {
+            return 0L;
+        }
+        return partFile.length();
+    }
+
+    /**
+     * 续传所需的请求headers
+     *
+     * @param target 目标文件
+     * @param url    URL
+     * @return Range/If-Range，不可续传时为空
+     */
+    static Map<String, String> resumeHeaders(File target, String url) {
+        long length = resumableLength(target, url);
+        if (length == 0L) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Range", "bytes=" + length + "-");
+        //资源发生变化时服务端会返回200和完整内容
+        headers.put("If-Range", readMeta(target).getProperty(KEY_VALIDATOR));
+        return headers;
+    }
+
+    /**
+     * 获取资源的完整长度
+     *
+     * @param response 响应
+     * @return 完整长度，未知时为-1
+     */
+    static long totalLength(Response response) {
+        if (response.code() == 206) {
+            long[] range = parseContentRange(response.header("Content-Range"));
+            return range != null ? range[2] : -1L;
+        }
+        ResponseBody body = response.body();
+        return body != null ? body.contentLength() : -1L;
+    }
+
+    /**
+     * 将响应体保存到目标文件
+     * 206响应追加到已有的临时文件之后，200响应则从头写入；
+     * 服务端提供了ETag/Last-Modified时，下载中断后保留临时文件以便续传
+     *
+     * @param response 响应
+     * @param target   目标文件
+     * @param url      URL
+     * @return 文件的总字节数
+     * @throws IOException 下载中断或长度与Content-Length不符时抛出，此时目标文件保持不变
+     */
+    static long save(Response response, File target, String url) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) {
+            throw new IOException("响应没有响应体");
+        }
+        File partFile = partFileOf(target);
+        long offset = 0L;
+        if (response.code() == 206) {
+            long[] range = parseContentRange(response.header("Content-Range"));
+            if (range == null || range[0] != partFile.length()) {
+                discard(target);
+                throw new IOException("续传位置不匹配: " + response.header("Content-Range"));
+            }
+            offset = range[0];
+        }
+        boolean resumable = offset > 0L;
+        if (offset == 0L) {
+            String validator = validatorOf(response);
+            if (validator != null) {
+                writeMeta(target, url, validator);
+                resumable = true;
+            } else {
+                FileUtils.deleteQuietly(metaFileOf(target));
+            }
+        }
+        boolean completed = false;
+        try {
+            long contentLength = body.contentLength();
+            long written;
+            try (RandomAccessFile raf = new RandomAccessFile(partFile, "rw"); FileChannel channel = raf.getChannel()) {
+                if (offset == 0L) {
+                    if (contentLength > 0L && !resumable) {
+                        //预先分配文件大小(可续传时以文件长度作为续传位置，因此不预分配)
+                        raf.setLength(contentLength);
+                    } else {
+                        channel.truncate(0L);
+                    }
+                }
+                written = transfer(body.source(), channel, offset);
+                if (contentLength > 0L && written != contentLength) {
+                    throw new IOException("文件不完整: 期望 " + contentLength + " 字节，实际 " + written + " 字节");
+                }
+                channel.truncate(offset + written);
+            }
+            moveAtomically(partFile, target);
+            FileUtils.deleteQuietly(metaFileOf(target));
+            completed = true;
+            return offset + written;
+        } finally {
+            if (!completed && !resumable) {
+                discard(target);
+            }
+        }
+    }
+
+    /**
+     * 删除临时文件和续传信息
+     *
+     * @param target 目标文件
+     */
+    static void discard(File target) {
+        File partFile = partFileOf(target);
+        if (partFile.exists() && !partFile.delete()) {
+            logger.warn("无法删除临时文件 {}", partFile.getAbsolutePath());
+        }
+        FileUtils.deleteQuietly(metaFileOf(target));
+    }
+
+    /**
+     * 从响应流写入文件通道的指定位置
+     * 读取中断时，已读入缓冲区的数据仍会被写入，以便续传
+     *
+     * @param source   响应流
+     * @param channel  文件通道
+     * @param position 起始位置
+     * @return 写入的字节数
+     * @throws IOException
+     */
+    static long transfer(BufferedSource source, FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            long total = 0L;
+            while (true) {
+                int read;
+                try {
+                    read = source.read(buffer);
+                } catch (IOException e) {
+                    writeFully(buffer, channel, position + total);
+                    throw e;
+                }
+                if (read != -1 && buffer.hasRemaining()) {
+                    //尽量填满缓冲区再写入，减少系统调用次数
+                    continue;
+                }
+                total += writeFully(buffer, channel, position + total);
+                if (read == -1) {
+                    return total;
+                }
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * 取得写入缓冲区
+     * 优先复用空闲的直接缓冲区；直接缓冲区已达上限时使用堆缓冲区
+     *
+     * @return 已清空的缓冲区
+     */
+    private static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer != null) {
+            buffer.clear();
+            return buffer;
+        }
+        if (directBuffers.incrementAndGet() <= MAX_DIRECT_BUFFERS) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        directBuffers.decrementAndGet();
+        return ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * 归还写入缓冲区(堆缓冲区直接丢弃)
+     *
+     * @param buffer 缓冲区
+     */
+    private static void releaseBuffer(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * 将缓冲区中的数据全部写入文件通道
+     *
+     * @param buffer   缓冲区
+     * @param channel  文件通道
+     * @param position 写入位置
+     * @return 写入的字节数
+     * @throws IOException
+     */
+    private static int writeFully(ByteBuffer buffer, FileChannel channel, long position) throws IOException {
+        buffer.flip();
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    /**
+     * 获取用于If-Range的校验值(优先使用强ETag，其次Last-Modified)
+     *
+     * @param response 响应
+     * @return 校验值，无法续传时为null
+     */
+    static String validatorOf(Response response) {
+        String etag = response.header("ETag");
+        if (StringUtils.isNotEmpty(etag) && !etag.startsWith("W/")) {
+            return etag;
+        }
+        String lastModified = response.header("Last-Modified");
+        return StringUtils.isNotEmpty(lastModified) ? lastModified : null;
+    }
+
+    /**
+     * 解析Content-Range(bytes start-end/total)
+     *
+     * @param contentRange Content-Range header
+     * @return [start, end, total]，total未知时为-1；无法解析时为null
+     */
+    static long[] parseContentRange(String contentRange) {
+        if (StringUtils.isEmpty(contentRange) || !contentRange.startsWith("bytes ")) {
+            return null;
+        }
+        String[] tmp = contentRange.substring(6).trim().split("[-/]");
+        if (tmp.length != 3) {
+            return null;
+        }
+        try {
+            long total = "*".equals(tmp[2]) ? -1L : Long.parseLong(tmp[2]);
+            return new long[]{Long.parseLong(tmp[0]), Long.parseLong(tmp[1]), total};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Properties readMeta(File target) {
+        File metaFile = metaFileOf(target);
+        if (!metaFile.isFile()) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(metaFile), StandardCharsets.UTF_8)) {
+            meta.load(reader);
+            return meta;
+        } catch (IOException e) {
+            logger.warn("无法读取续传信息 {}", metaFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    private static void writeMeta(File target, String url, String validator) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty(KEY_URL, url);
+        meta.setProperty(KEY_VALIDATOR, validator);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(metaFileOf(target)), StandardCharsets.UTF_8)) {
+            meta.store(writer, null);
+        }
+    }
+
+    /**
+     * 将响应体写入文件通道的指定分段
+     *
+     * @param response 分段响应(必须为206)
+     * @param channel  文件通道
+     * @param start    分段起始位置
+     * @param end      分段结束位置(含)
+     * @return 写入的字节数
+     * @throws IOException 服务端未按分段返回或长度不符时抛出
+     */
+    static long saveSegment(Response response, FileChannel channel, long start, long end) throws IOException {
+        long[] range = parseContentRange(response.header("Content-Range"));
+        if (response.code() != 206 || range == null || range[0] != start || response.body() == null) {
+            throw new IOException("服务端未按分段返回: 状态码 " + response.code() + ", Content-Range " + response.header("Content-Range"));
+        }
+        long written = transfer(response.body().source(), channel, start);
+        if (written != end - start + 1) {
+            throw new IOException("分段不完整: 期望 " + (end - start + 1) + " 字节，实际 " + written + " 字节");
+        }
+        return written;
+    }
+
+    /**
+     * 原子重命名(文件系统不支持时退化为普通重命名)
+     *
+     * @param source 源文件
+     * @param target 目标文件
+     * @throws IOException
+     */
+    static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
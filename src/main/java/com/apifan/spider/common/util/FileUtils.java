@@ -25,6 +25,11 @@ public class FileUtils extends org.apache.commons.io.FileUtils {
      */
     private static Map<String, AtomicInteger> fileNameIntegerMap = new ConcurrentHashMap<>();
 
+    /**
+     * 原子写入时临时文件的后缀
+     */
+    private static final String TMP_SUFFIX = ".tmp";
+
 
     /**
      * 生成唯一有序文件名
@@ -77,4 +82,41 @@ public class FileUtils extends org.apache.commons.io.FileUtils {
             deleteEmptyDirs(child.getAbsolutePath());
         }
     }
+
+    /**
+     * 原子写入文件
+     * 先写入同目录下的临时文件再重命名，中断时不会留下不完整的目标文件
+     *
+     * @param target 目标文件
+     * @param data   内容
+     * @throws IOException
+     */
+    public static void writeAtomically(File target, byte[] data) throws IOException {
+        File tmpFile = createTempFileFor(target);
+        boolean moved = false;
+        try {
+            writeByteArrayToFile(tmpFile, data);
+            FileDownloader.moveAtomically(tmpFile, target);
+            moved = true;
+        } finally {
+            if (!moved) {
+                deleteQuietly(tmpFile);
+            }
+        }
+    }
+
+    /**
+     * 在目标文件所在目录下创建唯一的临时文件(用于写完后原子替换目标文件)
+     * 同一目标文件的并发写入各自使用不同的临时文件；.part 后缀只用于可续传的下载
+     *
+     * @param target 目标文件
+     * @return 临时文件
+     * @throws IOException
+     */
+    static File createTempFileFor(File target) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        forceMkdir(dir);
+        //前缀至少3个字符
+        return File.createTempFile(StringUtils.rightPad(target.getName(), 3, '_') + ".", TMP_SUFFIX, dir);
+    }
 }
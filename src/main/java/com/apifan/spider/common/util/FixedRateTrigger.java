@@ -0,0 +1,44 @@
+package com.apifan.spider.common.util;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * 固定频率触发器
+ * 按上一次计划触发时间加固定间隔计算，不受每次运行耗时影响
+ *
+ * @author yin
+ */
+public final class FixedRateTrigger implements Trigger {
+
+    /**
+     * 间隔
+     */
+    private final Duration period;
+
+    /**
+     * 构造函数
+     *
+     * @param period 间隔
+     */
+    public FixedRateTrigger(Duration period) {
+        if (period == null || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("间隔必须大于0");
+        }
+        this.period = period;
+    }
+
+    public Duration getPeriod() {
+        return period;
+    }
+
+    @Override
+    public ZonedDateTime next(ZonedDateTime after) {
+        return after.plus(period);
+    }
+
+    @Override
+    public String toString() {
+        return "@every " + period;
+    }
+}
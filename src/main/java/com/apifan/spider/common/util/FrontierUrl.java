@@ -0,0 +1,71 @@
+package com.apifan.spider.common.util;
+
+/**
+ * 待抓取的URL
+ *
+ * @author yin
+ */
+public final class FrontierUrl {
+
+    /**
+     * URL(已规范化)
+     */
+    private final String url;
+
+    /**
+     * 主机名
+     */
+    private final String host;
+
+    /**
+     * 深度(越小越优先)
+     */
+    private final int depth;
+
+    /**
+     * 分值(同一深度内越大越优先)
+     */
+    private final double score;
+
+    /**
+     * 加入顺序(深度和分值相同时先加入的优先)
+     */
+    private final long sequence;
+
+    FrontierUrl(String url, String host, int depth, double score, long sequence) {
+        this.url = url;
+        this.host = host;
+        this.depth = depth;
+        this.score = score;
+        this.sequence = sequence;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        return "FrontierUrl{" +
+                "url='" + url + '\'' +
+                ", depth=" + depth +
+                ", score=" + score +
+                '}';
+    }
+}
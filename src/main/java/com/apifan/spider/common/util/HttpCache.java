@@ -0,0 +1,539 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.CacheControl;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.HashingSink;
+import okio.Okio;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 磁盘HTTP缓存
+ * 响应体按内容的SHA-256存放在 blobs 目录(相同内容只存一份)，每个条目的元数据(ETag、Last-Modified、校验时间)存放在 entries 目录；
+ * 条目按URL和请求变体(代理、是否带cookies、请求头)区分，响应的 Vary 所列请求头的值也记入条目，查找时需一致；
+ * Cache-Control 为 no-store 或 private、以及 Vary: * 的响应不缓存；
+ * 在TTL内直接使用缓存，过期后带 If-None-Match/If-Modified-Since 重新校验，304时沿用原内容；
+ * 内容总大小超过上限时按最近使用时间淘汰。由 HttpUtils.getCached 使用。
+ * 不再被引用的内容文件至少保留 DELETE_GRACE_MILLIS 后才删除，之前返回给调用方的文件在此期间仍可读取；
+ * 同一目录可能被多个实例共用，加载时只清理超过该时间的无引用文件和临时文件
+ *
+ * @author yin
+ */
+public class HttpCache {
+    private static final Logger logger = LoggerFactory.getLogger(HttpCache.class);
+
+    /**
+     * 默认的大小上限(256MB)
+     */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * 默认的TTL(1小时)
+     */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(1L);
+
+    /**
+     * 无引用的内容文件和残留临时文件的保留时间(10分钟)
+     */
+    static final long DELETE_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(10L);
+
+    private static final String ENTRY_SUFFIX = ".properties";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final String KEY_KEY = "key";
+    private static final String KEY_URL = "url";
+    private static final String KEY_HASH = "hash";
+    private static final String KEY_LENGTH = "length";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+    private static final String KEY_VALIDATED_AT = "validatedAt";
+    private static final String KEY_VARY_PREFIX = "vary.";
+
+    private final File entriesDir;
+
+    private final File blobsDir;
+
+    private final long maxSize;
+
+    private final long ttlMillis;
+
+    /**
+     * 在此时间(毫秒时间戳)之前校验的缓存条目视为已过期
+     */
+    private volatile long freshSince;
+
+    /**
+     * 条目key -> 缓存条目(按访问顺序排列，最久未使用的在前)
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    /**
+     * 内容哈希 -> 引用该内容的条目数
+     */
+    private final Map<String, Integer> blobRefs = new HashMap<>();
+
+    /**
+     * 待删除的文件 -> 最早可删除的时间(毫秒时间戳)
+     */
+    private final Map<File, Long> pendingDeletes = new HashMap<>();
+
+    /**
+     * 内容总大小(字节)
+     */
+    private long size;
+
+    /**
+     * 构造函数(使用默认的大小上限和TTL)
+     *
+     * @param directory 缓存目录
+     */
+    public HttpCache(File directory) {
+        this(directory, DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param directory 缓存目录
+     * @param maxSize   内容总大小上限(字节)
+     * @param ttlMillis 缓存无需校验的有效期(毫秒)
+     */
+    public HttpCache(File directory, long maxSize, long ttlMillis) {
+        this.entriesDir = new File(directory, "entries");
+        this.blobsDir = new File(directory, "blobs");
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        try {
+            FileUtils.forceMkdir(entriesDir);
+            FileUtils.forceMkdir(blobsDir);
+        } catch (IOException e) {
+            throw new RuntimeException("无法初始化缓存目录" + directory.getAbsolutePath());
+        }
+        load();
+    }
+
+    /**
+     * 当前内容总大小(字节)
+     *
+     * @return
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * 当前缓存的条目数量
+     *
+     * @return
+     */
+    public synchronized int count() {
+        return entries.size();
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        for (String key : entries.keySet().toArray(new String[0])) {
+            remove(key);
+        }
+    }
+
+    /**
+     * 条目key
+     *
+     * @param url     URL
+     * @param variant 请求变体(同一URL下区分不同的代理、cookies和请求头)
+     * @return
+     */
+    static String keyOf(String url, String variant) {
+        return DigestUtils.sha1Hex(url + "\n" + variant);
+    }
+
+    /**
+     * 查找缓存条目
+     *
+     * @param key           条目key
+     * @param requestHeader 本次请求的请求头(名称为小写)
+     * @return 缓存条目，不存在或 Vary 所列请求头的值不一致时为null
+     */
+    synchronized Entry get(String key, Function<String, String> requestHeader) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!blobOf(entry).isFile()) {
+            //内容文件被外部删除
+            remove(key);
+            return null;
+        }
+        if (!entry.matches(requestHeader)) {
+            return null;
+        }
+        entryFileOf(key).setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    /**
+     * 设置缓存有效的起始时间
+     * 在此之前校验的缓存条目即使仍在TTL内也需重新校验，用于按时间段轮询时每个时间段至少重新校验一次
+     *
+     * @param freshSince 毫秒时间戳(0表示只按TTL判断)
+     */
+    public void setFreshSince(long freshSince) {
+        this.freshSince = freshSince;
+    }
+
+    /**
+     * 缓存条目是否在TTL内(且不早于缓存有效的起始时间)
+     *
+     * @param entry 缓存条目
+     * @return
+     */
+    boolean isFresh(Entry entry) {
+        return entry.validatedAt >= freshSince && System.currentTimeMillis() - entry.validatedAt < ttlMillis;
+    }
+
+    /**
+     * 缓存条目的内容文件
+     *
+     * @param entry 缓存条目
+     * @return
+     */
+    File blobOf(Entry entry) {
+        return new File(blobsDir, entry.hash);
+    }
+
+    /**
+     * 保存2xx响应
+     * 不可缓存的响应只写入内容文件并移除原有条目，内容文件至少保留 DELETE_GRACE_MILLIS 供调用方读取
+     *
+     * @param key           条目key
+     * @param url           URL
+     * @param response      响应
+     * @param requestHeader 发出请求时的请求头(名称为小写)
+     * @return 内容文件
+     * @throws IOException
+     */
+    File store(String key, String url, Response response, Function<String, String> requestHeader) throws IOException {
+        File tmpFile = new File(blobsDir, UUID.randomUUID().toString() + TMP_SUFFIX);
+        String hash;
+        long length;
+        try (HashingSink hashingSink = HashingSink.sha256(Okio.sink(tmpFile));
+             BufferedSink sink = Okio.buffer(hashingSink)) {
+            length = sink.writeAll(response.body().source());
+            sink.flush();
+            hash = hashingSink.hash().hex();
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(tmpFile);
+            throw e;
+        }
+        Map<String, String> vary = varyOf(response, requestHeader);
+        Entry entry = new Entry(key, url, hash, length, response.header("ETag"), response.header("Last-Modified"),
+                System.currentTimeMillis(), vary != null ? vary : Collections.emptyMap());
+        synchronized (this) {
+            File blob = blobOf(entry);
+            if (blob.isFile()) {
+                //相同的内容已存在
+                FileUtils.deleteQuietly(tmpFile);
+            } else {
+                FileDownloader.moveAtomically(tmpFile, blob);
+            }
+            if (vary == null) {
+                remove(key);
+                if (!blobRefs.containsKey(hash)) {
+                    pendingDeletes.put(blob, System.currentTimeMillis() + DELETE_GRACE_MILLIS);
+                }
+                purge();
+                return blob;
+            }
+            put(entry);
+            writeEntry(entry);
+            evict();
+            purge();
+            return blob;
+        }
+    }
+
+    /**
+     * 304响应：沿用原内容，更新校验时间和校验值
+     *
+     * @param entry    原缓存条目
+     * @param response 304响应
+     * @return 内容文件
+     * @throws IOException
+     */
+    synchronized File revalidate(Entry entry, Response response) throws IOException {
+        String etag = StringUtils.defaultIfEmpty(response.header("ETag"), entry.etag);
+        String lastModified = StringUtils.defaultIfEmpty(response.header("Last-Modified"), entry.lastModified);
+        Entry updated = new Entry(entry.key, entry.url, entry.hash, entry.length, etag, lastModified, System.currentTimeMillis(), entry.vary);
+        put(updated);
+        writeEntry(updated);
+        return blobOf(updated);
+    }
+
+    /**
+     * 响应 Vary 所列请求头及其在请求中的值
+     *
+     * @param response      响应
+     * @param requestHeader 发出请求时的请求头
+     * @return 响应不可缓存时为null
+     */
+    private static Map<String, String> varyOf(Response response, Function<String, String> requestHeader) {
+        CacheControl cacheControl = response.cacheControl();
+        if (cacheControl.noStore() || cacheControl.isPrivate()) {
+            return null;
+        }
+        Map<String, String> vary = new TreeMap<>();
+        for (String header : response.headers("Vary")) {
+            for (String name : header.split(",")) {
+                name = name.trim().toLowerCase(Locale.ROOT);
+                if ("*".equals(name)) {
+                    return null;
+                }
+                if (!name.isEmpty()) {
+                    vary.put(name, StringUtils.defaultString(requestHeader.apply(name)));
+                }
+            }
+        }
+        return vary;
+    }
+
+    private void put(Entry entry) {
+        Entry old = entries.put(entry.key, entry);
+        if (old != null) {
+            release(old);
+        }
+        Integer refs = blobRefs.get(entry.hash);
+        if (refs == null) {
+            size += entry.length;
+            blobRefs.put(entry.hash, 1);
+        } else {
+            blobRefs.put(entry.hash, refs + 1);
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            release(entry);
+            FileUtils.deleteQuietly(entryFileOf(key));
+        }
+    }
+
+    /**
+     * 释放条目对内容的引用，无引用时延迟删除内容文件
+     */
+    private void release(Entry entry) {
+        Integer refs = blobRefs.get(entry.hash);
+        if (refs == null) {
+            return;
+        }
+        if (refs > 1) {
+            blobRefs.put(entry.hash, refs - 1);
+        } else {
+            blobRefs.remove(entry.hash);
+            size -= entry.length;
+            pendingDeletes.put(blobOf(entry), System.currentTimeMillis() + DELETE_GRACE_MILLIS);
+        }
+    }
+
+    /**
+     * 删除已过保留时间的文件
+     * 期间重新被引用的内容文件不删除；临时文件仍在写入(最近有修改)时继续保留
+     */
+    private void purge() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<File, Long>> iterator = pendingDeletes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<File, Long> pending = iterator.next();
+            File file = pending.getKey();
+            if (blobRefs.containsKey(file.getName())) {
+                iterator.remove();
+                continue;
+            }
+            if (now < pending.getValue()) {
+                continue;
+            }
+            if (file.getName().endsWith(TMP_SUFFIX) && file.lastModified() + DELETE_GRACE_MILLIS > now) {
+                pending.setValue(file.lastModified() + DELETE_GRACE_MILLIS);
+                continue;
+            }
+            FileUtils.deleteQuietly(file);
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 淘汰最久未使用的条目直到总大小不超过上限(至少保留最近的一个)
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maxSize && entries.size() > 1 && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            release(entry);
+            FileUtils.deleteQuietly(entryFileOf(entry.key));
+            logger.debug("淘汰缓存: {}", entry.url);
+        }
+    }
+
+    /**
+     * 从磁盘加载缓存条目，并清理残留的临时文件和无引用的内容文件
+     * 最近修改过的可能属于共用该目录的其他实例(正在写入或刚刚写入)，超过保留时间后才删除
+     */
+    private void load() {
+        File[] entryFiles = entriesDir.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (entryFiles != null) {
+            Arrays.sort(entryFiles, Comparator.comparingLong(File::lastModified));
+            for (File entryFile : entryFiles) {
+                Entry entry = readEntry(entryFile);
+                if (entry == null || !blobOf(entry).isFile()) {
+                    FileUtils.deleteQuietly(entryFile);
+                    continue;
+                }
+                put(entry);
+            }
+        }
+        File[] blobs = blobsDir.listFiles();
+        if (blobs != null) {
+            for (File blob : blobs) {
+                if (!blobRefs.containsKey(blob.getName())) {
+                    pendingDeletes.put(blob, blob.lastModified() + DELETE_GRACE_MILLIS);
+                }
+            }
+        }
+        evict();
+        purge();
+    }
+
+    private File entryFileOf(String key) {
+        return new File(entriesDir, key + ENTRY_SUFFIX);
+    }
+
+    private Entry readEntry(File entryFile) {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(entryFile), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            //没有key的是旧版本按URL保存的条目
+            String key = properties.getProperty(KEY_KEY);
+            if (key == null || !entryFile.getName().equals(key + ENTRY_SUFFIX)
+                    || properties.getProperty(KEY_URL) == null || properties.getProperty(KEY_HASH) == null) {
+                return null;
+            }
+            Map<String, String> vary = new TreeMap<>();
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith(KEY_VARY_PREFIX)) {
+                    vary.put(name.substring(KEY_VARY_PREFIX.length()), properties.getProperty(name));
+                }
+            }
+            return new Entry(key, properties.getProperty(KEY_URL), properties.getProperty(KEY_HASH),
+                    Long.parseLong(properties.getProperty(KEY_LENGTH)), properties.getProperty(KEY_ETAG),
+                    properties.getProperty(KEY_LAST_MODIFIED), Long.parseLong(properties.getProperty(KEY_VALIDATED_AT)), vary);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("无法读取缓存条目 {}", entryFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    private void writeEntry(Entry entry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(KEY_KEY, entry.key);
+        properties.setProperty(KEY_URL, entry.url);
+        properties.setProperty(KEY_HASH, entry.hash);
+        properties.setProperty(KEY_LENGTH, String.valueOf(entry.length));
+        if (entry.etag != null) {
+            properties.setProperty(KEY_ETAG, entry.etag);
+        }
+        if (entry.lastModified != null) {
+            properties.setProperty(KEY_LAST_MODIFIED, entry.lastModified);
+        }
+        properties.setProperty(KEY_VALIDATED_AT, String.valueOf(entry.validatedAt));
+        for (Map.Entry<String, String> header : entry.vary.entrySet()) {
+            properties.setProperty(KEY_VARY_PREFIX + header.getKey(), header.getValue());
+        }
+        File entryFile = entryFileOf(entry.key);
+        File tmpFile = new File(entryFile.getAbsolutePath() + TMP_SUFFIX);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        FileDownloader.moveAtomically(tmpFile, entryFile);
+    }
+
+    /**
+     * 缓存条目
+     */
+    static final class Entry {
+        private final String key;
+        private final String url;
+        private final String hash;
+        private final long length;
+        private final String etag;
+        private final String lastModified;
+        private final long validatedAt;
+
+        /**
+         * Vary 所列请求头(小写) -> 请求中的值(没有时为空字符串)
+         */
+        private final Map<String, String> vary;
+
+        private Entry(String key, String url, String hash, long length, String etag, String lastModified, long validatedAt, Map<String, String> vary) {
+            this.key = key;
+            this.url = url;
+            this.hash = hash;
+            this.length = length;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.validatedAt = validatedAt;
+            this.vary = vary;
+        }
+
+        /**
+         * Vary 所列请求头的值是否与本次请求一致
+         */
+        private boolean matches(Function<String, String> requestHeader) {
+            for (Map.Entry<String, String> header : vary.entrySet()) {
+                if (!Objects.equals(header.getValue(), StringUtils.defaultString(requestHeader.apply(header.getKey())))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+    }
+}
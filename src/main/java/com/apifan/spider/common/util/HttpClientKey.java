@@ -0,0 +1,161 @@
+package com.apifan.spider.common.util;
+
+import java.util.Objects;
+
+/**
+ * OkHttpClient缓存键
+ * 按值比较(配置档、超时时间、代理的主机/端口/账号、是否使用cookies)，相同配置的请求复用同一个客户端。
+ * 创建时复制代理配置的各项值，之后修改调用方的HttpProxyConfig不会影响已有的键
+ *
+ * @author yin
+ */
+public final class HttpClientKey {
+
+    /**
+     * 连接超时时间(毫秒)
+     */
+    private final int connectTimeout;
+
+    /**
+     * 读超时时间(毫秒)
+     */
+    private final int readTimeout;
+
+    /**
+     * 写超时时间(毫秒)
+     */
+    private final int writeTimeout;
+
+    /**
+     * 是否使用代理
+     */
+    private final boolean proxied;
+
+    /**
+     * 代理主机
+     */
+    private final String proxyHost;
+
+    /**
+     * 代理端口
+     */
+    private final int proxyPort;
+
+    /**
+     * 代理用户名
+     */
+    private final String proxyUsername;
+
+    /**
+     * 代理密码
+     */
+    private final String proxyPassword;
+
+    /**
+     * 是否使用cookies
+     */
+    private final boolean withCookies;
+
+    /**
+     * 配置档
+     */
+    private final HttpClientProfile profile;
+
+    /**
+     * 构造函数(使用默认配置档)
+     *
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param proxyConfig    代理配置
+     * @param withCookies    是否使用cookies
+     */
+    public HttpClientKey(int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies) {
+        this(connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies, HttpClientProfile.DEFAULT);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param proxyConfig    代理配置
+     * @param withCookies    是否使用cookies
+     * @param profile        配置档
+     */
+    public HttpClientKey(int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies, HttpClientProfile profile) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.writeTimeout = writeTimeout;
+        this.proxied = proxyConfig != null;
+        this.proxyHost = proxyConfig != null ? proxyConfig.getHost() : null;
+        this.proxyPort = proxyConfig != null ? proxyConfig.getPort() : 0;
+        this.proxyUsername = proxyConfig != null ? proxyConfig.getUsername() : null;
+        this.proxyPassword = proxyConfig != null ? proxyConfig.getPassword() : null;
+        this.withCookies = withCookies;
+        this.profile = profile != null ? profile : HttpClientProfile.DEFAULT;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public int getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    /**
+     * 按创建时的值重新构建代理配置
+     *
+     * @return 不使用代理时为null
+     */
+    public HttpProxyConfig getProxyConfig() {
+        return proxied ? new HttpProxyConfig(proxyHost, proxyPort, proxyUsername, proxyPassword) : null;
+    }
+
+    public boolean isWithCookies() {
+        return withCookies;
+    }
+
+    public HttpClientProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HttpClientKey that = (HttpClientKey) o;
+        return connectTimeout == that.connectTimeout
+                && readTimeout == that.readTimeout
+                && writeTimeout == that.writeTimeout
+                && withCookies == that.withCookies
+                && proxied == that.proxied
+                && proxyPort == that.proxyPort
+                && Objects.equals(proxyHost, that.proxyHost)
+                && Objects.equals(proxyUsername, that.proxyUsername)
+                && Objects.equals(proxyPassword, that.proxyPassword)
+                && Objects.equals(profile, that.profile);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(connectTimeout, readTimeout, writeTimeout, proxied, proxyHost, proxyPort, proxyUsername, proxyPassword, withCookies, profile);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpClientKey{" + profile + ", " + connectTimeout + "_" + readTimeout + "_" + writeTimeout
+                + ", proxy=" + (proxied ? (proxyUsername != null ? proxyUsername + "@" : "") + proxyHost + ":" + proxyPort : null)
+                + ", cookies=" + withCookies + "}";
+    }
+}
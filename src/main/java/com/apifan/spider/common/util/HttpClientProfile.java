@@ -0,0 +1,151 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Protocol;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP客户端配置档
+ * 每个配置档有独立的连接池和Dispatcher(并发上限、单主机并发上限)，并可选择是否优先使用HTTP/2；
+ * 通过 HttpClientRegistry.configureProfile 按域名指定，按值比较，相同配置的配置档共享连接池
+ *
+ * @author yin
+ */
+public final class HttpClientProfile {
+
+    /**
+     * 默认配置档(未指定配置档的主机使用)
+     */
+    public static final HttpClientProfile DEFAULT = new HttpClientProfile("default", 5, TimeUnit.MINUTES.toMillis(5L), true, 256, 32);
+
+    /**
+     * 批量下载：连接多、保持时间长，适合大量图片/文件下载
+     */
+    public static final HttpClientProfile BULK_DOWNLOAD = new HttpClientProfile("bulk-download", 64, TimeUnit.MINUTES.toMillis(5L), true, 128, 16);
+
+    /**
+     * JSON接口：少量长连接，优先HTTP/2多路复用
+     */
+    public static final HttpClientProfile API_JSON = new HttpClientProfile("api-json", 16, TimeUnit.MINUTES.toMillis(5L), true, 64, 8);
+
+    /**
+     * 网页：连接保持时间较短
+     */
+    public static final HttpClientProfile HTML_PAGE = new HttpClientProfile("html-page", 16, TimeUnit.MINUTES.toMillis(1L), true, 64, 8);
+
+    /**
+     * 名称
+     */
+    private final String name;
+
+    /**
+     * 连接池最大空闲连接数
+     */
+    private final int maxIdleConnections;
+
+    /**
+     * 空闲连接保持时间(毫秒)
+     */
+    private final long keepAliveMillis;
+
+    /**
+     * 是否优先使用HTTP/2(否则只使用HTTP/1.1)
+     */
+    private final boolean http2;
+
+    /**
+     * 最大并发请求数
+     */
+    private final int maxRequests;
+
+    /**
+     * 单个主机的最大并发请求数
+     */
+    private final int maxRequestsPerHost;
+
+    /**
+     * 构造函数
+     *
+     * @param name               名称
+     * @param maxIdleConnections 连接池最大空闲连接数
+     * @param keepAliveMillis    空闲连接保持时间(毫秒)
+     * @param http2              是否优先使用HTTP/2
+     * @param maxRequests        最大并发请求数
+     * @param maxRequestsPerHost 单个主机的最大并发请求数
+     */
+    public HttpClientProfile(String name, int maxIdleConnections, long keepAliveMillis, boolean http2, int maxRequests, int maxRequestsPerHost) {
+        if (maxIdleConnections < 0 || keepAliveMillis <= 0L || maxRequests < 1 || maxRequestsPerHost < 1) {
+            throw new IllegalArgumentException("客户端配置档参数无效");
+        }
+        this.name = name;
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAliveMillis = keepAliveMillis;
+        this.http2 = http2;
+        this.maxRequests = maxRequests;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    /**
+     * 支持的协议(HTTP/2通过ALPN协商，服务端不支持时回退到HTTP/1.1)
+     *
+     * @return
+     */
+    List<Protocol> protocols() {
+        return http2 ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections.singletonList(Protocol.HTTP_1_1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HttpClientProfile that = (HttpClientProfile) o;
+        return maxIdleConnections == that.maxIdleConnections
+                && keepAliveMillis == that.keepAliveMillis
+                && http2 == that.http2
+                && maxRequests == that.maxRequests
+                && maxRequestsPerHost == that.maxRequestsPerHost
+                && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, maxIdleConnections, keepAliveMillis, http2, maxRequests, maxRequestsPerHost);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
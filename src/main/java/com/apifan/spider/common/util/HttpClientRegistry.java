@@ -0,0 +1,285 @@
+package com.apifan.spider.common.util;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import okhttp3.ConnectionPool;
+import okhttp3.ConnectionSpec;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.OkHttpClient;
+import okhttp3.TlsVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OkHttpClient注册表
+ * 所有客户端都由所属配置档(HttpClientProfile)的根客户端派生(OkHttpClient.newBuilder())，同一配置档共享连接池和Dispatcher线程池；
+ * 按值缓存，数量有上限，超出时淘汰最久未使用的客户端
+ *
+ * @author yin
+ */
+public final class HttpClientRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientRegistry.class);
+
+    /**
+     * 缓存的客户端数量上限
+     */
+    private static final int MAX_CLIENTS = 64;
+
+    /**
+     * TLS配置：优先使用 TLS 1.3/1.2，握手失败时回退到兼容 TLS 1.1/1.0 的旧站点配置，同时支持明文http。
+     * 在根客户端上配置一次，所有派生客户端继承
+     */
+    private static final List<ConnectionSpec> CONNECTION_SPECS = Arrays.asList(
+            ConnectionSpec.MODERN_TLS,
+            new ConnectionSpec.Builder(ConnectionSpec.COMPATIBLE_TLS)
+                    .tlsVersions(TlsVersion.TLS_1_2, TlsVersion.TLS_1_1, TlsVersion.TLS_1_0)
+                    .build(),
+            ConnectionSpec.CLEARTEXT);
+
+    /**
+     * 配置档 -> 根客户端(持有该配置档共享的连接池和Dispatcher)
+     */
+    private static final Map<HttpClientProfile, OkHttpClient> rootClients = new ConcurrentHashMap<>();
+
+    /**
+     * DNS解析(所有根客户端共用)
+     */
+    private static volatile Dns dns = new CachingDns();
+
+    /**
+     * 按域名指定的配置档
+     */
+    private static final DomainConfigs<HttpClientProfile> profiles = new DomainConfigs<>();
+
+    /**
+     * 共享的cookie容器
+     */
+    private static final PersistentCookieJar cookieJar = new PersistentCookieJar();
+
+    /**
+     * 被淘汰的客户端：连接池若不是共享的则立即关闭其空闲连接；
+     * 共享连接池中属于该客户端(如某个已不再使用的代理)的空闲连接会在keep-alive到期后被自动回收
+     */
+    private static final RemovalListener<HttpClientKey, OkHttpClient> removalListener = notification -> {
+        OkHttpClient client = notification.getValue();
+        logger.debug("淘汰OkHttpClient: {}, 原因: {}", notification.getKey(), notification.getCause());
+        if (client != null && !isSharedPool(client.connectionPool())) {
+            client.connectionPool().evictAll();
+        }
+    };
+
+    private static final LoadingCache<HttpClientKey, OkHttpClient> clients = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CLIENTS)
+            .removalListener(removalListener)
+            .build(new CacheLoader<HttpClientKey, OkHttpClient>() {
+                @Override
+                public OkHttpClient load(HttpClientKey key) {
+                    return createClient(key);
+                }
+            });
+
+    private HttpClientRegistry() {
+    }
+
+    /**
+     * 获取OkHttpClient对象
+     *
+     * @param key 客户端配置
+     * @return
+     */
+    public static OkHttpClient getClient(HttpClientKey key) {
+        return clients.getUnchecked(key);
+    }
+
+    /**
+     * 当前缓存的客户端数量
+     *
+     * @return
+     */
+    public static long size() {
+        return clients.size();
+    }
+
+    /**
+     * 为域名指定客户端配置档(对该域名及其子域名生效，"*"表示所有主机)
+     *
+     * @param domain  域名
+     * @param profile 配置档
+     */
+    public static void configureProfile(String domain, HttpClientProfile profile) {
+        profiles.put(domain, profile);
+    }
+
+    /**
+     * 仅在域名尚未指定配置档时指定
+     *
+     * @param domain  域名
+     * @param profile 配置档
+     */
+    public static void configureProfileIfAbsent(String domain, HttpClientProfile profile) {
+        profiles.putIfAbsent(domain, profile);
+    }
+
+    /**
+     * 取消为域名指定的配置档
+     *
+     * @param domain 域名
+     */
+    public static void removeProfile(String domain) {
+        profiles.remove(domain);
+    }
+
+    /**
+     * 获取主机使用的配置档
+     *
+     * @param host 主机名
+     * @return 配置档(未指定时为默认配置档)
+     */
+    public static HttpClientProfile resolveProfile(String host) {
+        HttpClientProfile profile = host != null ? profiles.resolve(host) : null;
+        return profile != null ? profile : HttpClientProfile.DEFAULT;
+    }
+
+    /**
+     * 设置DNS解析，已创建的客户端会被丢弃并按新的解析重新创建
+     * 旧的根客户端随之关闭：Dispatcher不再接受新的异步请求，正在执行的请求正常结束后线程空闲退出，空闲连接立即关闭
+     *
+     * @param newDns DNS解析
+     */
+    public static void setDns(Dns newDns) {
+        dns = newDns != null ? newDns : Dns.SYSTEM;
+        List<OkHttpClient> oldRoots = new ArrayList<>(rootClients.values());
+        rootClients.clear();
+        clients.invalidateAll();
+        for (OkHttpClient root : oldRoots) {
+            shutdownRootClient(root);
+        }
+    }
+
+    /**
+     * 关闭根客户端的Dispatcher线程池和连接池
+     *
+     * @param root 根客户端
+     */
+    private static void shutdownRootClient(OkHttpClient root) {
+        root.dispatcher().executorService().shutdown();
+        root.connectionPool().evictAll();
+        logger.debug("已关闭旧的根客户端连接池和Dispatcher");
+    }
+
+    /**
+     * 获取当前的DNS解析(默认为 CachingDns)
+     *
+     * @return
+     */
+    public static Dns getDns() {
+        return dns;
+    }
+
+    /**
+     * 异步预解析主机名(当前的DNS解析不是 CachingDns 时忽略)
+     *
+     * @param hostnames 主机名
+     */
+    public static void prefetchDns(Collection<String> hostnames) {
+        Dns current = dns;
+        if (current instanceof CachingDns) {
+            ((CachingDns) current).prefetch(hostnames);
+        }
+    }
+
+    /**
+     * 获取共享的cookie容器(withCookies的客户端使用)
+     *
+     * @return
+     */
+    public static PersistentCookieJar getCookieJar() {
+        return cookieJar;
+    }
+
+    /**
+     * 清空缓存的客户端
+     */
+    public static void invalidateAll() {
+        clients.invalidateAll();
+    }
+
+    /**
+     * 根据配置派生客户端
+     *
+     * @param key 客户端配置
+     * @return
+     */
+    private static OkHttpClient createClient(HttpClientKey key) {
+        OkHttpClient.Builder builder = rootClients.computeIfAbsent(key.getProfile(), HttpClientRegistry::createRootClient).newBuilder();
+        if (key.getConnectTimeout() > 0) {
+            builder.connectTimeout(key.getConnectTimeout(), TimeUnit.MILLISECONDS);
+        }
+        if (key.getReadTimeout() > 0) {
+            builder.readTimeout(key.getReadTimeout(), TimeUnit.MILLISECONDS);
+        }
+        if (key.getWriteTimeout() > 0) {
+            builder.writeTimeout(key.getWriteTimeout(), TimeUnit.MILLISECONDS);
+        }
+        HttpProxyConfig proxyConfig = key.getProxyConfig();
+        if (proxyConfig != null) {
+            builder.proxy(proxyConfig.getProxy());
+            if (proxyConfig.isNeedAuth()) {
+                builder.proxyAuthenticator(proxyConfig.getAuthenticator());
+            }
+        }
+        if (key.isWithCookies()) {
+            builder.cookieJar(cookieJar);
+        }
+        logger.debug("创建OkHttpClient: {}", key);
+        return builder.build();
+    }
+
+    /**
+     * 创建配置档的根客户端
+     *
+     * @param profile 配置档
+     * @return
+     */
+    private static OkHttpClient createRootClient(HttpClientProfile profile) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(profile.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(profile.getMaxRequestsPerHost());
+        logger.debug("创建配置档 {} 的连接池", profile);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(profile.getMaxIdleConnections(), profile.getKeepAliveMillis(), TimeUnit.MILLISECONDS))
+                .protocols(profile.protocols())
+                .dns(dns)
+                .eventListenerFactory(HttpMetrics.FACTORY)
+                .connectionSpecs(CONNECTION_SPECS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    /**
+     * 是否为某个配置档共享的连接池
+     *
+     * @param pool 连接池
+     * @return
+     */
+    private static boolean isSharedPool(ConnectionPool pool) {
+        for (OkHttpClient root : rootClients.values()) {
+            if (root.connectionPool() == pool) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
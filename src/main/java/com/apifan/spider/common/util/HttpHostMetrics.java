@@ -0,0 +1,144 @@
+package com.apifan.spider.common.util;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 单个主机的HTTP请求统计
+ * 各阶段耗时：dns(域名解析)、connect(建立连接，含TLS)、tls(TLS握手)、ttfb(请求发出到收到响应头)、body(读取响应体)、total(整个调用)
+ *
+ * @author yin
+ */
+public class HttpHostMetrics implements Serializable {
+    private static final long serialVersionUID = -1802316462946873020L;
+
+    /**
+     * 主机名
+     */
+    private String host;
+
+    /**
+     * 完成的调用数
+     */
+    private long calls;
+
+    /**
+     * 失败的调用数
+     */
+    private long failures;
+
+    /**
+     * 发送的请求体字节数
+     */
+    private long bytesSent;
+
+    /**
+     * 接收的响应体字节数
+     */
+    private long bytesReceived;
+
+    /**
+     * 获取连接的次数
+     */
+    private long connectionsAcquired;
+
+    /**
+     * 新建连接的次数
+     */
+    private long connectionsCreated;
+
+    /**
+     * 连接复用率
+     */
+    private double connectionReuseRatio;
+
+    /**
+     * 状态码 -> 次数
+     */
+    private Map<Integer, Long> statusCodes;
+
+    /**
+     * 阶段 -> 耗时统计
+     */
+    private Map<String, LatencyStats> phases;
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public void setCalls(long calls) {
+        this.calls = calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public void setFailures(long failures) {
+        this.failures = failures;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public void setBytesSent(long bytesSent) {
+        this.bytesSent = bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public void setBytesReceived(long bytesReceived) {
+        this.bytesReceived = bytesReceived;
+    }
+
+    public long getConnectionsAcquired() {
+        return connectionsAcquired;
+    }
+
+    public void setConnectionsAcquired(long connectionsAcquired) {
+        this.connectionsAcquired = connectionsAcquired;
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    public void setConnectionsCreated(long connectionsCreated) {
+        this.connectionsCreated = connectionsCreated;
+    }
+
+    public double getConnectionReuseRatio() {
+        return connectionReuseRatio;
+    }
+
+    public void setConnectionReuseRatio(double connectionReuseRatio) {
+        this.connectionReuseRatio = connectionReuseRatio;
+    }
+
+    public Map<Integer, Long> getStatusCodes() {
+        return statusCodes;
+    }
+
+    public void setStatusCodes(Map<Integer, Long> statusCodes) {
+        this.statusCodes = statusCodes;
+    }
+
+    public Map<String, LatencyStats> getPhases() {
+        return phases;
+    }
+
+    public void setPhases(Map<String, LatencyStats> phases) {
+        this.phases = phases;
+    }
+}
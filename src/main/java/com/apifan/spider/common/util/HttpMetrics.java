@@ -0,0 +1,324 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP请求指标
+ * 通过OkHttp的EventListener按主机统计各阶段耗时(dns/connect/tls/ttfb/body/total)、收发字节数、连接复用率和状态码分布；
+ * 所有由 HttpClientRegistry 创建的客户端都会自动接入。可定期输出到日志，或以JSON格式写入文件
+ *
+ * @author yin
+ */
+public final class HttpMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(HttpMetrics.class);
+
+    public static final String PHASE_DNS = "dns";
+    public static final String PHASE_CONNECT = "connect";
+    public static final String PHASE_TLS = "tls";
+    public static final String PHASE_TTFB = "ttfb";
+    public static final String PHASE_BODY = "body";
+    public static final String PHASE_TOTAL = "total";
+
+    private static final String[] PHASES = {PHASE_DNS, PHASE_CONNECT, PHASE_TLS, PHASE_TTFB, PHASE_BODY, PHASE_TOTAL};
+
+    /**
+     * 主机 -> 统计数据
+     */
+    private static final ConcurrentMap<String, HostRecorder> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * 是否启用统计
+     */
+    private static volatile boolean enabled = true;
+
+    /**
+     * 定期输出线程(守护线程)
+     */
+    private static final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "http-metrics-reporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static ScheduledFuture<?> reportTask;
+
+    /**
+     * 接入OkHttpClient的监听器工厂
+     */
+    static final EventListener.Factory FACTORY = call -> enabled ? new CallRecorder() : EventListener.NONE;
+
+    private HttpMetrics() {
+    }
+
+    /**
+     * 启用或停用统计(只影响之后发起的请求)
+     *
+     * @param enabled 是否启用
+     */
+    public static void setEnabled(boolean enabled) {
+        HttpMetrics.enabled = enabled;
+    }
+
+    /**
+     * 是否启用统计
+     *
+     * @return
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取各主机的统计数据
+     *
+     * @return 主机 -> 统计数据(按主机名排序)
+     */
+    public static Map<String, HttpHostMetrics> getSnapshot() {
+        Map<String, HttpHostMetrics> snapshot = new TreeMap<>();
+        hosts.forEach((host, recorder) -> snapshot.put(host, recorder.snapshot(host)));
+        return snapshot;
+    }
+
+    /**
+     * 获取某个主机的统计数据
+     *
+     * @param host 主机名
+     * @return 没有记录时返回null
+     */
+    public static HttpHostMetrics getSnapshot(String host) {
+        HostRecorder recorder = hosts.get(host);
+        return recorder != null ? recorder.snapshot(host) : null;
+    }
+
+    /**
+     * 清空统计数据
+     */
+    public static void reset() {
+        hosts.clear();
+    }
+
+    /**
+     * 开始定期输出统计数据(之前的输出任务会被取消)
+     *
+     * @param period   输出周期(毫秒)
+     * @param jsonFile 写入JSON的文件，为null时只输出日志
+     */
+    public static synchronized void startReporting(long period, File jsonFile) {
+        if (period <= 0L) {
+            throw new IllegalArgumentException("输出周期必须大于0");
+        }
+        stopReporting();
+        reportTask = reporter.scheduleAtFixedRate(() -> report(jsonFile), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止定期输出
+     */
+    public static synchronized void stopReporting() {
+        if (reportTask != null) {
+            reportTask.cancel(false);
+            reportTask = null;
+        }
+    }
+
+    /**
+     * 输出一次统计数据
+     *
+     * @param jsonFile 写入JSON的文件，为null时只输出日志
+     */
+    public static void report(File jsonFile) {
+        Map<String, HttpHostMetrics> snapshot = getSnapshot();
+        for (HttpHostMetrics metrics : snapshot.values()) {
+            logger.info("{}: 调用={} 失败={} 发送={}B 接收={}B 连接复用率={} 状态码={} ttfb[{}] total[{}]",
+                    metrics.getHost(), metrics.getCalls(), metrics.getFailures(), metrics.getBytesSent(),
+                    metrics.getBytesReceived(), String.format("%.2f", metrics.getConnectionReuseRatio()),
+                    metrics.getStatusCodes(), metrics.getPhases().get(PHASE_TTFB), metrics.getPhases().get(PHASE_TOTAL));
+        }
+        if (jsonFile == null) {
+            return;
+        }
+        try {
+            FileUtils.writeAtomically(jsonFile, JsonUtils.toJson(snapshot, true).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.error("写入HTTP统计数据失败: {}", jsonFile, e);
+        }
+    }
+
+    private static HostRecorder recorderOf(Call call) {
+        return hosts.computeIfAbsent(call.request().url().host(), k -> new HostRecorder());
+    }
+
+    /**
+     * 单个主机的累计数据
+     */
+    private static final class HostRecorder {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder connectionsAcquired = new LongAdder();
+        private final LongAdder connectionsCreated = new LongAdder();
+        private final ConcurrentMap<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+        private final Map<String, LatencyHistogram> phases = new TreeMap<>();
+
+        HostRecorder() {
+            for (String phase : PHASES) {
+                phases.put(phase, new LatencyHistogram());
+            }
+        }
+
+        void record(String phase, long startNanos) {
+            if (startNanos > 0L) {
+                phases.get(phase).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            }
+        }
+
+        HttpHostMetrics snapshot(String host) {
+            HttpHostMetrics metrics = new HttpHostMetrics();
+            metrics.setHost(host);
+            metrics.setCalls(calls.sum());
+            metrics.setFailures(failures.sum());
+            metrics.setBytesSent(bytesSent.sum());
+            metrics.setBytesReceived(bytesReceived.sum());
+            long acquired = connectionsAcquired.sum();
+            long created = connectionsCreated.sum();
+            metrics.setConnectionsAcquired(acquired);
+            metrics.setConnectionsCreated(created);
+            metrics.setConnectionReuseRatio(acquired > 0L ? Math.max(0L, acquired - created) / (double) acquired : 0D);
+            Map<Integer, Long> codes = new TreeMap<>();
+            statusCodes.forEach((code, count) -> codes.put(code, count.sum()));
+            metrics.setStatusCodes(codes);
+            Map<String, LatencyStats> stats = new TreeMap<>();
+            phases.forEach((phase, histogram) -> stats.put(phase, histogram.snapshot()));
+            metrics.setPhases(stats);
+            return metrics;
+        }
+    }
+
+    /**
+     * 单次调用的监听器，记录各阶段的开始时间
+     * 同一调用的事件是顺序发生的，不需要同步
+     */
+    private static final class CallRecorder extends EventListener {
+        private HostRecorder recorder;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestSent;
+        private long responseBodyStart;
+
+        @Override
+        public void callStart(Call call) {
+            recorder = recorderOf(call);
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            recorder.record(PHASE_DNS, dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            recorder.record(PHASE_TLS, secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            recorder.record(PHASE_CONNECT, connectStart);
+            recorder.connectionsCreated.increment();
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+            recorder.record(PHASE_CONNECT, connectStart);
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            recorder.connectionsAcquired.increment();
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, Request request) {
+            requestSent = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            requestSent = System.nanoTime();
+            recorder.bytesSent.add(byteCount);
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            recorder.record(PHASE_TTFB, requestSent);
+            recorder.statusCodes.computeIfAbsent(response.code(), k -> new LongAdder()).increment();
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            responseBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            recorder.record(PHASE_BODY, responseBodyStart);
+            recorder.bytesReceived.add(byteCount);
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            recorder.record(PHASE_TOTAL, callStart);
+            recorder.calls.increment();
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            recorder.record(PHASE_TOTAL, callStart);
+            recorder.calls.increment();
+            recorder.failures.increment();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.util.Objects;
 
 /**
  * HTTP代理配置
@@ -143,4 +144,35 @@ public class HttpProxyConfig {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HttpProxyConfig that = (HttpProxyConfig) o;
+        return port == that.port
+                && needAuth == that.needAuth
+                && Objects.equals(host, that.host)
+                && Objects.equals(username, that.username)
+                && Objects.equals(password, that.password);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(host, port, needAuth, username, password);
+    }
+
+    /**
+     * 不输出密码，避免在日志中泄露
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return needAuth ? username + "@" + host + ":" + port : host + ":" + port;
+    }
 }
@@ -1,15 +1,24 @@
 package com.apifan.spider.common.util;
 
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.Map;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * HTTP请求响应
+ * 响应体以原始字节保存，首次调用 getMessage() 时才按响应声明的字符集解码(依次取自BOM、Content-Type、meta标签，默认UTF-8)
  *
  * @author yin
  */
 public class HttpResponse implements Serializable {
-    private static final long serialVersionUID = -5475690197719799772L;
+    private static final long serialVersionUID = 3604120955273117541L;
 
     /**
      * 状态码
@@ -17,14 +26,34 @@ public class HttpResponse implements Serializable {
     private int code;
 
     /**
-     * 响应文本
+     * 请求的URL
+     */
+    private String url;
+
+    /**
+     * 响应体
      */
-    private String message;
+    private byte[] body;
 
     /**
      * 响应headers
      */
-    private Map<String, String> headers;
+    private transient Headers headers;
+
+    /**
+     * 响应声明的字符集(首次使用时识别)
+     */
+    private transient volatile Charset charset;
+
+    /**
+     * 是否已识别过字符集
+     */
+    private transient volatile boolean charsetSniffed;
+
+    /**
+     * 响应文本(首次使用时解码)
+     */
+    private transient volatile String message;
 
     public int getCode() {
         return code;
@@ -34,19 +63,153 @@ public class HttpResponse implements Serializable {
         this.code = code;
     }
 
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * 获取原始响应体
+     *
+     * @return 没有响应体时为null
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    public void setBody(byte[] body) {
+        this.body = body;
+        this.charset = null;
+        this.charsetSniffed = false;
+        this.message = null;
+    }
+
+    /**
+     * 获取响应文本
+     *
+     * @return 没有响应体时为null
+     */
     public String getMessage() {
-        return message;
+        String result = message;
+        if (result == null && body != null) {
+            result = decode(getCharset());
+            message = result;
+        }
+        return result;
     }
 
+    /**
+     * 获取响应文本
+     * 响应没有声明字符集时使用指定的字符集解码
+     *
+     * @param defaultCharset 默认字符集
+     * @return 没有响应体时为null
+     */
+    public String getMessage(Charset defaultCharset) {
+        if (body == null || defaultCharset == null || getDeclaredCharset() != null) {
+            return getMessage();
+        }
+        return decode(defaultCharset);
+    }
+
+    /**
+     * 设置响应文本(按UTF-8保存为响应体)
+     *
+     * @param message 响应文本
+     */
     public void setMessage(String message) {
+        this.body = message != null ? message.getBytes(StandardCharsets.UTF_8) : null;
+        this.charset = StandardCharsets.UTF_8;
+        this.charsetSniffed = true;
         this.message = message;
     }
 
-    public Map<String, String> getHeaders() {
+    /**
+     * 获取响应体的字符集
+     *
+     * @return 响应没有声明字符集时为UTF-8
+     */
+    public Charset getCharset() {
+        Charset declared = getDeclaredCharset();
+        return declared != null ? declared : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * 获取响应声明的字符集(BOM、Content-Type或meta标签)
+     *
+     * @return 没有声明时为null
+     */
+    public Charset getDeclaredCharset() {
+        if (!charsetSniffed) {
+            String contentType = getHeader("Content-Type");
+            charset = CharsetSniffer.detect(body, contentType != null ? MediaType.parse(contentType) : null);
+            charsetSniffed = true;
+        }
+        return charset;
+    }
+
+    /**
+     * 获取响应headers
+     *
+     * @return
+     */
+    public Headers getHeaders() {
         return headers;
     }
 
-    public void setHeaders(Map<String, String> headers) {
+    public void setHeaders(Headers headers) {
         this.headers = headers;
     }
+
+    /**
+     * 获取某个header的值(多值时取最后一个)
+     *
+     * @param name header名称
+     * @return
+     */
+    public String getHeader(String name) {
+        return headers != null ? headers.get(name) : null;
+    }
+
+    /**
+     * 复制一份响应(响应体也复制)，用于把同一个响应交给多个调用方
+     *
+     * @return
+     */
+    HttpResponse copy() {
+        HttpResponse copy = new HttpResponse();
+        copy.code = code;
+        copy.url = url;
+        copy.body = body != null ? body.clone() : null;
+        copy.headers = headers;
+        copy.charset = charset;
+        copy.charsetSniffed = charsetSniffed;
+        copy.message = message;
+        return copy;
+    }
+
+    private String decode(Charset charset) {
+        int offset = CharsetSniffer.bomLength(body);
+        return new String(body, offset, body.length - offset, charset);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(headers != null ? headers.toString() : null);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        String lines = (String) in.readObject();
+        if (lines != null) {
+            Headers.Builder builder = new Headers.Builder();
+            for (String line : StringUtils.split(lines, '\n')) {
+                builder.add(line);
+            }
+            headers = builder.build();
+        }
+    }
 }
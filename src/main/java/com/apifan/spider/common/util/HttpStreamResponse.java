@@ -0,0 +1,168 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * 流式HTTP响应
+ * 响应体不会被整体读入内存，可直接交给Jsoup或Jackson解析；使用完毕后必须关闭(推荐try-with-resources)
+ *
+ * @author yin
+ */
+public class HttpStreamResponse implements Closeable {
+
+    /**
+     * 原始响应
+     */
+    private final Response response;
+
+    /**
+     * 响应体
+     */
+    private final ResponseBody body;
+
+    HttpStreamResponse(Response response) {
+        this.response = response;
+        this.body = response.body();
+    }
+
+    /**
+     * 获取状态码
+     *
+     * @return
+     */
+    public int getCode() {
+        return response.code();
+    }
+
+    /**
+     * 是否成功(状态码为2xx)
+     *
+     * @return
+     */
+    public boolean isSuccessful() {
+        return response.isSuccessful();
+    }
+
+    /**
+     * 获取响应headers
+     *
+     * @return
+     */
+    public Headers getHeaders() {
+        return response.headers();
+    }
+
+    /**
+     * 获取某个header的值(多值时取最后一个)
+     *
+     * @param name header名称
+     * @return
+     */
+    public String getHeader(String name) {
+        return response.header(name);
+    }
+
+    /**
+     * 获取Content-Type中声明的字符集
+     *
+     * @return 字符集，未声明时为null
+     */
+    public Charset getCharset() {
+        MediaType contentType = body != null ? body.contentType() : null;
+        return contentType != null ? contentType.charset() : null;
+    }
+
+    /**
+     * 获取响应体长度
+     *
+     * @return 长度，未知时为-1
+     */
+    public long getContentLength() {
+        return body != null ? body.contentLength() : -1L;
+    }
+
+    /**
+     * 以字节流读取响应体
+     *
+     * @return
+     */
+    public InputStream byteStream() {
+        return requireBody().byteStream();
+    }
+
+    /**
+     * 以Okio的BufferedSource读取响应体
+     *
+     * @return
+     */
+    public BufferedSource source() {
+        return requireBody().source();
+    }
+
+    /**
+     * 以字符流读取响应体
+     * 字符集依次取自BOM、Content-Type，默认为UTF-8
+     *
+     * @return
+     */
+    public Reader charStream() {
+        return requireBody().charStream();
+    }
+
+    /**
+     * 直接从响应流解析HTML文档
+     * Content-Type未声明字符集时由Jsoup根据meta标签识别
+     *
+     * @return 文档对象
+     * @throws IOException
+     */
+    public Document parseDocument() throws IOException {
+        Charset charset = getCharset();
+        return Jsoup.parse(byteStream(), charset != null ? charset.name() : null, response.request().url().toString());
+    }
+
+    /**
+     * 直接从响应流解析JSON为对象
+     *
+     * @param type 类型
+     * @param <T>  泛型类型
+     * @return 对象
+     */
+    public <T> T readJson(Class<T> type) {
+        return JsonUtils.readAsObject(charStream(), type);
+    }
+
+    /**
+     * 直接从响应流解析JSON为map
+     *
+     * @return map 实例
+     */
+    public Map<String, Object> readJsonAsMap() {
+        return JsonUtils.readAsMap(charStream());
+    }
+
+    @Override
+    public void close() {
+        response.close();
+    }
+
+    private ResponseBody requireBody() {
+        if (body == null) {
+            throw new IllegalStateException("响应没有响应体");
+        }
+        return body;
+    }
+}
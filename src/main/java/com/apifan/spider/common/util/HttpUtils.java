@@ -1,16 +1,26 @@
 package com.apifan.spider.common.util;
 
-import com.google.common.collect.Maps;
 import okhttp3.*;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.net.SocketTimeoutException;
+import java.nio.channels.FileChannel;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * HTTP工具类
@@ -23,20 +33,48 @@ public class HttpUtils {
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
     private static final MediaType XML = MediaType.parse("application/xml; charset=utf-8");
 
-    private static final String KEY_USER_AGENT = "User-Agent";
-
     /**
-     * 默认的PC UserAgent
+     * 下载请求的模板(不压缩，便于按字节续传和分段)
      */
-    private static final String USER_AGENT_PC = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/75.0.3770.100 Safari/537.36";
+    private static final RequestTemplate DOWNLOAD_TEMPLATE = RequestTemplate.DEFAULT.with("Accept-Encoding", "identity");
 
     private static final int DEFAULT_READ_TIMEOUT = 10000;
     private static final int DEFAULT_CONNECT_TIMEOUT = 10000;
     private static final int DEFAULT_WRITE_TIMEOUT = 10000;
 
-    private static Map<String, OkHttpClient> okHttpClientMap = new ConcurrentHashMap<>();
+    /**
+     * 下载中断后的最大尝试次数(含首次)
+     */
+    private static final int MAX_RESUME_ATTEMPTS = 3;
+
+    /**
+     * 可共享的响应体字节数上限，超过时合并等待的调用者各自重新请求
+     */
+    private static final int MAX_SHARED_BODY_LENGTH = 1024 * 1024;
+
+    /**
+     * 合并相同的并发GET请求(按客户端、方法、URL和请求头)，每个调用方得到独立的响应副本
+     */
+    private static final SingleFlight<List<Object>, HttpResponse> getFlights = new SingleFlight<>(HttpResponse::copy);
+
+    /**
+     * 合并同一文件的并发下载
+     */
+    private static final SingleFlight<File, Boolean> downloadFlights = new SingleFlight<>();
+
+    /**
+     * 合并同一缓存中同一URL的并发获取(按缓存、URL、客户端和请求头)
+     */
+    private static final SingleFlight<List<Object>, File> cachedFlights = new SingleFlight<>();
 
-    private static Map<String, List<Cookie>> cookiesMap = new ConcurrentHashMap<>();
+    /**
+     * 延迟任务调度器(限流等待等)，只做调度，不执行请求
+     */
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "http-utils-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * 发起GET请求并获得响应
@@ -58,7 +96,7 @@ public class HttpUtils {
      * @throws IOException
      */
     public static HttpResponse get(String url) throws IOException {
-        return get(url, new HashMap<>());
+        return get(url, (Map<String, String>) null);
     }
 
     /**
@@ -113,11 +151,313 @@ public class HttpUtils {
      * @throws IOException
      */
     public static HttpResponse get(String url, Map<String, String> headersMap, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies) throws IOException {
-        OkHttpClient client = getOkHttpClient(connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies);
-        Request.Builder builder = prepareRequestBuilder(url, headersMap);
-        Request request = builder.build();
-        Response response = client.newCall(request).execute();
-        return getHttpResponse(response);
+        return get(url, RequestTemplate.DEFAULT, headersMap, connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies);
+    }
+
+    /**
+     * 按请求模板发起GET请求并获得响应
+     *
+     * @param url         URL
+     * @param template    请求模板
+     * @param proxyConfig 代理配置
+     * @return
+     * @throws IOException
+     */
+    public static HttpResponse get(String url, RequestTemplate template, HttpProxyConfig proxyConfig) throws IOException {
+        return get(url, template, null, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, proxyConfig, false);
+    }
+
+    /**
+     * 按请求模板发起GET请求并获得响应(使用cookies)
+     *
+     * @param url         URL
+     * @param template    请求模板
+     * @param proxyConfig 代理配置
+     * @return
+     * @throws IOException
+     */
+    public static HttpResponse getWithCookies(String url, RequestTemplate template, HttpProxyConfig proxyConfig) throws IOException {
+        return get(url, template, null, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, proxyConfig, true);
+    }
+
+    /**
+     * 按请求模板发起GET请求并获得响应
+     *
+     * @param url            URL
+     * @param template       请求模板
+     * @param headersMap     本次请求额外的header信息(覆盖模板中的同名header)
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param proxyConfig    代理
+     * @param withCookies    是否使用cookies
+     * @return
+     * @throws IOException
+     */
+    public static HttpResponse get(String url, RequestTemplate template, Map<String, String> headersMap, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies) throws IOException {
+        HttpUrl httpUrl = parseURL(url);
+        OkHttpClient client = getOkHttpClient(httpUrl, connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies);
+        Request request = prepareRequestBuilder(httpUrl, template, headersMap).build();
+        return getFlights.execute(flightKey(client, request), () -> getHttpResponse(execute(client, request)), HttpUtils::isShareable);
+    }
+
+    /**
+     * 发起GET请求并获得流式响应
+     *
+     * @param url         URL
+     * @param headersMap  自定义header信息
+     * @param proxyConfig 代理配置
+     * @return 流式响应(调用方负责关闭)
+     * @throws IOException
+     */
+    public static HttpStreamResponse getStream(String url, Map<String, String> headersMap, HttpProxyConfig proxyConfig) throws IOException {
+        return getStream(url, headersMap, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, proxyConfig, false);
+    }
+
+    /**
+     * 发起GET请求并获得流式响应
+     * 响应体不会被读入内存，适合直接交给Jsoup或Jackson解析的大页面
+     *
+     * @param url            URL
+     * @param headersMap     自定义header信息
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param proxyConfig    代理
+     * @param withCookies    是否使用cookies
+     * @return 流式响应(调用方负责关闭)
+     * @throws IOException
+     */
+    public static HttpStreamResponse getStream(String url, Map<String, String> headersMap, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies) throws IOException {
+        HttpUrl httpUrl = parseURL(url);
+        OkHttpClient client = getOkHttpClient(httpUrl, connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies);
+        Request request = prepareRequestBuilder(httpUrl, headersMap).build();
+        return new HttpStreamResponse(execute(client, request));
+    }
+
+    /**
+     * 通过HTTP缓存获取URL的内容
+     *
+     * @param url         URL
+     * @param headersMap  自定义header信息
+     * @param proxyConfig 代理配置
+     * @param cache       HTTP缓存
+     * @return 缓存的内容文件，服务端返回错误且没有缓存时返回null
+     * @throws IOException 请求出现异常且没有缓存时抛出
+     */
+    public static File getCached(String url, Map<String, String> headersMap, HttpProxyConfig proxyConfig, HttpCache cache) throws IOException {
+        return getCached(url, headersMap, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, proxyConfig, false, cache);
+    }
+
+    /**
+     * 通过HTTP缓存获取URL的内容
+     * TTL内直接返回缓存；过期后发送条件请求，304时沿用缓存；请求失败时退回使用过期的缓存。
+     * 返回的文件被缓存淘汰后仍至少保留 HttpCache.DELETE_GRACE_MILLIS，应尽快读取
+     *
+     * @param url            URL
+     * @param headersMap     自定义header信息
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param proxyConfig    代理配置
+     * @param withCookies    是否保存及发送cookies
+     * @param cache          HTTP缓存
+     * @return 缓存的内容文件，服务端返回错误且没有缓存时返回null
+     * @throws IOException 请求出现异常且没有缓存时抛出
+     */
+    public static File getCached(String url, Map<String, String> headersMap, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies, HttpCache cache) throws IOException {
+        return getCached(url, RequestTemplate.DEFAULT, headersMap, connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies, cache);
+    }
+
+    /**
+     * 按请求模板通过HTTP缓存获取URL的内容
+     *
+     * @param url            URL
+     * @param template       请求模板
+     * @param headersMap     本次请求额外的header信息(覆盖模板中的同名header)
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param proxyConfig    代理配置
+     * @param withCookies    是否保存及发送cookies
+     * @param cache          HTTP缓存
+     * @return 缓存的内容文件，服务端返回错误且没有缓存时返回null
+     * @throws IOException 请求出现异常且没有缓存时抛出
+     */
+    public static File getCached(String url, RequestTemplate template, Map<String, String> headersMap, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies, HttpCache cache) throws IOException {
+        //同一缓存中同一URL、相同请求头的并发获取合并为一次
+        HttpUrl httpUrl = parseURL(url);
+        OkHttpClient client = getOkHttpClient(httpUrl, connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies);
+        Request request = prepareRequestBuilder(httpUrl, template, headersMap).build();
+        RequestTemplate requestTemplate = template != null ? template : RequestTemplate.DEFAULT;
+        Headers headers = requestTemplate.with(headersMap).getHeaders();
+        List<Object> key = Arrays.asList(cache, url, client, headers);
+        //缓存条目按与合并相同的维度区分，带cookies、经过不同代理或请求头不同的请求不会读到彼此的内容
+        String cacheKey = HttpCache.keyOf(url, cacheVariant(proxyConfig, withCookies, headers));
+        return cachedFlights.execute(key, () -> getCached(url, cacheKey, request, client, cache), result -> true);
+    }
+
+    /**
+     * 缓存条目的请求变体
+     *
+     * @param proxyConfig 代理配置
+     * @param withCookies 是否保存及发送cookies
+     * @param headers     请求头
+     * @return
+     */
+    private static String cacheVariant(HttpProxyConfig proxyConfig, boolean withCookies, Headers headers) {
+        StringBuilder variant = new StringBuilder();
+        if (proxyConfig != null) {
+            variant.append("proxy: ").append(proxyConfig.getHost()).append(':').append(proxyConfig.getPort())
+                    .append(' ').append(StringUtils.defaultString(proxyConfig.getUsername())).append('\n');
+        }
+        if (withCookies) {
+            variant.append("cookies\n");
+        }
+        //names() 已按名称(忽略大小写)排序
+        for (String name : headers.names()) {
+            variant.append(name.toLowerCase(Locale.ROOT)).append(": ").append(String.join(", ", headers.values(name))).append('\n');
+        }
+        return variant.toString();
+    }
+
+    /**
+     * 通过HTTP缓存获取URL的内容
+     *
+     * @param url        URL
+     * @param cacheKey 缓存条目的key
+     * @param request  请求
+     * @param client   OkHttpClient
+     * @param cache    HTTP缓存
+     * @return 缓存的内容文件，服务端返回错误且没有缓存时返回null
+     * @throws IOException 请求出现异常且没有缓存时抛出
+     */
+    private static File getCached(String url, String cacheKey, Request request, OkHttpClient client, HttpCache cache) throws IOException {
+        //cookies由客户端在发送时添加，按发送前的状态参与 Vary 比较
+        String cookies = cookieHeader(client, request.url());
+        Function<String, String> requestHeader = name -> "cookie".equals(name) ? cookies : request.header(name);
+        HttpCache.Entry entry = cache.get(cacheKey, requestHeader);
+        if (entry != null && cache.isFresh(entry)) {
+            return cache.blobOf(entry);
+        }
+        Request.Builder builder = request.newBuilder();
+        if (entry != null) {
+            if (entry.getEtag() != null) {
+                builder.header("If-None-Match", entry.getEtag());
+            }
+            if (entry.getLastModified() != null) {
+                builder.header("If-Modified-Since", entry.getLastModified());
+            }
+        }
+        try (Response response = execute(client, builder.build())) {
+            if (response.code() == 304 && entry != null) {
+                return cache.revalidate(entry, response);
+            }
+            if (response.isSuccessful()) {
+                return cache.store(cacheKey, url, response, requestHeader);
+            }
+            logger.error("从 {} 获取内容失败: 状态码 {}", url, response.code());
+        } catch (IOException e) {
+            if (entry == null) {
+                throw e;
+            }
+            logger.warn("从 {} 获取内容时出现异常", url, e);
+        }
+        if (entry != null) {
+            logger.warn("使用 {} 已过期的缓存", url);
+            return cache.blobOf(entry);
+        }
+        return null;
+    }
+
+    /**
+     * 客户端会为请求添加的Cookie请求头
+     *
+     * @param client OkHttpClient
+     * @param url    URL
+     * @return 没有cookies时为空字符串
+     */
+    private static String cookieHeader(OkHttpClient client, HttpUrl url) {
+        List<Cookie> cookies = client.cookieJar().loadForRequest(url);
+        StringBuilder header = new StringBuilder();
+        for (Cookie cookie : cookies) {
+            if (header.length() > 0) {
+                header.append("; ");
+            }
+            header.append(cookie.name()).append('=').append(cookie.value());
+        }
+        return header.toString();
+    }
+
+    /**
+     * 异步发起GET请求
+     *
+     * @param url URL
+     * @return 响应的Future
+     */
+    public static CompletableFuture<HttpResponse> getAsync(String url) {
+        return getAsync(url, (Map<String, String>) null, null);
+    }
+
+    /**
+     * 异步发起GET请求
+     *
+     * @param url         URL
+     * @param headersMap  自定义header信息
+     * @param proxyConfig 代理配置
+     * @return 响应的Future
+     */
+    public static CompletableFuture<HttpResponse> getAsync(String url, Map<String, String> headersMap, HttpProxyConfig proxyConfig) {
+        return getAsync(url, headersMap, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, proxyConfig, false);
+    }
+
+    /**
+     * 异步发起GET请求
+     * 请求由OkHttp的Dispatcher调度执行，调用线程不会被阻塞
+     *
+     * @param url            URL
+     * @param headersMap     自定义header信息
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param proxyConfig    代理
+     * @param withCookies    是否使用cookies
+     * @return 响应的Future
+     */
+    public static CompletableFuture<HttpResponse> getAsync(String url, Map<String, String> headersMap, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies) {
+        return getAsync(url, RequestTemplate.DEFAULT, headersMap, connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies);
+    }
+
+    /**
+     * 按请求模板异步发起GET请求
+     *
+     * @param url         URL
+     * @param template    请求模板
+     * @param proxyConfig 代理配置
+     * @return 响应的Future
+     */
+    public static CompletableFuture<HttpResponse> getAsync(String url, RequestTemplate template, HttpProxyConfig proxyConfig) {
+        return getAsync(url, template, null, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, proxyConfig, false);
+    }
+
+    /**
+     * 按请求模板异步发起GET请求
+     *
+     * @param url            URL
+     * @param template       请求模板
+     * @param headersMap     本次请求额外的header信息(覆盖模板中的同名header)
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param proxyConfig    代理
+     * @param withCookies    是否使用cookies
+     * @return 响应的Future
+     */
+    public static CompletableFuture<HttpResponse> getAsync(String url, RequestTemplate template, Map<String, String> headersMap, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies) {
+        HttpUrl httpUrl = parseURL(url);
+        OkHttpClient client = getOkHttpClient(httpUrl, connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies);
+        Request request = prepareRequestBuilder(httpUrl, template, headersMap).build();
+        return getFlights.executeAsync(flightKey(client, request), () -> enqueue(client, request, HttpUtils::getHttpResponse), HttpUtils::isShareable);
     }
 
     /**
@@ -161,16 +501,20 @@ public class HttpUtils {
      * @throws IOException
      */
     public static HttpResponse postForm(String url, Map<String, String> headersMap, Map<String, String> paramsMap, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig) throws IOException {
-        FormBody.Builder formBodyBuilder = new FormBody.Builder();
-        if (paramsMap != null && !paramsMap.isEmpty()) {
-            for (Map.Entry<String, String> entry : paramsMap.entrySet()) {
-                if (StringUtils.isNotEmpty(entry.getKey()) && StringUtils.isNotEmpty(entry.getValue())) {
-                    formBodyBuilder.add(entry.getKey(), entry.getValue());
-                }
-            }
-        }
-        RequestBody body = formBodyBuilder.build();
-        return postBody(url, headersMap, body, connectTimeout, readTimeout, writeTimeout, proxyConfig);
+        return postBody(url, headersMap, buildFormBody(paramsMap), connectTimeout, readTimeout, writeTimeout, proxyConfig);
+    }
+
+    /**
+     * 异步向某个URL提交Form请求
+     *
+     * @param url         URL
+     * @param headersMap  自定义header信息
+     * @param paramsMap   请求参数
+     * @param proxyConfig 代理配置
+     * @return 响应的Future
+     */
+    public static CompletableFuture<HttpResponse> postFormAsync(String url, Map<String, String> headersMap, Map<String, String> paramsMap, HttpProxyConfig proxyConfig) {
+        return postBodyAsync(url, headersMap, buildFormBody(paramsMap), DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, proxyConfig);
     }
 
     /**
@@ -217,6 +561,19 @@ public class HttpUtils {
         return postBody(url, headersMap, RequestBody.create(JSON, json), connectTimeout, readTimeout, writeTimeout, proxyConfig);
     }
 
+    /**
+     * 异步向某个URL提交JSON字符串
+     *
+     * @param url         URL
+     * @param headersMap  自定义header信息
+     * @param json        JSON字符串
+     * @param proxyConfig 代理配置
+     * @return 响应的Future
+     */
+    public static CompletableFuture<HttpResponse> postJsonAsync(String url, Map<String, String> headersMap, String json, HttpProxyConfig proxyConfig) {
+        return postBodyAsync(url, headersMap, RequestBody.create(JSON, json), DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, proxyConfig);
+    }
+
     /**
      * 向某个URL提交XML字符串
      *
@@ -261,6 +618,19 @@ public class HttpUtils {
         return postBody(url, headersMap, RequestBody.create(XML, xml), connectTimeout, readTimeout, writeTimeout, proxyConfig);
     }
 
+    /**
+     * 异步向某个URL提交XML字符串
+     *
+     * @param url         URL
+     * @param headersMap  自定义header信息
+     * @param xml         XML字符串
+     * @param proxyConfig 代理配置
+     * @return 响应的Future
+     */
+    public static CompletableFuture<HttpResponse> postXmlAsync(String url, Map<String, String> headersMap, String xml, HttpProxyConfig proxyConfig) {
+        return postBodyAsync(url, headersMap, RequestBody.create(XML, xml), DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, proxyConfig);
+    }
+
     /**
      * 下载二进制文件
      *
@@ -309,51 +679,353 @@ public class HttpUtils {
      * @throws IOException
      */
     public static boolean download(String url, String destPath, int connectTimeout, int readTimeout, int writeTimeout, long minSize, HttpProxyConfig proxyConfig) throws IOException {
-        if (StringUtils.isEmpty(destPath)) {
-            throw new IllegalArgumentException("文件保存路径为空");
-        }
-        OkHttpClient client = getOkHttpClient(connectTimeout, readTimeout, writeTimeout, proxyConfig);
-        Map<String, String> headersMap = Maps.newHashMap();
-        headersMap.put("Accept-Encoding", "identity");
-        Request.Builder builder = prepareRequestBuilder(url, headersMap);
-        Request request = builder.build();
-
-        InputStream ins = null;
-        OutputStream os = null;
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                logger.error("从 {} 下载文件失败! 状态码: {}", url, response.code());
-                return false;
+        File target = checkDestPath(destPath);
+        HttpUrl httpUrl = parseURL(url);
+        OkHttpClient client = getOkHttpClient(httpUrl, connectTimeout, readTimeout, writeTimeout, proxyConfig);
+        //同一文件的并发下载合并为一次
+        return downloadFlights.execute(target.getAbsoluteFile(), () -> download(client, httpUrl, target, minSize), result -> true);
+    }
+
+    /**
+     * 下载文件(中断后自动续传)
+     *
+     * @param client  OkHttpClient
+     * @param url     URL
+     * @param target  目标文件
+     * @param minSize 文件大小的下限阈值(单位: 字节，-1表示无限制)
+     * @return 是否下载成功
+     */
+    private static boolean download(OkHttpClient client, HttpUrl url, File target, long minSize) {
+        for (int attempt = 1; ; attempt++) {
+            long resumeFrom = FileDownloader.resumableLength(target, url.toString());
+            Request request = prepareDownloadRequest(url, target);
+            try (Response response = execute(client, request)) {
+                return saveResponse(response, url, target, minSize);
+            } catch (IOException ioe) {
+                if (canResume(url, target, resumeFrom, attempt)) {
+                    logger.warn("从 {} 下载文件中断，将从第 {} 字节处续传", url, FileDownloader.resumableLength(target, url.toString()), ioe);
+                    continue;
+                }
+                logDownloadFailure(url, ioe);
             }
-            ResponseBody body = response.body();
-            long contentLength = body != null ? body.contentLength() : 0L;
-            if (contentLength == 0L || (minSize > 0L && contentLength < minSize)) {
-                logger.warn("文件大小 {} 低于本次下载的下限 {} 字节, 跳过! url={}", contentLength, minSize, url);
-                return false;
+            return false;
+        }
+    }
+
+    /**
+     * 异步下载二进制文件
+     *
+     * @param url         URL
+     * @param destPath    文件保存路径
+     * @param proxyConfig 代理配置
+     * @return 是否下载成功的Future
+     */
+    public static CompletableFuture<Boolean> downloadAsync(String url, String destPath, HttpProxyConfig proxyConfig) {
+        return downloadAsync(url, destPath, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, -1, proxyConfig);
+    }
+
+    /**
+     * 异步下载二进制文件
+     * 请求由OkHttp的Dispatcher调度执行，写文件在Dispatcher的线程中完成；与同步版本一致，下载失败时结果为false
+     *
+     * @param url            URL
+     * @param destPath       文件保存路径
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param minSize        文件大小的下限阈值(单位: 字节，-1表示无限制)
+     * @param proxyConfig    代理配置
+     * @return 是否下载成功的Future
+     */
+    public static CompletableFuture<Boolean> downloadAsync(String url, String destPath, int connectTimeout, int readTimeout, int writeTimeout, long minSize, HttpProxyConfig proxyConfig) {
+        File target = checkDestPath(destPath);
+        HttpUrl httpUrl = parseURL(url);
+        OkHttpClient client = getOkHttpClient(httpUrl, connectTimeout, readTimeout, writeTimeout, proxyConfig);
+        //与同步下载、分段下载共用合并表，同一文件同时只有一个下载在写临时文件
+        return downloadFlights.executeAsync(target.getAbsoluteFile(), () -> downloadAsync(client, httpUrl, target, minSize, 1), result -> true);
+    }
+
+    /**
+     * 异步下载(中断后自动续传)
+     *
+     * @param client  OkHttpClient
+     * @param url     URL
+     * @param target  目标文件
+     * @param minSize 文件大小的下限阈值(单位: 字节，-1表示无限制)
+     * @param attempt 第几次尝试
+     * @return 是否下载成功的Future
+     */
+    private static CompletableFuture<Boolean> downloadAsync(OkHttpClient client, HttpUrl url, File target, long minSize, int attempt) {
+        long resumeFrom = FileDownloader.resumableLength(target, url.toString());
+        Request request = prepareDownloadRequest(url, target);
+        return enqueue(client, request, response -> saveResponse(response, url, target, minSize))
+                .handle((success, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(success);
+                    }
+                    if (canResume(url, target, resumeFrom, attempt)) {
+                        logger.warn("从 {} 下载文件中断，将从第 {} 字节处续传", url, FileDownloader.resumableLength(target, url.toString()), e);
+                        return downloadAsync(client, url, target, minSize, attempt + 1);
+                    }
+                    logDownloadFailure(url, e);
+                    return CompletableFuture.completedFuture(false);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * 记录下载失败的日志(熔断导致的快速失败不输出堆栈)
+     *
+     * @param url URL
+     * @param e   异常
+     */
+    private static void logDownloadFailure(HttpUrl url, Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        if (cause instanceof CircuitBreakerOpenException) {
+            logger.warn("从 {} 下载文件失败: {}", url, cause.getMessage());
+        } else {
+            logger.error("从 {} 下载文件时出现异常", url, e);
+        }
+    }
+
+    /**
+     * 分段并行下载二进制文件
+     *
+     * @param url         URL
+     * @param destPath    文件保存路径
+     * @param config      分段配置(为空时使用默认配置)
+     * @param proxyConfig 代理配置
+     * @return 是否下载成功
+     */
+    public static boolean downloadSegmented(String url, String destPath, SegmentedDownloadConfig config, HttpProxyConfig proxyConfig) {
+        return downloadSegmented(url, destPath, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_WRITE_TIMEOUT, config, proxyConfig);
+    }
+
+    /**
+     * 分段并行下载二进制文件
+     * 服务端支持Range且文件足够大时，按字节范围拆分为多个分段并发下载，按位置写入预分配的临时文件；
+     * 否则退化为普通下载。分段数不超过配置的上限以及Dispatcher的单主机并发上限。
+     * 与 download 共用同一文件的合并表，同一目标文件的并发下载只执行一次
+     *
+     * @param url            URL
+     * @param destPath       文件保存路径
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param config         分段配置(为空时使用默认配置)
+     * @param proxyConfig    代理配置
+     * @return 是否下载成功
+     */
+    public static boolean downloadSegmented(String url, String destPath, int connectTimeout, int readTimeout, int writeTimeout, SegmentedDownloadConfig config, HttpProxyConfig proxyConfig) {
+        File target = checkDestPath(destPath);
+        SegmentedDownloadConfig segmentConfig = config != null ? config : new SegmentedDownloadConfig();
+        HttpUrl httpUrl = parseURL(url);
+        OkHttpClient client = getOkHttpClient(httpUrl, connectTimeout, readTimeout, writeTimeout, proxyConfig);
+        try {
+            return downloadFlights.execute(target.getAbsoluteFile(), () -> downloadSegmented(client, httpUrl, target, segmentConfig), result -> true);
+        } catch (IOException e) {
+            logger.error("从 {} 下载文件时出现异常", url, e);
+            return false;
+        }
+    }
+
+    /**
+     * 分段并行下载文件
+     *
+     * @param client        OkHttpClient
+     * @param url           URL
+     * @param target        目标文件
+     * @param segmentConfig 分段配置
+     * @return 是否下载成功
+     */
+    private static boolean downloadSegmented(OkHttpClient client, HttpUrl url, File target, SegmentedDownloadConfig segmentConfig) {
+        //先请求第一个字节，探测是否支持分段以及文件总长度
+        long totalLength;
+        String validator;
+        try (Response response = execute(client, prepareSegmentRequest(url, 0L, 0L, null))) {
+            if (response.code() != 206) {
+                //不支持分段，直接保存完整响应
+                return saveResponse(response, url, target, -1);
             }
-            ins = body.byteStream();
-            os = new FileOutputStream(new File(destPath));
-            byte[] buffer = new byte[2 * 1024];
-            int len;
-            while ((len = ins.read(buffer)) != -1) {
-                os.write(buffer, 0, len);
+            totalLength = FileDownloader.totalLength(response);
+            validator = FileDownloader.validatorOf(response);
+        } catch (IOException e) {
+            logger.error("从 {} 下载文件时出现异常", url, e);
+            return false;
+        }
+        int segments = segmentCount(totalLength, segmentConfig, client.dispatcher().getMaxRequestsPerHost());
+        if (segments <= 1) {
+            //已在该文件的合并调用中，直接下载
+            return download(client, url, target, -1);
+        }
+
+        logger.info("从 {} 分 {} 段下载文件，总大小 {} 字节", url, segments, totalLength);
+        FileDownloader.discard(target);
+        File partFile = FileDownloader.partFileOf(target);
+        boolean completed = false;
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(partFile, "rw"); FileChannel channel = raf.getChannel()) {
+                raf.setLength(totalLength);
+                long segmentSize = (totalLength + segments - 1) / segments;
+                //分段回调持有读锁写入文件；关闭文件前先取得写锁，等待正在执行的回调结束，之后的回调不再写入
+                ReadWriteLock channelLock = new ReentrantReadWriteLock();
+                AtomicBoolean channelClosed = new AtomicBoolean();
+                List<CompletableFuture<Long>> futures = new ArrayList<>(segments);
+                for (int i = 0; i < segments; i++) {
+                    long start = i * segmentSize;
+                    long end = Math.min(totalLength, start + segmentSize) - 1;
+                    Request request = prepareSegmentRequest(url, start, end, validator);
+                    CompletableFuture<Long> future = enqueue(client, request, response -> {
+                        channelLock.readLock().lock();
+                        try {
+                            if (channelClosed.get()) {
+                                throw new IOException("分段下载已取消");
+                            }
+                            return FileDownloader.saveSegment(response, channel, start, end);
+                        } finally {
+                            channelLock.readLock().unlock();
+                        }
+                    });
+                    futures.add(future);
+                }
+                //任一分段失败时取消其余分段
+                for (CompletableFuture<Long> future : futures) {
+                    future.whenComplete((written, e) -> {
+                        if (e != null) {
+                            futures.forEach(f -> f.cancel(true));
+                        }
+                    });
+                }
+                try {
+                    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+                } finally {
+                    futures.forEach(f -> f.cancel(true));
+                    channelLock.writeLock().lock();
+                    try {
+                        channelClosed.set(true);
+                    } finally {
+                        channelLock.writeLock().unlock();
+                    }
+                }
             }
-            os.flush();
-            logger.info("已从 {} 下载文件保存到 {}", url, destPath);
+            FileDownloader.moveAtomically(partFile, target);
+            completed = true;
+            logger.info("已从 {} 下载文件保存到 {}", url, target.getPath());
             return true;
-        } catch (IOException ioe) {
-            logger.error("从 {} 下载文件时出现异常", url, ioe);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("从 {} 分段下载文件被中断", url);
+        } catch (ExecutionException | CancellationException | IOException e) {
+            logger.error("从 {} 分段下载文件时出现异常", url, e);
         } finally {
-            if (ins != null) {
-                ins.close();
-            }
-            if (os != null) {
-                os.close();
+            if (!completed) {
+                FileDownloader.discard(target);
             }
         }
         return false;
     }
 
+    /**
+     * 计算分段数
+     *
+     * @param totalLength        文件总长度
+     * @param config             分段配置
+     * @param maxRequestsPerHost Dispatcher的单主机并发上限
+     * @return 分段数
+     */
+    private static int segmentCount(long totalLength, SegmentedDownloadConfig config, int maxRequestsPerHost) {
+        if (totalLength <= 0L || config.getMinSegmentSize() <= 0L) {
+            return 1;
+        }
+        long bySize = totalLength / config.getMinSegmentSize();
+        return (int) Math.max(1L, Math.min(bySize, Math.min(config.getMaxSegmentsPerHost(), maxRequestsPerHost)));
+    }
+
+    /**
+     * 准备分段请求
+     *
+     * @param url       URL
+     * @param start     起始位置
+     * @param end       结束位置(含)
+     * @param validator If-Range校验值(可为空)
+     * @return 请求
+     */
+    private static Request prepareSegmentRequest(HttpUrl url, long start, long end, String validator) {
+        Request.Builder builder = prepareRequestBuilder(url, DOWNLOAD_TEMPLATE, null);
+        builder.header("Range", "bytes=" + start + "-" + end);
+        if (validator != null) {
+            builder.header("If-Range", validator);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 下载中断后是否可以续传(本次尝试有新的进展且未超过尝试次数)
+     *
+     * @param url        URL
+     * @param target     目标文件
+     * @param resumeFrom 本次尝试开始时的已下载字节数
+     * @param attempt    第几次尝试
+     * @return
+     */
+    private static boolean canResume(HttpUrl url, File target, long resumeFrom, int attempt) {
+        return attempt < MAX_RESUME_ATTEMPTS && FileDownloader.resumableLength(target, url.toString()) > resumeFrom;
+    }
+
+    /**
+     * 检查文件保存路径
+     *
+     * @param destPath 文件保存路径
+     * @return 目标文件
+     */
+    private static File checkDestPath(String destPath) {
+        if (StringUtils.isEmpty(destPath)) {
+            throw new IllegalArgumentException("文件保存路径为空");
+        }
+        return new File(destPath);
+    }
+
+    /**
+     * 准备下载请求(存在可续传的临时文件时带上Range/If-Range)
+     *
+     * @param url    URL
+     * @param target 目标文件
+     * @return 请求
+     */
+    private static Request prepareDownloadRequest(HttpUrl url, File target) {
+        return prepareRequestBuilder(url, DOWNLOAD_TEMPLATE, FileDownloader.resumeHeaders(target, url.toString())).build();
+    }
+
+    /**
+     * 将响应体保存到文件
+     *
+     * @param response 响应
+     * @param url      URL
+     * @param target   目标文件
+     * @param minSize  文件大小的下限阈值(单位: 字节，-1表示无限制)
+     * @return 是否保存成功
+     * @throws IOException
+     */
+    private static boolean saveResponse(Response response, HttpUrl url, File target, long minSize) throws IOException {
+        if (!response.isSuccessful()) {
+            if (response.code() == 416) {
+                //续传位置超出文件范围，丢弃临时文件
+                FileDownloader.discard(target);
+            }
+            logger.error("从 {} 下载文件失败! 状态码: {}", url, response.code());
+            return false;
+        }
+        long contentLength = FileDownloader.totalLength(response);
+        if (contentLength == 0L || (minSize > 0L && contentLength < minSize)) {
+            logger.warn("文件大小 {} 低于本次下载的下限 {} 字节, 跳过! url={}", contentLength, minSize, url);
+            FileDownloader.discard(target);
+            return false;
+        }
+        FileDownloader.save(response, target, url.toString());
+        logger.info("已从 {} 下载文件保存到 {}", url, target.getPath());
+        return true;
+    }
+
     /**
      * 发起POST请求并获得响应数据
      *
@@ -368,51 +1040,267 @@ public class HttpUtils {
      * @throws IOException
      */
     private static HttpResponse postBody(String url, Map<String, String> headersMap, RequestBody body, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig) throws IOException {
-        OkHttpClient client = getOkHttpClient(connectTimeout, readTimeout, writeTimeout, proxyConfig);
-        Request.Builder builder = prepareRequestBuilder(url, headersMap);
+        HttpUrl httpUrl = parseURL(url);
+        OkHttpClient client = getOkHttpClient(httpUrl, connectTimeout, readTimeout, writeTimeout, proxyConfig);
+        Request.Builder builder = prepareRequestBuilder(httpUrl, headersMap);
         Request request = builder.post(body).build();
-        Response response = client.newCall(request).execute();
+        Response response = execute(client, request);
         return getHttpResponse(response);
     }
 
     /**
-     * 设置请求headers
+     * 异步发起POST请求
+     *
+     * @param url            URL
+     * @param headersMap     自定义header信息
+     * @param body           请求体
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout    读超时时间(毫秒)
+     * @param writeTimeout   写超时时间(毫秒)
+     * @param proxyConfig    代理配置
+     * @return 响应的Future
+     */
+    private static CompletableFuture<HttpResponse> postBodyAsync(String url, Map<String, String> headersMap, RequestBody body, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig) {
+        HttpUrl httpUrl = parseURL(url);
+        OkHttpClient client = getOkHttpClient(httpUrl, connectTimeout, readTimeout, writeTimeout, proxyConfig);
+        Request request = prepareRequestBuilder(httpUrl, headersMap).post(body).build();
+        return enqueue(client, request, HttpUtils::getHttpResponse);
+    }
+
+    /**
+     * 构建Form请求体
+     *
+     * @param paramsMap 请求参数
+     * @return 请求体
+     */
+    private static RequestBody buildFormBody(Map<String, String> paramsMap) {
+        FormBody.Builder formBodyBuilder = new FormBody.Builder();
+        if (paramsMap != null && !paramsMap.isEmpty()) {
+            for (Map.Entry<String, String> entry : paramsMap.entrySet()) {
+                if (StringUtils.isNotEmpty(entry.getKey()) && StringUtils.isNotEmpty(entry.getValue())) {
+                    formBodyBuilder.add(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return formBodyBuilder.build();
+    }
+
+    /**
+     * 同步执行请求
+     * 主机熔断时直接抛出 CircuitBreakerOpenException；受限流或重试退避时在调用线程中等待；
+     * 重试次数用尽后返回最后一次的响应或抛出最后一次的异常
+     *
+     * @param client  OkHttpClient
+     * @param request 请求
+     * @return 响应
+     * @throws IOException
+     */
+    private static Response execute(OkHttpClient client, Request request) throws IOException {
+        String host = request.url().host();
+        RetryPolicies.recordRequest(host);
+        for (int attempt = 1; ; attempt++) {
+            CircuitBreaker breaker = CircuitBreakers.acquire(host);
+            Response response = null;
+            IOException error = null;
+            try {
+                sleep(RateLimiters.reserve(host));
+                response = client.newCall(request).execute();
+            } catch (IOException e) {
+                error = e;
+            }
+            if (breaker != null) {
+                breaker.record(response, error);
+            }
+            if (error instanceof InterruptedIOException && !(error instanceof SocketTimeoutException)) {
+                throw error;
+            }
+            long delayMillis = RetryPolicies.retryDelayMillis(request, attempt, response, error);
+            if (delayMillis < 0L) {
+                if (error != null) {
+                    throw error;
+                }
+                return response;
+            }
+            logger.warn("请求 {} 失败({})，{} 毫秒后第 {} 次重试", request.url(), response != null ? response.code() : error.toString(), delayMillis, attempt);
+            if (response != null) {
+                response.close();
+            }
+            sleep(TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        }
+    }
+
+    /**
+     * 在调用线程中等待
      *
-     * @param builder 请求builder
-     * @param headers 自定义header信息
+     * @param nanos 等待时间(纳秒)
+     * @throws InterruptedIOException 等待时被中断
      */
-    private static void setRequestHeaders(Request.Builder builder, Map<String, String> headers) {
-        if (builder == null || headers == null) {
+    private static void sleep(long nanos) throws InterruptedIOException {
+        if (nanos <= 0L) {
             return;
         }
-        if (!headers.containsKey(KEY_USER_AGENT)) {
-            headers.put(KEY_USER_AGENT, USER_AGENT_PC);
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待时被中断");
         }
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            String key = entry.getKey();
-            if (StringUtils.isEmpty(key) || StringUtils.isEmpty(entry.getValue())) {
-                continue;
+    }
+
+    /**
+     * 将请求放入Dispatcher的队列异步执行
+     * 主机熔断时以 CircuitBreakerOpenException 失败；受限流或重试退避时延迟入队，等待期间不占用线程；
+     * 取消返回的Future时会同时取消底层的请求
+     *
+     * @param client  OkHttpClient
+     * @param request 请求
+     * @param handler 响应处理器(在Dispatcher的线程中执行)
+     * @param <T>     处理结果类型
+     * @return 处理结果的Future
+     */
+    private static <T> CompletableFuture<T> enqueue(OkHttpClient client, Request request, ResponseHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicReference<Call> currentCall = new AtomicReference<>();
+        future.whenComplete((result, e) -> {
+            Call call = currentCall.get();
+            if (future.isCancelled() && call != null) {
+                call.cancel();
             }
-            builder.header(key.trim(), entry.getValue().trim());
+        });
+        RetryPolicies.recordRequest(request.url().host());
+        enqueue(client, request, handler, future, currentCall, 1);
+        return future;
+    }
+
+    /**
+     * 异步执行一次尝试
+     *
+     * @param client      OkHttpClient
+     * @param request     请求
+     * @param handler     响应处理器
+     * @param future      处理结果的Future
+     * @param currentCall 当前正在执行的Call
+     * @param attempt     第几次尝试
+     * @param <T>         处理结果类型
+     */
+    private static <T> void enqueue(OkHttpClient client, Request request, ResponseHandler<T> handler, CompletableFuture<T> future, AtomicReference<Call> currentCall, int attempt) {
+        Call call = client.newCall(request);
+        currentCall.set(call);
+        if (future.isDone()) {
+            //已被取消
+            return;
+        }
+        CircuitBreaker breaker;
+        try {
+            breaker = CircuitBreakers.acquire(request.url().host());
+        } catch (CircuitBreakerOpenException e) {
+            future.completeExceptionally(e);
+            return;
         }
+        Callback callback = new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (breaker != null) {
+                    if (call.isCanceled()) {
+                        breaker.release();
+                    } else {
+                        breaker.record(null, e);
+                    }
+                }
+                if (!call.isCanceled() && retryAsync(client, request, handler, future, currentCall, attempt, null, e)) {
+                    return;
+                }
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                if (breaker != null) {
+                    breaker.record(response, null);
+                }
+                if (retryAsync(client, request, handler, future, currentCall, attempt, response, null)) {
+                    response.close();
+                    return;
+                }
+                try (Response r = response) {
+                    future.complete(handler.handle(r));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+        long waitNanos = RateLimiters.reserve(request.url().host());
+        if (waitNanos > 0L) {
+            //受限流时延迟放入Dispatcher的队列，等待期间不占用线程
+            scheduler.schedule(() -> {
+                if (!future.isDone()) {
+                    call.enqueue(callback);
+                } else if (breaker != null) {
+                    breaker.release();
+                }
+            }, waitNanos, TimeUnit.NANOSECONDS);
+        } else {
+            call.enqueue(callback);
+        }
+    }
+
+    /**
+     * 按重试策略安排异步重试
+     *
+     * @return 是否已安排重试
+     */
+    private static <T> boolean retryAsync(OkHttpClient client, Request request, ResponseHandler<T> handler, CompletableFuture<T> future, AtomicReference<Call> currentCall, int attempt, Response response, IOException error) {
+        if (future.isDone()) {
+            return false;
+        }
+        long delayMillis = RetryPolicies.retryDelayMillis(request, attempt, response, error);
+        if (delayMillis < 0L) {
+            return false;
+        }
+        logger.warn("请求 {} 失败({})，{} 毫秒后第 {} 次重试", request.url(), response != null ? response.code() : error.toString(), delayMillis, attempt);
+        scheduler.schedule(() -> enqueue(client, request, handler, future, currentCall, attempt + 1), delayMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * 请求合并的key：同一个客户端(代理、超时、cookie配置相同)上方法、URL和请求头都相同的请求
+     *
+     * @param client  OkHttpClient
+     * @param request 请求
+     * @return key
+     */
+    private static List<Object> flightKey(OkHttpClient client, Request request) {
+        return Arrays.asList(client, request.method(), request.url(), request.headers());
+    }
+
+    /**
+     * 响应能否共享给合并等待的调用者
+     *
+     * @param response 响应
+     * @return
+     */
+    private static boolean isShareable(HttpResponse response) {
+        return response == null || response.getBody() == null || response.getBody().length <= MAX_SHARED_BODY_LENGTH;
     }
 
     /**
      * 获取OkHttpClient对象(不使用cookies)
      *
+     * @param url            URL(按主机选择配置档)
      * @param connectTimeout 连接超时时间(毫秒)
      * @param readTimeout    读超时时间(毫秒)
      * @param writeTimeout   写超时时间(毫秒)
      * @param proxyConfig    代理配置
      * @return
      */
-    private static OkHttpClient getOkHttpClient(int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig) {
-        return getOkHttpClient(connectTimeout, readTimeout, writeTimeout, proxyConfig, false);
+    private static OkHttpClient getOkHttpClient(HttpUrl url, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig) {
+        return getOkHttpClient(url, connectTimeout, readTimeout, writeTimeout, proxyConfig, false);
     }
 
     /**
      * 获取OkHttpClient对象
      *
+     * @param url            URL(按主机选择配置档)
      * @param connectTimeout 连接超时时间(毫秒)
      * @param readTimeout    读超时时间(毫秒)
      * @param writeTimeout   写超时时间(毫秒)
@@ -420,55 +1308,9 @@ public class HttpUtils {
      * @param withCookies    是否使用cookies
      * @return
      */
-    private static OkHttpClient getOkHttpClient(int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies) {
-        StringBuilder cacheKey = new StringBuilder(Objects.toString(withCookies));
-        cacheKey.append(connectTimeout).append("_").append(readTimeout).append("_").append(writeTimeout);
-        if (proxyConfig != null) {
-            cacheKey.append("_").append(proxyConfig);
-        }
-        return okHttpClientMap.computeIfAbsent(cacheKey.toString(), k -> {
-            OkHttpClient.Builder builder = new OkHttpClient.Builder();
-            if (connectTimeout > 0) {
-                builder.connectTimeout(connectTimeout, TimeUnit.MILLISECONDS);
-            }
-            if (readTimeout > 0) {
-                builder.readTimeout(readTimeout, TimeUnit.MILLISECONDS);
-            }
-            if (writeTimeout > 0) {
-                builder.writeTimeout(writeTimeout, TimeUnit.MILLISECONDS);
-            }
-            if (proxyConfig != null) {
-                builder.proxy(proxyConfig.getProxy());
-                if (proxyConfig.isNeedAuth()) {
-                    builder.proxyAuthenticator(proxyConfig.getAuthenticator());
-                }
-            }
-            builder.retryOnConnectionFailure(true);
-            Dispatcher dispatcher = new Dispatcher();
-            dispatcher.setMaxRequests(256);
-            dispatcher.setMaxRequestsPerHost(32);
-            builder.dispatcher(dispatcher);
-            if (withCookies) {
-                builder.cookieJar(new CookieJar() {
-                    @Override
-                    public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
-                        if (url != null && cookies != null) {
-                            cookiesMap.put(parseDomain(url.toString()), cookies);
-                        }
-                    }
-
-                    @Override
-                    public List<Cookie> loadForRequest(HttpUrl url) {
-                        if (url == null) {
-                            return new ArrayList<>();
-                        }
-                        Optional<List<Cookie>> cookies = Optional.ofNullable(cookiesMap.get(parseDomain(url.toString())));
-                        return cookies.orElse(new ArrayList<>());
-                    }
-                });
-            }
-            return builder.build();
-        });
+    private static OkHttpClient getOkHttpClient(HttpUrl url, int connectTimeout, int readTimeout, int writeTimeout, HttpProxyConfig proxyConfig, boolean withCookies) {
+        HttpClientProfile profile = HttpClientRegistry.resolveProfile(url.host());
+        return HttpClientRegistry.getClient(new HttpClientKey(connectTimeout, readTimeout, writeTimeout, proxyConfig, withCookies, profile));
     }
 
     /**
@@ -484,16 +1326,9 @@ public class HttpUtils {
         }
         HttpResponse httpResponse = new HttpResponse();
         httpResponse.setCode(response.code());
-        httpResponse.setMessage(response.body() != null ? response.body().string() : null);
-        Headers responseHeaders = response.headers();
-        Set<String> headerKeys = responseHeaders.names();
-        if (!CollectionUtils.isEmpty(headerKeys)) {
-            Map<String, String> headersMap = new HashMap<>();
-            for (String headerKey : headerKeys) {
-                headersMap.put(headerKey, responseHeaders.get(headerKey));
-            }
-            httpResponse.setHeaders(headersMap);
-        }
+        httpResponse.setUrl(response.request().url().toString());
+        httpResponse.setHeaders(response.headers());
+        httpResponse.setBody(response.body() != null ? response.body().bytes() : null);
         response.close();
         return httpResponse;
     }
@@ -505,45 +1340,52 @@ public class HttpUtils {
      * @param headersMap 自定义header信息
      * @return 请求构建器
      */
-    private static Request.Builder prepareRequestBuilder(String url, Map<String, String> headersMap) {
-        checkURL(url);
-        Request.Builder builder = new Request.Builder();
-        builder.url(url);
-        setRequestHeaders(builder, headersMap);
-        return builder;
+    private static Request.Builder prepareRequestBuilder(HttpUrl url, Map<String, String> headersMap) {
+        return prepareRequestBuilder(url, RequestTemplate.DEFAULT, headersMap);
     }
 
     /**
-     * 检查URL
+     * 按请求模板准备请求构建器(不会修改传入的header信息)
+     *
+     * @param url        URL
+     * @param template   请求模板
+     * @param headersMap 本次请求额外的header信息
+     * @return 请求构建器
+     */
+    private static Request.Builder prepareRequestBuilder(HttpUrl url, RequestTemplate template, Map<String, String> headersMap) {
+        return (template != null ? template : RequestTemplate.DEFAULT).newBuilder(url, headersMap);
+    }
+
+    /**
+     * 检查并解析URL(仅支持http和https)
+     * 每个公开方法只解析一次，解析结果同时用于选择客户端和构建请求，不会重复解析；TLS版本由 HttpClientRegistry 的 ConnectionSpec 统一配置
      *
      * @param url URL
+     * @return 解析后的URL
      */
-    private static void checkURL(String url) {
-        if (StringUtils.isEmpty(url) || !url.startsWith("http")) {
+    private static HttpUrl parseURL(String url) {
+        HttpUrl httpUrl = StringUtils.isEmpty(url) ? null : HttpUrl.parse(url);
+        if (httpUrl == null) {
             throw new IllegalArgumentException("URL无效");
         }
-        if (url.startsWith("https://")) {
-            //暂时禁用SNI，避免 JDK1.7 及之后版本出现 javax.net.ssl.SSLProtocolException: handshake alert:  unrecognized_name 错误
-            //http://stackoverflow.com/questions/7615645/ssl-handshake-alert-unrecognized-name-error-since-upgrade-to-java-1-7-0
-            //System.setProperty("jsse.enableSNIExtension", "false");
-            System.setProperty("https.protocols", "TLSv1,TLSv1.1,TLSv1.2,SSLv3");
-        }
+        return httpUrl;
     }
 
     /**
-     * 从URL解析域名
+     * 响应处理器
      *
-     * @param url
-     * @return
+     * @param <T> 处理结果类型
      */
-    private static String parseDomain(String url) {
-        if (StringUtils.isEmpty(url)) {
-            return null;
-        }
-        String[] tmp = url.split("/");
-        if (tmp.length >= 3) {
-            return tmp[2];
-        }
-        return url;
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+
+        /**
+         * 处理响应
+         *
+         * @param response 响应
+         * @return 处理结果
+         * @throws IOException
+         */
+        T handle(Response response) throws IOException;
     }
 }
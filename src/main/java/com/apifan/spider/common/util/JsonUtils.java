@@ -2,6 +2,7 @@ package com.apifan.spider.common.util;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -12,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +32,14 @@ public class JsonUtils {
         mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
     }
 
+    /**
+     * 宽松模式：允许不带引号的字段名、单引号以及末尾多余的逗号(用于解析JavaScript对象字面量)
+     */
+    private static final ObjectMapper lenientMapper = mapper.copy()
+            .enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonParser.Feature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonParser.Feature.ALLOW_TRAILING_COMMA);
+
     /**
      * 解析json字符串为对象
      *
@@ -47,6 +57,54 @@ public class JsonUtils {
         return null;
     }
 
+    /**
+     * 从字符流解析json为对象
+     *
+     * @param reader 字符流(解析完毕后关闭)
+     * @param type   类型
+     * @param <T>    泛型类型
+     * @return 对象
+     */
+    public static <T> T readAsObject(Reader reader, Class<T> type) {
+        try {
+            return mapper.readValue(reader, type);
+        } catch (IOException e) {
+            logger.error("解析json出现异常", e);
+        }
+        return null;
+    }
+
+    /**
+     * 从字符流解析json为map
+     *
+     * @param reader 字符流(解析完毕后关闭)
+     * @return map 实例
+     */
+    public static Map<String, Object> readAsMap(Reader reader) {
+        return readAsMap(reader, mapper);
+    }
+
+    /**
+     * 以宽松模式从字符流解析json为map
+     * 允许不带引号的字段名、单引号以及末尾多余的逗号
+     *
+     * @param reader 字符流(解析完毕后关闭)
+     * @return map 实例
+     */
+    public static Map<String, Object> readLenientAsMap(Reader reader) {
+        return readAsMap(reader, lenientMapper);
+    }
+
+    private static Map<String, Object> readAsMap(Reader reader, ObjectMapper objectMapper) {
+        try {
+            return objectMapper.readValue(reader, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (IOException e) {
+            logger.error("解析json出现异常", e);
+        }
+        return null;
+    }
+
     /**
      * 解析json字符串为map
      *
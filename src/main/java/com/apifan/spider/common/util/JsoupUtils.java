@@ -8,6 +8,7 @@ import org.jsoup.nodes.Element;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 /**
  * jsoup工具类
@@ -44,6 +45,33 @@ public class JsoupUtils {
         return getDocument(htmlFile, Charsets.UTF_8.name());
     }
 
+    /**
+     * 从HTTP响应解析文档对象
+     * 使用响应识别出的字符集解码，相对链接以请求的URL为基准
+     *
+     * @param response HTTP响应
+     * @return 文档对象，没有响应体时返回null
+     */
+    public static Document getDocument(HttpResponse response) {
+        return getDocument(response, null);
+    }
+
+    /**
+     * 从HTTP响应解析文档对象
+     * 响应没有声明字符集时使用指定的字符集解码，相对链接以请求的URL为基准
+     *
+     * @param response       HTTP响应
+     * @param defaultCharset 默认字符集
+     * @return 文档对象，没有响应体时返回null
+     */
+    public static Document getDocument(HttpResponse response, String defaultCharset) {
+        if (response == null || response.getBody() == null) {
+            return null;
+        }
+        String html = StringUtils.isEmpty(defaultCharset) ? response.getMessage() : response.getMessage(Charset.forName(defaultCharset));
+        return Jsoup.parse(html, StringUtils.defaultString(response.getUrl()));
+    }
+
     /**
      * 判断是否为空元素
      *
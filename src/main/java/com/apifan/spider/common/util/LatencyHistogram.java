@@ -0,0 +1,72 @@
+package com.apifan.spider.common.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的耗时直方图(毫秒)，无锁记录
+ *
+ * @author yin
+ */
+final class LatencyHistogram {
+
+    /**
+     * 各桶的上界(毫秒)，最后一个桶没有上界
+     */
+    private static final long[] BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * 记录一个样本
+     *
+     * @param millis 耗时(毫秒)
+     */
+    void record(long millis) {
+        int i = 0;
+        while (i < BOUNDS.length && millis > BOUNDS[i]) {
+            i++;
+        }
+        buckets.incrementAndGet(i);
+        count.increment();
+        sum.add(millis);
+        max.accumulate(millis);
+    }
+
+    /**
+     * 获取统计数据
+     *
+     * @return
+     */
+    LatencyStats snapshot() {
+        LatencyStats stats = new LatencyStats();
+        long total = count.sum();
+        long maxValue = max.get();
+        stats.setCount(total);
+        stats.setMax(maxValue);
+        if (total == 0L) {
+            return stats;
+        }
+        stats.setMean((double) sum.sum() / total);
+        stats.setP50(percentile(total, 0.50D, maxValue));
+        stats.setP90(percentile(total, 0.90D, maxValue));
+        stats.setP99(percentile(total, 0.99D, maxValue));
+        return stats;
+    }
+
+    private long percentile(long total, double quantile, long maxValue) {
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0L;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i < BOUNDS.length ? Math.min(BOUNDS[i], maxValue) : maxValue;
+            }
+        }
+        return maxValue;
+    }
+}
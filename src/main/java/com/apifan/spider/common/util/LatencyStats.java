@@ -0,0 +1,96 @@
+package com.apifan.spider.common.util;
+
+import java.io.Serializable;
+
+/**
+ * 耗时分布统计(毫秒)
+ * 百分位数取所在直方图桶的上界，是近似值
+ *
+ * @author yin
+ */
+public class LatencyStats implements Serializable {
+    private static final long serialVersionUID = 4527930961722059427L;
+
+    /**
+     * 样本数
+     */
+    private long count;
+
+    /**
+     * 平均值
+     */
+    private double mean;
+
+    /**
+     * 中位数
+     */
+    private long p50;
+
+    /**
+     * 90百分位数
+     */
+    private long p90;
+
+    /**
+     * 99百分位数
+     */
+    private long p99;
+
+    /**
+     * 最大值
+     */
+    private long max;
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public void setP50(long p50) {
+        this.p50 = p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public void setP90(long p90) {
+        this.p90 = p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public void setP99(long p99) {
+        this.p99 = p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public void setMax(long max) {
+        this.max = max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1f p50=%d p90=%d p99=%d max=%d", count, mean, p50, p90, p99, max);
+    }
+}
@@ -0,0 +1,26 @@
+package com.apifan.spider.common.util;
+
+import org.jsoup.nodes.Document;
+
+import java.util.function.Consumer;
+
+/**
+ * 流水线的解析阶段
+ * 从文档对象中解析出数据项，每解析出一项立即交给 emitter 传给下游，不需要先收集成列表；
+ * 由流水线的解析线程并发调用，实现需要线程安全
+ *
+ * @param <T> 数据项类型
+ * @author yin
+ */
+@FunctionalInterface
+public interface Parser<T> {
+
+    /**
+     * 解析页面
+     *
+     * @param page    文档对象
+     * @param emitter 数据项的接收方(下游队列满时阻塞)
+     * @throws Exception
+     */
+    void parse(Document page, Consumer<T> emitter) throws Exception;
+}
@@ -0,0 +1,196 @@
+package com.apifan.spider.common.util;
+
+import com.google.common.util.concurrent.Striped;
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 线程安全、可持久化的cookie容器
+ * 按cookie的域名建立索引，同一域名下按 名称+路径 合并(而不是整体替换)；
+ * 匹配规则(host-only、域名、路径、secure)遵循 Cookie.matches；过期的cookie在读取时惰性清除；
+ * 每个域名由分段锁保护，不同域名之间互不阻塞
+ *
+ * @author yin
+ */
+public class PersistentCookieJar implements CookieJar {
+    private static final Logger logger = LoggerFactory.getLogger(PersistentCookieJar.class);
+
+    /**
+     * 快照文件中URL与Set-Cookie之间的分隔符
+     */
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * 域名 -> (名称;路径 -> cookie)
+     */
+    private final Map<String, Map<String, Cookie>> index = new ConcurrentHashMap<>();
+
+    /**
+     * 按域名分段的锁
+     */
+    private final Striped<Lock> locks = Striped.lock(32);
+
+    @Override
+    public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+        if (cookies == null) {
+            return;
+        }
+        for (Cookie cookie : cookies) {
+            save(cookie);
+        }
+    }
+
+    @Override
+    public List<Cookie> loadForRequest(HttpUrl url) {
+        if (url == null) {
+            return Collections.emptyList();
+        }
+        List<Cookie> result = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        //依次查找主机名及其上级域名下的cookie
+        String domain = url.host();
+        while (domain != null) {
+            Map<String, Cookie> cookies = index.get(domain);
+            if (cookies != null) {
+                Lock lock = locks.get(domain);
+                lock.lock();
+                try {
+                    Iterator<Cookie> iterator = cookies.values().iterator();
+                    while (iterator.hasNext()) {
+                        Cookie cookie = iterator.next();
+                        if (cookie.expiresAt() <= now) {
+                            iterator.remove();
+                        } else if (cookie.matches(url)) {
+                            result.add(cookie);
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            int dot = domain.indexOf('.');
+            domain = dot >= 0 ? domain.substring(dot + 1) : null;
+        }
+        return result;
+    }
+
+    /**
+     * 判断是否有可以发送给该URL的cookie
+     *
+     * @param url URL
+     * @return 是否有cookie
+     */
+    public boolean hasCookies(HttpUrl url) {
+        return !loadForRequest(url).isEmpty();
+    }
+
+    /**
+     * 保存单个cookie；已过期的cookie表示删除同名cookie
+     *
+     * @param cookie cookie
+     */
+    public void save(Cookie cookie) {
+        String domain = cookie.domain();
+        String key = cookie.name() + ";" + cookie.path();
+        Lock lock = locks.get(domain);
+        lock.lock();
+        try {
+            if (cookie.expiresAt() <= System.currentTimeMillis()) {
+                Map<String, Cookie> cookies = index.get(domain);
+                if (cookies != null) {
+                    cookies.remove(key);
+                }
+            } else {
+                index.computeIfAbsent(domain, k -> new LinkedHashMap<>()).put(key, cookie);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 清空所有cookie
+     */
+    public void clear() {
+        index.clear();
+    }
+
+    /**
+     * 将未过期的持久cookie保存到文件(会话cookie不保存)
+     *
+     * @param file 快照文件
+     * @throws IOException
+     */
+    public void snapshot(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Map<String, Cookie>> entry : index.entrySet()) {
+            Lock lock = locks.get(entry.getKey());
+            lock.lock();
+            try {
+                for (Cookie cookie : entry.getValue().values()) {
+                    if (cookie.persistent() && cookie.expiresAt() > now) {
+                        lines.add(originOf(cookie) + SEPARATOR + cookie.toString());
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        FileUtils.writeAtomically(file, String.join(System.lineSeparator(), lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 从快照文件恢复cookie(已过期的忽略)
+     *
+     * @param file 快照文件
+     * @return 恢复的cookie数量
+     * @throws IOException
+     */
+    public int restore(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        int count = 0;
+        for (String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+            String origin = StringUtils.substringBefore(line, SEPARATOR);
+            HttpUrl url = HttpUrl.parse(origin);
+            Cookie cookie = url != null ? Cookie.parse(url, StringUtils.substringAfter(line, SEPARATOR)) : null;
+            if (cookie == null) {
+                logger.warn("忽略无法解析的cookie: {}", line);
+                continue;
+            }
+            if (cookie.expiresAt() > System.currentTimeMillis()) {
+                save(cookie);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * cookie的来源URL(用于恢复时重新解析)
+     *
+     * @param cookie cookie
+     * @return URL
+     */
+    private static String originOf(Cookie cookie) {
+        return (cookie.secure() ? "https://" : "http://") + cookie.domain() + cookie.path();
+    }
+}
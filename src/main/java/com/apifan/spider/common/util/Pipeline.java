@@ -0,0 +1,325 @@
+package com.apifan.spider.common.util;
+
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 抓取-解析-输出流水线
+ * 三个阶段之间用有界队列连接，抓取和解析阶段各自使用独立的线程池并发执行，输出阶段单线程顺序执行；
+ * 数据项解析出来后立即流向下游，下游处理不过来时上游在队列上阻塞，内存占用与URL总数和数据项总数无关。
+ * 单个页面抓取或解析失败只记录日志和失败数，不影响其他页面；只有一个URL时不启动线程池，直接在调用线程中处理
+ *
+ * @param <T> 数据项类型
+ * @author yin
+ */
+public class Pipeline<T> {
+    private static final Logger logger = LoggerFactory.getLogger(Pipeline.class);
+
+    /**
+     * 默认队列容量
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    /**
+     * 队列结束标记
+     */
+    private static final Object END = new Object();
+
+    /**
+     * 名称(用于线程名和日志)
+     */
+    private final String name;
+
+    private final Fetcher fetcher;
+
+    private final Parser<T> parser;
+
+    /**
+     * 抓取线程数
+     */
+    private int fetchThreads = 1;
+
+    /**
+     * 解析线程数
+     */
+    private int parseThreads = 1;
+
+    /**
+     * 阶段间队列容量
+     */
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    /**
+     * 构造函数
+     *
+     * @param name    名称
+     * @param fetcher 抓取阶段
+     * @param parser  解析阶段
+     */
+    public Pipeline(String name, Fetcher fetcher, Parser<T> parser) {
+        if (fetcher == null || parser == null) {
+            throw new IllegalArgumentException("抓取和解析阶段不能为空");
+        }
+        this.name = name;
+        this.fetcher = fetcher;
+        this.parser = parser;
+    }
+
+    public int getFetchThreads() {
+        return fetchThreads;
+    }
+
+    public void setFetchThreads(int fetchThreads) {
+        if (fetchThreads <= 0) {
+            throw new IllegalArgumentException("抓取线程数必须大于0");
+        }
+        this.fetchThreads = fetchThreads;
+    }
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    public void setParseThreads(int parseThreads) {
+        if (parseThreads <= 0) {
+            throw new IllegalArgumentException("解析线程数必须大于0");
+        }
+        this.parseThreads = parseThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("队列容量必须大于0");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * 处理单个URL
+     * 抓取、解析和输出都在调用线程中顺序执行；sink 不会被关闭
+     *
+     * @param url  URL
+     * @param sink 输出
+     * @return 运行统计
+     * @throws InterruptedException 处理时被中断
+     */
+    public PipelineStats run(String url, Sink<? super T> sink) throws InterruptedException {
+        long start = System.nanoTime();
+        AtomicLong items = new AtomicLong();
+        AtomicLong sinkFailures = new AtomicLong();
+        long fetched = 0L;
+        long fetchFailures = 0L;
+        long parseFailures = 0L;
+        Document page = fetch(url);
+        if (page == null) {
+            fetchFailures++;
+        } else {
+            fetched++;
+            try {
+                parser.parse(page, item -> {
+                    if (item == null) {
+                        return;
+                    }
+                    try {
+                        write(sink, item);
+                        items.incrementAndGet();
+                    } catch (Exception e) {
+                        sinkFailures.incrementAndGet();
+                        logger.error("[{}] 输出数据项失败", name, e);
+                    }
+                });
+            } catch (Exception e) {
+                parseFailures++;
+                logger.error("[{}] 解析页面失败: {}", name, page.baseUri(), e);
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException("流水线已取消");
+        }
+        return stats(1L, fetched, fetchFailures, parseFailures, items.get(), sinkFailures.get(), start);
+    }
+
+    /**
+     * 处理一批URL
+     * 调用线程负责把URL逐个放入抓取队列(队列满时阻塞)，所有数据项都输出后返回；sink 不会被关闭
+     *
+     * @param urls URL(可以是按需生成的序列)
+     * @param sink 输出
+     * @return 运行统计
+     * @throws InterruptedException 等待时被中断，此时各阶段的任务都会被取消
+     */
+    public PipelineStats run(Iterable<String> urls, Sink<? super T> sink) throws InterruptedException {
+        long start = System.nanoTime();
+        BlockingQueue<Object> urlQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> pageQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> itemQueue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger fetchersLeft = new AtomicInteger(fetchThreads);
+        AtomicInteger parsersLeft = new AtomicInteger(parseThreads);
+        AtomicLong urlCount = new AtomicLong();
+        AtomicLong fetched = new AtomicLong();
+        AtomicLong fetchFailures = new AtomicLong();
+        AtomicLong parseFailures = new AtomicLong();
+        AtomicLong items = new AtomicLong();
+        AtomicLong sinkFailures = new AtomicLong();
+
+        ExecutorService fetchPool = SpiderExecutors.newExecutor(name + "-fetch", fetchThreads);
+        ExecutorService parsePool = SpiderExecutors.newExecutor(name + "-parse", parseThreads);
+        ExecutorService sinkPool = SpiderExecutors.newExecutor(name + "-sink", 1);
+        try {
+            for (int i = 0; i < fetchThreads; i++) {
+                fetchPool.execute(() -> {
+                    try {
+                        Object url;
+                        while ((url = urlQueue.take()) != END) {
+                            Document page = fetch((String) url);
+                            if (page == null) {
+                                fetchFailures.incrementAndGet();
+                                continue;
+                            }
+                            fetched.incrementAndGet();
+                            pageQueue.put(page);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        if (fetchersLeft.decrementAndGet() == 0) {
+                            end(pageQueue, parseThreads);
+                        }
+                    }
+                });
+            }
+            for (int i = 0; i < parseThreads; i++) {
+                parsePool.execute(() -> {
+                    try {
+                        Object page;
+                        while ((page = pageQueue.take()) != END) {
+                            try {
+                                parser.parse((Document) page, item -> emit(itemQueue, item));
+                            } catch (CancellationException e) {
+                                return;
+                            } catch (Exception e) {
+                                parseFailures.incrementAndGet();
+                                logger.error("[{}] 解析页面失败: {}", name, ((Document) page).baseUri(), e);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        if (parsersLeft.decrementAndGet() == 0) {
+                            end(itemQueue, 1);
+                        }
+                    }
+                });
+            }
+            sinkPool.execute(() -> {
+                try {
+                    Object item;
+                    while ((item = itemQueue.take()) != END) {
+                        try {
+                            write(sink, item);
+                            items.incrementAndGet();
+                        } catch (Exception e) {
+                            sinkFailures.incrementAndGet();
+                            logger.error("[{}] 输出数据项失败", name, e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            for (String url : urls) {
+                urlQueue.put(url);
+                urlCount.incrementAndGet();
+            }
+            for (int i = 0; i < fetchThreads; i++) {
+                urlQueue.put(END);
+            }
+            fetchPool.shutdown();
+            parsePool.shutdown();
+            sinkPool.shutdown();
+            while (!sinkPool.awaitTermination(1L, TimeUnit.MINUTES)) {
+                logger.debug("[{}] 等待流水线结束，队列积压: URL {} 页面 {} 数据项 {}", name, urlQueue.size(), pageQueue.size(), itemQueue.size());
+            }
+        } finally {
+            fetchPool.shutdownNow();
+            parsePool.shutdownNow();
+            sinkPool.shutdownNow();
+        }
+
+        return stats(urlCount.get(), fetched.get(), fetchFailures.get(), parseFailures.get(), items.get(), sinkFailures.get(), start);
+    }
+
+    private PipelineStats stats(long urls, long fetched, long fetchFailures, long parseFailures, long items, long sinkFailures, long start) {
+        PipelineStats stats = new PipelineStats();
+        stats.setName(name);
+        stats.setUrls(urls);
+        stats.setFetched(fetched);
+        stats.setFetchFailures(fetchFailures);
+        stats.setParseFailures(parseFailures);
+        stats.setItems(items);
+        stats.setSinkFailures(sinkFailures);
+        stats.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.info("{}", stats);
+        return stats;
+    }
+
+    private Document fetch(String url) {
+        try {
+            Document page = fetcher.fetch(url);
+            if (page == null) {
+                logger.error("[{}] 抓取页面失败: {}", name, url);
+            }
+            return page;
+        } catch (Exception e) {
+            logger.error("[{}] 抓取页面失败: {}", name, url, e);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(Sink<? super T> sink, Object item) throws Exception {
+        sink.write((T) item);
+    }
+
+    /**
+     * 把数据项放入输出队列，被中断时取消当前页面的解析
+     */
+    private static void emit(BlockingQueue<Object> queue, Object item) {
+        if (item == null) {
+            return;
+        }
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("流水线已取消");
+        }
+    }
+
+    /**
+     * 通知下游阶段的每个线程结束
+     */
+    private static void end(BlockingQueue<Object> queue, int consumers) {
+        try {
+            for (int i = 0; i < consumers; i++) {
+                queue.put(END);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
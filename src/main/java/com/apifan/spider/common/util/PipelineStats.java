@@ -0,0 +1,136 @@
+package com.apifan.spider.common.util;
+
+/**
+ * 流水线运行统计
+ *
+ * @author yin
+ */
+public class PipelineStats {
+
+    /**
+     * 流水线名称
+     */
+    private String name;
+
+    /**
+     * 输入的URL数
+     */
+    private long urls;
+
+    /**
+     * 抓取成功的页面数
+     */
+    private long fetched;
+
+    /**
+     * 抓取失败的页面数
+     */
+    private long fetchFailures;
+
+    /**
+     * 解析失败的页面数
+     */
+    private long parseFailures;
+
+    /**
+     * 输出成功的数据项数
+     */
+    private long items;
+
+    /**
+     * 输出失败的数据项数
+     */
+    private long sinkFailures;
+
+    /**
+     * 耗时(毫秒)
+     */
+    private long elapsedMillis;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getUrls() {
+        return urls;
+    }
+
+    public void setUrls(long urls) {
+        this.urls = urls;
+    }
+
+    public long getFetched() {
+        return fetched;
+    }
+
+    public void setFetched(long fetched) {
+        this.fetched = fetched;
+    }
+
+    public long getFetchFailures() {
+        return fetchFailures;
+    }
+
+    public void setFetchFailures(long fetchFailures) {
+        this.fetchFailures = fetchFailures;
+    }
+
+    public long getParseFailures() {
+        return parseFailures;
+    }
+
+    public void setParseFailures(long parseFailures) {
+        this.parseFailures = parseFailures;
+    }
+
+    public long getItems() {
+        return items;
+    }
+
+    public void setItems(long items) {
+        this.items = items;
+    }
+
+    public long getSinkFailures() {
+        return sinkFailures;
+    }
+
+    public void setSinkFailures(long sinkFailures) {
+        this.sinkFailures = sinkFailures;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 各阶段失败数之和
+     *
+     * @return
+     */
+    public long getFailures() {
+        return fetchFailures + parseFailures + sinkFailures;
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineStats{" +
+                "name='" + name + '\'' +
+                ", urls=" + urls +
+                ", fetched=" + fetched +
+                ", fetchFailures=" + fetchFailures +
+                ", parseFailures=" + parseFailures +
+                ", items=" + items +
+                ", sinkFailures=" + sinkFailures +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,19 @@
+package com.apifan.spider.common.util;
+
+/**
+ * 任务队列已满时的提交策略
+ *
+ * @author yin
+ */
+public enum QueueFullPolicy {
+
+    /**
+     * 阻塞提交方，直到队列有空位
+     */
+    BLOCK,
+
+    /**
+     * 由提交方线程直接执行任务
+     */
+    CALLER_RUNS
+}
@@ -0,0 +1,116 @@
+package com.apifan.spider.common.util;
+
+import java.io.Serializable;
+
+/**
+ * 单个主机的限流统计
+ *
+ * @author yin
+ */
+public class RateLimiterMetrics implements Serializable {
+    private static final long serialVersionUID = 6198476003925133318L;
+
+    /**
+     * 主机名
+     */
+    private String host;
+
+    /**
+     * 配置的速率(每秒令牌数)
+     */
+    private double permitsPerSecond;
+
+    /**
+     * 配置的突发上限
+     */
+    private int burst;
+
+    /**
+     * 实际的发放速率(每秒令牌数，自限流器创建起计算)
+     */
+    private double observedPermitsPerSecond;
+
+    /**
+     * 累计发放的令牌数
+     */
+    private long acquired;
+
+    /**
+     * 需要等待才能获得令牌的次数
+     */
+    private long delayed;
+
+    /**
+     * 累计等待时间(毫秒)
+     */
+    private long totalWaitMillis;
+
+    /**
+     * 最长的单次等待时间(毫秒)
+     */
+    private long maxWaitMillis;
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public void setPermitsPerSecond(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public double getObservedPermitsPerSecond() {
+        return observedPermitsPerSecond;
+    }
+
+    public void setObservedPermitsPerSecond(double observedPermitsPerSecond) {
+        this.observedPermitsPerSecond = observedPermitsPerSecond;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public void setAcquired(long acquired) {
+        this.acquired = acquired;
+    }
+
+    public long getDelayed() {
+        return delayed;
+    }
+
+    public void setDelayed(long delayed) {
+        this.delayed = delayed;
+    }
+
+    public long getTotalWaitMillis() {
+        return totalWaitMillis;
+    }
+
+    public void setTotalWaitMillis(long totalWaitMillis) {
+        this.totalWaitMillis = totalWaitMillis;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+}
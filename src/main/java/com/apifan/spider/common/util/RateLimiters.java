@@ -0,0 +1,104 @@
+package com.apifan.spider.common.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按主机限流
+ * 按域名配置速率和突发上限，每个主机使用独立的令牌桶；未配置的主机不限流。
+ * HttpUtils在发起每个请求前都会预定令牌：同步请求在调用线程中等待，异步请求延迟放入Dispatcher的队列，不占用线程
+ *
+ * @author yin
+ */
+public final class RateLimiters {
+
+    /**
+     * 限流配置
+     */
+    private static final DomainConfigs<Rate> configs = new DomainConfigs<>();
+
+    /**
+     * 主机 -> 令牌桶
+     */
+    private static final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private RateLimiters() {
+    }
+
+    /**
+     * 配置域名的限流参数(对该域名及其子域名生效，"*"表示所有主机)
+     * 已创建的令牌桶会被重置
+     *
+     * @param domain           域名
+     * @param permitsPerSecond 每秒请求数
+     * @param burst            突发上限
+     */
+    public static void configure(String domain, double permitsPerSecond, int burst) {
+        configs.put(domain, new Rate(permitsPerSecond, burst));
+        buckets.clear();
+    }
+
+    /**
+     * 仅在域名尚未配置时配置限流参数
+     *
+     * @param domain           域名
+     * @param permitsPerSecond 每秒请求数
+     * @param burst            突发上限
+     */
+    public static void configureIfAbsent(String domain, double permitsPerSecond, int burst) {
+        configs.putIfAbsent(domain, new Rate(permitsPerSecond, burst));
+    }
+
+    /**
+     * 取消域名的限流
+     *
+     * @param domain 域名
+     */
+    public static void remove(String domain) {
+        configs.remove(domain);
+        buckets.clear();
+    }
+
+    /**
+     * 为某个主机的请求预定一个令牌
+     *
+     * @param host 主机名
+     * @return 需要等待的时间(纳秒)，0表示无需等待
+     */
+    public static long reserve(String host) {
+        TokenBucket bucket = buckets.get(host);
+        if (bucket == null) {
+            Rate config = configs.resolve(host);
+            if (config == null) {
+                return 0L;
+            }
+            bucket = buckets.computeIfAbsent(host, k -> new TokenBucket(config.permitsPerSecond, config.burst));
+        }
+        return bucket.reserve();
+    }
+
+    /**
+     * 获取各主机的限流统计
+     *
+     * @return 主机 -> 统计数据
+     */
+    public static Map<String, RateLimiterMetrics> getMetrics() {
+        Map<String, RateLimiterMetrics> metrics = new TreeMap<>();
+        buckets.forEach((host, bucket) -> metrics.put(host, bucket.metrics(host)));
+        return metrics;
+    }
+
+    /**
+     * 限流参数
+     */
+    private static final class Rate {
+        private final double permitsPerSecond;
+        private final int burst;
+
+        private Rate(double permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 请求模板
+ * 预先编译好的不可变请求头集合，未指定User-Agent时使用默认的PC UserAgent；
+ * 每个爬虫构建一次后可在多个线程间共享复用，每次请求的额外header叠加在模板之上，不会修改模板本身
+ *
+ * @author yin
+ */
+public final class RequestTemplate {
+
+    private static final String KEY_USER_AGENT = "User-Agent";
+
+    /**
+     * 默认的PC UserAgent
+     */
+    private static final String USER_AGENT_PC = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/75.0.3770.100 Safari/537.36";
+
+    /**
+     * 默认模板(只有默认的User-Agent)
+     */
+    public static final RequestTemplate DEFAULT = new RequestTemplate(new Headers.Builder().add(KEY_USER_AGENT, USER_AGENT_PC).build());
+
+    /**
+     * 请求头
+     */
+    private final Headers headers;
+
+    private RequestTemplate(Headers headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * 由header信息创建模板
+     *
+     * @param headersMap header信息(名称和值会去掉首尾空白，空的忽略)
+     * @return 模板，headersMap为空时返回默认模板
+     */
+    public static RequestTemplate of(Map<String, String> headersMap) {
+        return DEFAULT.with(headersMap);
+    }
+
+    /**
+     * 在当前模板之上叠加header，返回新的模板
+     *
+     * @param name  header名称
+     * @param value header值
+     * @return 新的模板，名称或值为空时返回当前模板
+     */
+    public RequestTemplate with(String name, String value) {
+        if (StringUtils.isBlank(name) || StringUtils.isBlank(value)) {
+            return this;
+        }
+        return new RequestTemplate(headers.newBuilder().set(name.trim(), value.trim()).build());
+    }
+
+    /**
+     * 在当前模板之上叠加header，返回新的模板
+     *
+     * @param headersMap header信息(同名的覆盖模板中的值)
+     * @return 新的模板，headersMap为空时返回当前模板
+     */
+    public RequestTemplate with(Map<String, String> headersMap) {
+        if (headersMap == null || headersMap.isEmpty()) {
+            return this;
+        }
+        Headers.Builder builder = headers.newBuilder();
+        set(builder, headersMap);
+        return new RequestTemplate(builder.build());
+    }
+
+    /**
+     * 获取请求头
+     *
+     * @return
+     */
+    public Headers getHeaders() {
+        return headers;
+    }
+
+    /**
+     * 创建请求构建器
+     *
+     * @param url        URL
+     * @param headersMap 本次请求额外的header信息(可为null)
+     * @return 请求构建器
+     */
+    Request.Builder newBuilder(HttpUrl url, Map<String, String> headersMap) {
+        Request.Builder builder = new Request.Builder().url(url).headers(headers);
+        if (headersMap != null) {
+            for (Map.Entry<String, String> entry : headersMap.entrySet()) {
+                String key = entry.getKey();
+                if (StringUtils.isBlank(key) || StringUtils.isBlank(entry.getValue())) {
+                    continue;
+                }
+                builder.header(key.trim(), entry.getValue().trim());
+            }
+        }
+        return builder;
+    }
+
+    private static void set(Headers.Builder builder, Map<String, String> headersMap) {
+        for (Map.Entry<String, String> entry : headersMap.entrySet()) {
+            String key = entry.getKey();
+            if (StringUtils.isBlank(key) || StringUtils.isBlank(entry.getValue())) {
+                continue;
+            }
+            builder.set(key.trim(), entry.getValue().trim());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return headers.equals(((RequestTemplate) o).headers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(headers);
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTemplate{" + headers.names() + "}";
+    }
+}
@@ -0,0 +1,52 @@
+package com.apifan.spider.common.util;
+
+/**
+ * 重试预算
+ * 每个首次请求存入 ratio 个令牌，每次重试取出1个令牌，令牌数不超过 reserve；
+ * 主机持续失败时重试次数被限制在请求数的 ratio 倍以内，避免重试放大对该主机的压力
+ *
+ * @author yin
+ */
+final class RetryBudget {
+
+    /**
+     * 每个请求存入的令牌数
+     */
+    private final double ratio;
+
+    /**
+     * 令牌数上限(也是初始令牌数)
+     */
+    private final double reserve;
+
+    /**
+     * 当前令牌数
+     */
+    private double balance;
+
+    RetryBudget(double ratio, int reserve) {
+        this.ratio = ratio;
+        this.reserve = reserve;
+        this.balance = reserve;
+    }
+
+    /**
+     * 记录一次首次请求
+     */
+    synchronized void onRequest() {
+        balance = Math.min(reserve, balance + ratio);
+    }
+
+    /**
+     * 尝试为一次重试取出令牌
+     *
+     * @return 是否允许重试
+     */
+    synchronized boolean tryRetry() {
+        if (balance < 1.0D) {
+            return false;
+        }
+        balance -= 1.0D;
+        return true;
+    }
+}
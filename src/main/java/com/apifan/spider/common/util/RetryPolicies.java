@@ -0,0 +1,125 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按域名配置重试策略
+ * 未配置的主机不重试。每个主机另有独立的重试预算，预算耗尽时即使策略允许也不再重试
+ *
+ * @author yin
+ */
+public final class RetryPolicies {
+
+    /**
+     * 默认每个请求存入的重试令牌数(重试次数不超过请求数的20%)
+     */
+    private static final double DEFAULT_BUDGET_RATIO = 0.2D;
+
+    /**
+     * 默认的重试令牌数上限
+     */
+    private static final int DEFAULT_BUDGET_RESERVE = 10;
+
+    /**
+     * 重试策略配置
+     */
+    private static final DomainConfigs<RetryPolicy> configs = new DomainConfigs<>();
+
+    /**
+     * 主机 -> 重试预算
+     */
+    private static final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    private static volatile double budgetRatio = DEFAULT_BUDGET_RATIO;
+
+    private static volatile int budgetReserve = DEFAULT_BUDGET_RESERVE;
+
+    private RetryPolicies() {
+    }
+
+    /**
+     * 配置域名的重试策略(对该域名及其子域名生效，"*"表示所有主机)
+     *
+     * @param domain 域名
+     * @param policy 重试策略
+     */
+    public static void configure(String domain, RetryPolicy policy) {
+        configs.put(domain, policy);
+    }
+
+    /**
+     * 仅在域名尚未配置时配置重试策略
+     *
+     * @param domain 域名
+     * @param policy 重试策略
+     */
+    public static void configureIfAbsent(String domain, RetryPolicy policy) {
+        configs.putIfAbsent(domain, policy);
+    }
+
+    /**
+     * 取消域名的重试策略
+     *
+     * @param domain 域名
+     */
+    public static void remove(String domain) {
+        configs.remove(domain);
+    }
+
+    /**
+     * 设置每个主机的重试预算，已有的预算会被重置
+     *
+     * @param ratio   每个请求存入的重试令牌数(即重试次数占请求数的比例上限)
+     * @param reserve 重试令牌数上限
+     */
+    public static void setBudget(double ratio, int reserve) {
+        if (ratio < 0.0D || reserve < 0) {
+            throw new IllegalArgumentException("重试预算参数无效");
+        }
+        budgetRatio = ratio;
+        budgetReserve = reserve;
+        budgets.clear();
+    }
+
+    /**
+     * 记录一次首次请求(为该主机存入重试令牌)
+     *
+     * @param host 主机名
+     */
+    static void recordRequest(String host) {
+        if (configs.resolve(host) != null) {
+            budget(host).onRequest();
+        }
+    }
+
+    /**
+     * 计算请求失败后下次重试前需要等待的时间
+     *
+     * @param request  请求
+     * @param attempt  已经尝试的次数(从1开始)
+     * @param response 本次请求的响应
+     * @param error    本次请求的异常
+     * @return 等待时间(毫秒)，负数表示不再重试
+     */
+    static long retryDelayMillis(Request request, int attempt, Response response, IOException error) {
+        String host = request.url().host();
+        RetryPolicy policy = configs.resolve(host);
+        if (policy == null) {
+            return -1L;
+        }
+        long delay = policy.retryDelayMillis(request, attempt, response, error);
+        if (delay < 0L || !budget(host).tryRetry()) {
+            return -1L;
+        }
+        return delay;
+    }
+
+    private static RetryBudget budget(String host) {
+        return budgets.computeIfAbsent(host, k -> new RetryBudget(budgetRatio, budgetReserve));
+    }
+}
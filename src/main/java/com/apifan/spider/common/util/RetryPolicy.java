@@ -0,0 +1,27 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+/**
+ * 重试策略
+ * 通过 RetryPolicies.configure 按域名注册后，HttpUtils的每个请求在失败时都会询问该策略是否重试
+ *
+ * @author yin
+ */
+public interface RetryPolicy {
+
+    /**
+     * 计算下次重试前需要等待的时间
+     * response 与 error 有且仅有一个不为null；返回负数表示不再重试
+     *
+     * @param request  请求
+     * @param attempt  已经尝试的次数(从1开始)
+     * @param response 本次请求的响应
+     * @param error    本次请求的异常
+     * @return 等待时间(毫秒)，负数表示不再重试
+     */
+    long retryDelayMillis(Request request, int attempt, Response response, IOException error);
+}
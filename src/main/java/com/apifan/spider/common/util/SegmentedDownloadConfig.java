@@ -0,0 +1,63 @@
+package com.apifan.spider.common.util;
+
+/**
+ * 分段下载配置
+ *
+ * @author yin
+ */
+public class SegmentedDownloadConfig {
+
+    /**
+     * 默认的最小分段大小(4MB)
+     */
+    public static final long DEFAULT_MIN_SEGMENT_SIZE = 4L * 1024 * 1024;
+
+    /**
+     * 默认的单个主机最大分段数
+     */
+    public static final int DEFAULT_MAX_SEGMENTS_PER_HOST = 8;
+
+    /**
+     * 最小分段大小(字节)，文件小于两个分段时不分段
+     */
+    private long minSegmentSize = DEFAULT_MIN_SEGMENT_SIZE;
+
+    /**
+     * 单个主机最大分段数(同时不超过Dispatcher的单主机并发上限)
+     */
+    private int maxSegmentsPerHost = DEFAULT_MAX_SEGMENTS_PER_HOST;
+
+    /**
+     * 构造函数(使用默认配置)
+     */
+    public SegmentedDownloadConfig() {
+        super();
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param minSegmentSize     最小分段大小(字节)
+     * @param maxSegmentsPerHost 单个主机最大分段数
+     */
+    public SegmentedDownloadConfig(long minSegmentSize, int maxSegmentsPerHost) {
+        this.minSegmentSize = minSegmentSize;
+        this.maxSegmentsPerHost = maxSegmentsPerHost;
+    }
+
+    public long getMinSegmentSize() {
+        return minSegmentSize;
+    }
+
+    public void setMinSegmentSize(long minSegmentSize) {
+        this.minSegmentSize = minSegmentSize;
+    }
+
+    public int getMaxSegmentsPerHost() {
+        return maxSegmentsPerHost;
+    }
+
+    public void setMaxSegmentsPerHost(int maxSegmentsPerHost) {
+        this.maxSegmentsPerHost = maxSegmentsPerHost;
+    }
+}
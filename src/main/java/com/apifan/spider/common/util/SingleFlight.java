@@ -0,0 +1,182 @@
+package com.apifan.spider.common.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 请求合并(single-flight)
+ * 相同key的并发调用只执行一次，其余调用等待并共享同一个结果；结果不可共享(如响应体过大)时，等待者各自重新执行。
+ * 调用完成后立即从表中移除，结果不会被缓存。
+ * 指定了复制方式时，可共享的结果每个调用者(包括执行者)各得到一份副本，原始结果不会交给任何调用者，调用者修改结果互不影响
+ *
+ * @param <K> key类型
+ * @param <V> 结果类型
+ * @author yin
+ */
+final class SingleFlight<K, V> {
+
+    /**
+     * 不复制结果
+     */
+    private static final UnaryOperator<Object> IDENTITY = UnaryOperator.identity();
+
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * 结果的复制方式
+     */
+    private final UnaryOperator<V> copier;
+
+    /**
+     * 共享了其他调用结果的次数
+     */
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * 构造函数(结果不可变，直接共享)
+     */
+    SingleFlight() {
+        this(identity());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param copier 结果的复制方式
+     */
+    SingleFlight(UnaryOperator<V> copier) {
+        this.copier = copier;
+    }
+
+    /**
+     * 同步执行
+     *
+     * @param key       key
+     * @param flight    实际的调用
+     * @param shareable 判断结果能否共享
+     * @return 结果
+     * @throws IOException 调用出现异常(等待者收到与执行者相同的异常)
+     */
+    V execute(K key, Flight<V> flight, Predicate<V> shareable) throws IOException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, future);
+        if (existing == null) {
+            try {
+                V result = flight.call();
+                future.complete(result);
+                return shareable.test(result) ? copy(result) : result;
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+                throw t;
+            } finally {
+                flights.remove(key, future);
+            }
+        }
+        V result;
+        try {
+            result = existing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待合并的请求时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        if (!shareable.test(result)) {
+            return flight.call();
+        }
+        shared.incrementAndGet();
+        return copy(result);
+    }
+
+    /**
+     * 异步执行
+     * 每个调用者得到独立的Future，取消它只会让该调用者放弃等待，不会取消共享的调用
+     *
+     * @param key       key
+     * @param flight    实际的调用
+     * @param shareable 判断结果能否共享
+     * @return 结果的Future
+     */
+    CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> flight, Predicate<V> shareable) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, future);
+        if (existing == null) {
+            CompletableFuture<V> call;
+            try {
+                call = flight.get();
+            } catch (RuntimeException e) {
+                flights.remove(key, future);
+                future.completeExceptionally(e);
+                throw e;
+            }
+            call.whenComplete((result, e) -> {
+                flights.remove(key, future);
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(result);
+                }
+            });
+            if (copier == IDENTITY) {
+                return call;
+            }
+            CompletableFuture<V> own = call.thenApply(result -> shareable.test(result) ? copy(result) : result);
+            //取消执行者的Future时仍然取消实际的调用
+            own.whenComplete((result, e) -> {
+                if (own.isCancelled()) {
+                    call.cancel(true);
+                }
+            });
+            return own;
+        }
+        return existing.thenCompose(result -> {
+            if (!shareable.test(result)) {
+                return flight.get();
+            }
+            shared.incrementAndGet();
+            return CompletableFuture.completedFuture(copy(result));
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> UnaryOperator<V> identity() {
+        return (UnaryOperator<V>) IDENTITY;
+    }
+
+    private V copy(V result) {
+        return result != null ? copier.apply(result) : null;
+    }
+
+    /**
+     * 共享了其他调用结果的次数
+     *
+     * @return
+     */
+    long getSharedCount() {
+        return shared.get();
+    }
+
+    /**
+     * 可抛出IOException的调用
+     *
+     * @param <V> 结果类型
+     */
+    interface Flight<V> {
+        V call() throws IOException;
+    }
+}
@@ -0,0 +1,41 @@
+package com.apifan.spider.common.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 流水线的输出阶段
+ * 流水线只用一个线程按顺序调用 write，实现不需要线程安全；
+ * 由调用方在流水线运行成功后提交，最后关闭
+ *
+ * @param <T> 数据项类型
+ * @author yin
+ */
+@FunctionalInterface
+public interface Sink<T> extends Closeable {
+
+    /**
+     * 输出一个数据项
+     *
+     * @param item 数据项
+     * @throws IOException
+     */
+    void write(T item) throws IOException;
+
+    /**
+     * 提交已输出的数据
+     *
+     * @throws IOException
+     */
+    default void commit() throws IOException {
+    }
+
+    /**
+     * 关闭，未提交的数据将被丢弃
+     *
+     * @throws IOException
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
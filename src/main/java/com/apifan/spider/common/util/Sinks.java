@@ -0,0 +1,106 @@
+package com.apifan.spider.common.util;
+
+import com.google.common.base.Charsets;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 常用的流水线输出
+ *
+ * @author yin
+ */
+public final class Sinks {
+
+    private Sinks() {
+    }
+
+    /**
+     * 收集到列表
+     *
+     * @param list 列表
+     * @param <T>  数据项类型
+     * @return 输出
+     */
+    public static <T> Sink<T> toList(List<? super T> list) {
+        return list::add;
+    }
+
+    /**
+     * 逐行写入文本文件(UTF-8)
+     * 边解析边写入同目录下的临时文件，提交时再重命名为目标文件；未提交就关闭时删除临时文件，保留原有的目标文件
+     *
+     * @param target    目标文件
+     * @param formatter 数据项转为一行文本(返回null的忽略)
+     * @param <T>       数据项类型
+     * @return 输出
+     * @throws IOException
+     */
+    public static <T> Sink<T> toLines(File target, Function<? super T, String> formatter) throws IOException {
+        return new LineFileSink<>(target, formatter);
+    }
+
+    /**
+     * 逐行写入文本文件的输出
+     *
+     * @param <T> 数据项类型
+     */
+    private static final class LineFileSink<T> implements Sink<T> {
+        private final File target;
+
+        private final File tmpFile;
+
+        private final Function<? super T, String> formatter;
+
+        private final Writer writer;
+
+        private boolean committed;
+
+        private boolean closed;
+
+        LineFileSink(File target, Function<? super T, String> formatter) throws IOException {
+            this.target = target;
+            this.tmpFile = FileUtils.createTempFileFor(target);
+            this.formatter = formatter;
+            this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), Charsets.UTF_8));
+        }
+
+        @Override
+        public void write(T item) throws IOException {
+            String line = formatter.apply(item);
+            if (line == null) {
+                return;
+            }
+            writer.write(line);
+            writer.write(System.lineSeparator());
+        }
+
+        @Override
+        public void commit() throws IOException {
+            if (committed || closed) {
+                return;
+            }
+            writer.close();
+            FileDownloader.moveAtomically(tmpFile, target);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!committed) {
+                writer.close();
+                FileUtils.deleteQuietly(tmpFile);
+            }
+        }
+    }
+}
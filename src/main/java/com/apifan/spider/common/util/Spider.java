@@ -0,0 +1,48 @@
+package com.apifan.spider.common.util;
+
+import java.time.Duration;
+
+/**
+ * 爬虫
+ * 各爬虫通过 META-INF/services/com.apifan.spider.common.util.Spider 注册，由 SpiderRunner 在同一个JVM中加载和运行，
+ * 共享 HttpUtils 的客户端、连接池、限流器和熔断器；实现类需要有无参构造函数，每次运行的参数都从 SpiderContext 获取
+ *
+ * @author yin
+ */
+public interface Spider {
+
+    /**
+     * 名称(唯一，同时作为输出目录名和配置前缀)
+     *
+     * @return
+     */
+    String getName();
+
+    /**
+     * 调度表达式
+     * 5段cron表达式(分 时 日 月 周，如 "0 3 * * *")，或固定频率(如 "@every 10m")
+     *
+     * @return 不需要定时运行时为null
+     */
+    default String getSchedule() {
+        return null;
+    }
+
+    /**
+     * 单次运行的超时时间
+     *
+     * @return 为null时使用 SpiderRunner 的默认超时时间
+     */
+    default Duration getTimeout() {
+        return null;
+    }
+
+    /**
+     * 运行一次
+     * 超时后运行线程会被中断，实现应在阻塞操作被中断时尽快退出
+     *
+     * @param context 运行上下文
+     * @throws Exception
+     */
+    void run(SpiderContext context) throws Exception;
+}
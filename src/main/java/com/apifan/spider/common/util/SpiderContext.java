@@ -0,0 +1,185 @@
+package com.apifan.spider.common.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 爬虫运行上下文
+ *
+ * @author yin
+ */
+public class SpiderContext {
+
+    /**
+     * 爬虫名称
+     */
+    private String name;
+
+    /**
+     * 输出路径(每个爬虫独立的目录)
+     */
+    private String basePath;
+
+    /**
+     * 代理服务器IP或主机名(不使用代理时为空)
+     */
+    private String proxyHost;
+
+    /**
+     * 代理服务器端口号
+     */
+    private int proxyPort = -1;
+
+    /**
+     * 代理服务器用户名
+     */
+    private String proxyUsername;
+
+    /**
+     * 代理服务器密码
+     */
+    private String proxyPassword;
+
+    /**
+     * 本次运行的开始时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 本次运行所属的时间段
+     */
+    private TimeBucket timeBucket;
+
+    /**
+     * 爬虫自定义参数
+     */
+    private Map<String, String> properties = new HashMap<>();
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getBasePath() {
+        return basePath;
+    }
+
+    public void setBasePath(String basePath) {
+        this.basePath = basePath;
+    }
+
+    public String getProxyHost() {
+        return proxyHost;
+    }
+
+    public void setProxyHost(String proxyHost) {
+        this.proxyHost = proxyHost;
+    }
+
+    public int getProxyPort() {
+        return proxyPort;
+    }
+
+    public void setProxyPort(int proxyPort) {
+        this.proxyPort = proxyPort;
+    }
+
+    public String getProxyUsername() {
+        return proxyUsername;
+    }
+
+    public void setProxyUsername(String proxyUsername) {
+        this.proxyUsername = proxyUsername;
+    }
+
+    public String getProxyPassword() {
+        return proxyPassword;
+    }
+
+    public void setProxyPassword(String proxyPassword) {
+        this.proxyPassword = proxyPassword;
+    }
+
+    /**
+     * 获取代理配置
+     *
+     * @return 不使用代理时为null
+     */
+    public HttpProxyConfig getHttpProxy() {
+        if (StringUtils.isEmpty(proxyHost)) {
+            return null;
+        }
+        return new HttpProxyConfig(proxyHost, proxyPort, proxyUsername, proxyPassword);
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public TimeBucket getTimeBucket() {
+        return timeBucket;
+    }
+
+    public void setTimeBucket(TimeBucket timeBucket) {
+        this.timeBucket = timeBucket;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public void setProperties(Map<String, String> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 获取自定义参数
+     *
+     * @param key 参数名
+     * @return 未设置时为null
+     */
+    public String getProperty(String key) {
+        return properties != null ? properties.get(key) : null;
+    }
+
+    /**
+     * 获取自定义参数
+     *
+     * @param key          参数名
+     * @param defaultValue 默认值
+     * @return 未设置时为默认值
+     */
+    public String getProperty(String key, String defaultValue) {
+        String value = getProperty(key);
+        return StringUtils.isNotBlank(value) ? value.trim() : defaultValue;
+    }
+
+    /**
+     * 获取整数类型的自定义参数
+     *
+     * @param key          参数名
+     * @param defaultValue 默认值
+     * @return 未设置时为默认值
+     */
+    public int getIntProperty(String key, int defaultValue) {
+        String value = getProperty(key);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("参数 " + key + " 不是整数: " + value);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.apifan.spider.common.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 爬虫任务线程池
+ * 默认使用固定大小的平台线程池；在JDK 21及以上版本启用虚拟线程模式(系统属性 spider.virtualThreads=true 或调用 setVirtualThreadsEnabled)后，
+ * 每个任务使用一个虚拟线程，并发数由信号量而不是线程池大小限制。
+ * 项目仍以Java 8编译，虚拟线程相关的API通过反射获取，低版本JDK上自动退回平台线程池。
+ * 有界线程池只接受有限数量的待执行任务，队列满时阻塞提交方或由提交方执行，内存占用不随任务总数增长
+ *
+ * @author yin
+ */
+public final class SpiderExecutors {
+    private static final Logger logger = LoggerFactory.getLogger(SpiderExecutors.class);
+
+    /**
+     * 启用虚拟线程模式的系统属性
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "spider.virtualThreads";
+
+    /**
+     * Thread.ofVirtual()，当前JDK不支持时为null
+     */
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+
+    /**
+     * Executors.newThreadPerTaskExecutor(ThreadFactory)，当前JDK不支持时为null
+     */
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = findMethod(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    /**
+     * 是否启用虚拟线程模式(为null时取系统属性)
+     */
+    private static volatile Boolean virtualThreadsEnabled;
+
+    private SpiderExecutors() {
+    }
+
+    /**
+     * 当前JDK是否支持虚拟线程
+     *
+     * @return
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return OF_VIRTUAL != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 是否使用虚拟线程模式
+     *
+     * @return 已启用且当前JDK支持时为true
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        Boolean enabled = virtualThreadsEnabled;
+        if (enabled == null) {
+            enabled = Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
+        }
+        return enabled && isVirtualThreadsSupported();
+    }
+
+    /**
+     * 启用或停用虚拟线程模式(覆盖系统属性，只影响之后创建的线程池)
+     *
+     * @param enabled 是否启用
+     */
+    public static void setVirtualThreadsEnabled(boolean enabled) {
+        if (enabled && !isVirtualThreadsSupported()) {
+            logger.warn("当前JDK {} 不支持虚拟线程，将继续使用平台线程池", System.getProperty("java.version"));
+        }
+        virtualThreadsEnabled = enabled;
+    }
+
+    /**
+     * 创建任务线程池
+     *
+     * @param name        线程名前缀
+     * @param concurrency 最大并发任务数
+     * @return 线程池
+     */
+    public static ExecutorService newExecutor(String name, int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("最大并发任务数必须大于0");
+        }
+        if (isVirtualThreadsEnabled()) {
+            try {
+                logger.debug("创建虚拟线程池 {}，最大并发任务数 {}", name, concurrency);
+                return new ConcurrencyLimitedExecutor(newVirtualThreadPerTaskExecutor(name), concurrency);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("无法创建虚拟线程池，将使用平台线程池", e);
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(concurrency, r -> new Thread(r, name + "-" + counter.incrementAndGet()));
+    }
+
+    /**
+     * 创建有界任务线程池
+     * 已提交未开始的任务超过队列容量(高水位)时按策略阻塞提交方或由提交方执行
+     *
+     * @param name          线程名前缀
+     * @param concurrency   最大并发任务数
+     * @param queueCapacity 队列容量
+     * @param policy        队列已满时的提交策略
+     * @return 线程池
+     */
+    public static ExecutorService newBoundedExecutor(String name, int concurrency, int queueCapacity, QueueFullPolicy policy) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("最大并发任务数必须大于0");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("队列容量必须大于0");
+        }
+        if (isVirtualThreadsEnabled()) {
+            try {
+                logger.debug("创建有界虚拟线程池 {}，最大并发任务数 {}，队列容量 {}", name, concurrency, queueCapacity);
+                return new ConcurrencyLimitedExecutor(newVirtualThreadPerTaskExecutor(name), concurrency, queueCapacity, policy);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("无法创建虚拟线程池，将使用平台线程池", e);
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        RejectedExecutionHandler handler = policy == QueueFullPolicy.CALLER_RUNS ? new ThreadPoolExecutor.CallerRunsPolicy() : SpiderExecutors::blockUntilQueued;
+        return new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, name + "-" + counter.incrementAndGet()), handler);
+    }
+
+    /**
+     * 有序关闭线程池
+     * 不再接受新任务，等待已提交的任务执行完毕；超时或被中断时取消剩余任务
+     *
+     * @param executor 线程池
+     * @param timeout  等待时间
+     * @param unit     时间单位
+     * @return 所有任务是否都已执行完毕
+     */
+    public static boolean shutdownAndAwait(ExecutorService executor, long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeout, unit)) {
+                return true;
+            }
+            List<Runnable> dropped = executor.shutdownNow();
+            logger.warn("等待线程池关闭超时，取消了 {} 个未执行的任务", dropped.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            List<Runnable> dropped = executor.shutdownNow();
+            logger.warn("等待线程池关闭时被中断，取消了 {} 个未执行的任务", dropped.size());
+        }
+        return false;
+    }
+
+    /**
+     * 队列已满时阻塞提交方直到任务入队
+     *
+     * @param task     任务
+     * @param executor 线程池
+     */
+    private static void blockUntilQueued(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("线程池已关闭");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("等待提交任务时被中断", e);
+        }
+        //入队期间线程池被关闭时撤回任务
+        if (executor.isShutdown() && executor.remove(task)) {
+            throw new RejectedExecutionException("线程池已关闭");
+        }
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池
+     * 相当于 Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory())
+     *
+     * @param name 线程名前缀
+     * @return 线程池
+     * @throws ReflectiveOperationException
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String name) throws ReflectiveOperationException {
+        Object builder = OF_VIRTUAL.invoke(null);
+        Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+        builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+        ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
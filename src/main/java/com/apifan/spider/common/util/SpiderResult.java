@@ -0,0 +1,101 @@
+package com.apifan.spider.common.util;
+
+import java.time.LocalDateTime;
+
+/**
+ * 爬虫运行结果
+ *
+ * @author yin
+ */
+public class SpiderResult {
+
+    /**
+     * 爬虫名称
+     */
+    private String name;
+
+    /**
+     * 是否成功
+     */
+    private boolean success;
+
+    /**
+     * 是否超时
+     */
+    private boolean timedOut;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 耗时(毫秒)
+     */
+    private long elapsedMillis;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public void setTimedOut(boolean timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SpiderResult{" +
+                "name='" + name + '\'' +
+                ", success=" + success +
+                ", timedOut=" + timedOut +
+                ", errorMessage='" + errorMessage + '\'' +
+                ", startTime=" + startTime +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,393 @@
+package com.apifan.spider.common.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 爬虫运行器
+ * 在同一个JVM中并发运行多个爬虫，共享 HttpUtils 的客户端、连接池、限流器和熔断器，省去每个爬虫单独启动JVM和预热的开销；
+ * 每个爬虫的异常和超时互相隔离：失败只记录在各自的运行结果中，超时后中断该爬虫的运行线程，不影响其他爬虫
+ *
+ * @author yin
+ */
+public class SpiderRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SpiderRunner.class);
+
+    /**
+     * 默认超时时间(分钟)
+     */
+    public static final long DEFAULT_TIMEOUT_MINUTES = 30L;
+
+    /**
+     * 默认并发运行的爬虫数
+     */
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    /**
+     * 超时中断后等待爬虫退出的时间(秒)，仍未退出的放弃等待
+     */
+    private static final long ABANDON_GRACE_SECONDS = 30L;
+
+    /**
+     * 单次运行的状态：运行中、正常结束、看门狗正在中断、已超时中断
+     */
+    private static final int RUNNING = 0;
+    private static final int FINISHED = 1;
+    private static final int INTERRUPTING = 2;
+    private static final int TIMED_OUT = 3;
+
+    /**
+     * 系统属性前缀
+     */
+    private static final String PROPERTY_PREFIX = "spider.";
+
+    /**
+     * 超时中断用的定时器
+     */
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "spider-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 输出根路径(每个爬虫输出到以其名称命名的子目录)
+     */
+    private final String basePath;
+
+    /**
+     * 并发运行的爬虫数
+     */
+    private int concurrency = DEFAULT_CONCURRENCY;
+
+    /**
+     * 默认超时时间
+     */
+    private Duration defaultTimeout = Duration.ofMinutes(DEFAULT_TIMEOUT_MINUTES);
+
+    private String proxyHost;
+
+    private int proxyPort = -1;
+
+    private String proxyUsername;
+
+    private String proxyPassword;
+
+    /**
+     * 爬虫自定义参数(爬虫名称 -> 参数)
+     */
+    private final Map<String, Map<String, String>> properties = new HashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param basePath 输出根路径(为空时使用当前系统用户的主目录)
+     */
+    public SpiderRunner(String basePath) {
+        this.basePath = StringUtils.isNotEmpty(basePath) ? basePath : FileUtils.getUserDirectoryPath() + File.separator + "spider";
+    }
+
+    /**
+     * 加载所有已注册的爬虫
+     *
+     * @return 爬虫列表
+     */
+    public static List<Spider> loadSpiders() {
+        List<Spider> spiders = new ArrayList<>();
+        for (Spider spider : ServiceLoader.load(Spider.class)) {
+            spiders.add(spider);
+        }
+        return spiders;
+    }
+
+    public String getBasePath() {
+        return basePath;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("并发数必须大于0");
+        }
+        this.concurrency = concurrency;
+    }
+
+    public Duration getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    public void setDefaultTimeout(Duration defaultTimeout) {
+        if (defaultTimeout == null || defaultTimeout.isNegative() || defaultTimeout.isZero()) {
+            throw new IllegalArgumentException("超时时间必须大于0");
+        }
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * 设置所有爬虫使用的代理
+     *
+     * @param proxyHost     代理服务器IP或主机名(为空时不使用代理)
+     * @param proxyPort     代理服务器端口号
+     * @param proxyUsername 代理服务器用户名(代理服务器不需验证时留空)
+     * @param proxyPassword 代理服务器密码(代理服务器不需验证时留空)
+     */
+    public void setProxy(String proxyHost, int proxyPort, String proxyUsername, String proxyPassword) {
+        this.proxyHost = proxyHost;
+        this.proxyPort = proxyPort;
+        this.proxyUsername = proxyUsername;
+        this.proxyPassword = proxyPassword;
+    }
+
+    /**
+     * 设置爬虫自定义参数
+     *
+     * @param spiderName 爬虫名称
+     * @param key        参数名
+     * @param value      参数值
+     */
+    public synchronized void setProperty(String spiderName, String key, String value) {
+        properties.computeIfAbsent(spiderName, k -> new HashMap<>()).put(key, value);
+    }
+
+    /**
+     * 在当前线程运行一个爬虫(所属时间段为当天)
+     *
+     * @param spider 爬虫
+     * @return 运行结果(不抛出异常)
+     */
+    public SpiderResult run(Spider spider) {
+        return run(spider, null);
+    }
+
+    /**
+     * 在当前线程运行一个爬虫
+     *
+     * @param spider     爬虫
+     * @param timeBucket 本次运行所属的时间段(为null时为当天)
+     * @return 运行结果(不抛出异常)
+     */
+    public SpiderResult run(Spider spider, TimeBucket timeBucket) {
+        SpiderContext context = newContext(spider, timeBucket);
+        SpiderResult result = new SpiderResult();
+        result.setName(spider.getName());
+        result.setStartTime(context.getStartTime());
+        Duration timeout = getTimeout(spider);
+        Thread worker = Thread.currentThread();
+        //运行结束和超时中断只有一方生效：看门狗只在仍为RUNNING时中断，运行线程只在仍为RUNNING时记为正常结束
+        AtomicInteger state = new AtomicInteger(RUNNING);
+        long start = System.nanoTime();
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            if (state.compareAndSet(RUNNING, INTERRUPTING)) {
+                logger.warn("爬虫 {} 运行超过 {}，中断运行", spider.getName(), timeout);
+                worker.interrupt();
+                state.set(TIMED_OUT);
+            }
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        Throwable failure = null;
+        try {
+            logger.info("开始运行爬虫 {}，时间段 {}，输出路径 {}", spider.getName(), context.getTimeBucket(), context.getBasePath());
+            FileUtils.forceMkdir(new File(context.getBasePath()));
+            spider.run(context);
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            watchdog.cancel(false);
+            if (!state.compareAndSet(RUNNING, FINISHED)) {
+                //看门狗已开始中断，等它完成后再清除中断标记
+                while (state.get() == INTERRUPTING) {
+                    Thread.yield();
+                }
+            }
+            //清除中断标记，避免影响线程池中的下一个任务
+            Thread.interrupted();
+        }
+        boolean timedOut = state.get() == TIMED_OUT;
+        if (failure != null) {
+            result.setErrorMessage(failure.toString());
+            if (!timedOut) {
+                logger.error("爬虫 {} 运行失败", spider.getName(), failure);
+            }
+        } else {
+            result.setSuccess(!timedOut);
+        }
+        result.setTimedOut(timedOut);
+        if (timedOut) {
+            result.setErrorMessage("运行超时(" + timeout + ")");
+        }
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.info("{}", result);
+        return result;
+    }
+
+    /**
+     * 并发运行多个爬虫
+     * 最多同时运行 concurrency 个，全部结束(或超时后放弃等待)时返回
+     *
+     * @param spiders 爬虫
+     * @return 运行结果，顺序与参数一致
+     */
+    public List<SpiderResult> runAll(Collection<? extends Spider> spiders) {
+        ExecutorService pool = SpiderExecutors.newExecutor("spider-runner", concurrency);
+        Map<Spider, Future<SpiderResult>> futures = new LinkedHashMap<>();
+        long maxTimeoutMillis = 0L;
+        for (Spider spider : spiders) {
+            futures.put(spider, pool.submit(() -> run(spider)));
+            maxTimeoutMillis = Math.max(maxTimeoutMillis, getTimeout(spider).toMillis());
+        }
+        pool.shutdown();
+
+        //每个爬虫都在超时时被中断，最坏情况下按批次依次超时
+        long rounds = (futures.size() + concurrency - 1) / concurrency;
+        long waitMillis = rounds * maxTimeoutMillis + TimeUnit.SECONDS.toMillis(ABANDON_GRACE_SECONDS);
+        try {
+            if (!pool.awaitTermination(waitMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("部分爬虫在超时中断后仍未退出，放弃等待");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("等待爬虫运行结束时被中断");
+        }
+        pool.shutdownNow();
+
+        List<SpiderResult> results = new ArrayList<>(futures.size());
+        for (Map.Entry<Spider, Future<SpiderResult>> entry : futures.entrySet()) {
+            results.add(getResult(entry.getKey(), entry.getValue()));
+        }
+        return results;
+    }
+
+    /**
+     * 创建运行上下文
+     *
+     * @param spider     爬虫
+     * @param timeBucket 本次运行所属的时间段(为null时为当天)
+     * @return
+     */
+    SpiderContext newContext(Spider spider, TimeBucket timeBucket) {
+        SpiderContext context = new SpiderContext();
+        context.setName(spider.getName());
+        context.setBasePath(basePath + File.separator + spider.getName());
+        context.setProxyHost(proxyHost);
+        context.setProxyPort(proxyPort);
+        context.setProxyUsername(proxyUsername);
+        context.setProxyPassword(proxyPassword);
+        context.setStartTime(LocalDateTime.now());
+        context.setTimeBucket(timeBucket != null ? timeBucket : TimeBucket.dayOf(ZonedDateTime.now()));
+        synchronized (this) {
+            context.setProperties(new HashMap<>(properties.getOrDefault(spider.getName(), new HashMap<>())));
+        }
+        return context;
+    }
+
+    private Duration getTimeout(Spider spider) {
+        Duration timeout = spider.getTimeout();
+        return timeout != null ? timeout : defaultTimeout;
+    }
+
+    private static SpiderResult getResult(Spider spider, Future<SpiderResult> future) {
+        if (future.isDone() && !future.isCancelled()) {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                SpiderResult result = new SpiderResult();
+                result.setName(spider.getName());
+                result.setErrorMessage(e.getCause().toString());
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        future.cancel(true);
+        SpiderResult result = new SpiderResult();
+        result.setName(spider.getName());
+        result.setTimedOut(true);
+        result.setErrorMessage("超时后仍未结束");
+        return result;
+    }
+
+    /**
+     * 按系统属性创建运行器
+     * spider.basePath、spider.concurrency、spider.timeoutMinutes、spider.proxy.host/port/username/password，
+     * 以及爬虫自定义参数 spider.[爬虫名称].[参数名]
+     *
+     * @param spiders 要运行的爬虫(用于读取各自的自定义参数)
+     * @return 运行器
+     */
+    static SpiderRunner fromSystemProperties(List<Spider> spiders) {
+        SpiderRunner runner = new SpiderRunner(System.getProperty(PROPERTY_PREFIX + "basePath"));
+        runner.setConcurrency(Integer.getInteger(PROPERTY_PREFIX + "concurrency", DEFAULT_CONCURRENCY));
+        runner.setDefaultTimeout(Duration.ofMinutes(Long.getLong(PROPERTY_PREFIX + "timeoutMinutes", DEFAULT_TIMEOUT_MINUTES)));
+        runner.setProxy(System.getProperty(PROPERTY_PREFIX + "proxy.host"), Integer.getInteger(PROPERTY_PREFIX + "proxy.port", -1),
+                System.getProperty(PROPERTY_PREFIX + "proxy.username"), System.getProperty(PROPERTY_PREFIX + "proxy.password"));
+        for (Spider spider : spiders) {
+            String prefix = PROPERTY_PREFIX + spider.getName() + ".";
+            for (String key : System.getProperties().stringPropertyNames()) {
+                if (key.startsWith(prefix)) {
+                    runner.setProperty(spider.getName(), key.substring(prefix.length()), System.getProperty(key));
+                }
+            }
+        }
+        return runner;
+    }
+
+    /**
+     * 加载指定名称的已注册爬虫
+     *
+     * @param names 爬虫名称，为空时返回全部
+     * @return 爬虫列表
+     */
+    static List<Spider> loadSpiders(String... names) {
+        List<Spider> spiders = loadSpiders();
+        if (names.length > 0) {
+            List<String> nameList = Arrays.asList(names);
+            List<Spider> all = new ArrayList<>(spiders);
+            spiders.removeIf(spider -> !nameList.contains(spider.getName()));
+            if (spiders.size() < nameList.size()) {
+                logger.warn("部分爬虫未注册，已注册的爬虫: {}", all.stream().map(Spider::getName).toArray());
+            }
+        }
+        return spiders;
+    }
+
+    /**
+     * 运行已注册的爬虫
+     * 参数为要运行的爬虫名称，为空时运行全部；配置通过系统属性指定，见 fromSystemProperties
+     *
+     * @param args 爬虫名称
+     */
+    public static void main(String[] args) {
+        List<Spider> spiders = loadSpiders(args);
+        SpiderRunner runner = fromSystemProperties(spiders);
+        List<SpiderResult> results = runner.runAll(spiders);
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        logger.info("运行结束，成功 {} 个，失败 {} 个", results.size() - failed, failed);
+        System.exit(failed > 0 ? 1 : 0);
+    }
+}
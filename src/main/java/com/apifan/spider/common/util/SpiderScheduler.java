@@ -0,0 +1,296 @@
+package com.apifan.spider.common.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 爬虫定时调度器
+ * 在一个长期运行的进程中按cron或固定频率定时运行爬虫：
+ * 每次触发加上随机抖动，避免多个爬虫同时请求；上一次运行(含排队)尚未结束时跳过本次触发；
+ * 错过的触发(如进程暂停)不补跑，直接等待下一次。
+ * 每次运行所属的时间段从计划触发时间开始、长度为到下一次触发的间隔，爬虫据此命名输出文件和判断缓存是否需要重新校验
+ *
+ * @author yin
+ */
+public class SpiderScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(SpiderScheduler.class);
+
+    /**
+     * 默认的最大抖动
+     */
+    public static final Duration DEFAULT_MAX_JITTER = Duration.ofSeconds(30L);
+
+    private final SpiderRunner runner;
+
+    private final ZoneId zone;
+
+    /**
+     * 计时线程
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * 运行爬虫的线程池
+     */
+    private final ExecutorService workers;
+
+    /**
+     * 爬虫名称 -> 调度任务
+     */
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 最大抖动(实际不超过调度间隔的一半)
+     */
+    private volatile Duration maxJitter = DEFAULT_MAX_JITTER;
+
+    private volatile boolean shutdown;
+
+    /**
+     * 构造函数(使用系统默认时区)
+     *
+     * @param runner 运行器
+     */
+    public SpiderScheduler(SpiderRunner runner) {
+        this(runner, ZoneId.systemDefault());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param runner 运行器
+     * @param zone   计算cron触发时间的时区
+     */
+    public SpiderScheduler(SpiderRunner runner, ZoneId zone) {
+        this.runner = runner;
+        this.zone = zone;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "spider-scheduler"));
+        this.workers = SpiderExecutors.newExecutor("spider-scheduled", runner.getConcurrency());
+    }
+
+    public Duration getMaxJitter() {
+        return maxJitter;
+    }
+
+    public void setMaxJitter(Duration maxJitter) {
+        if (maxJitter == null || maxJitter.isNegative()) {
+            throw new IllegalArgumentException("最大抖动不能为负数");
+        }
+        this.maxJitter = maxJitter;
+    }
+
+    /**
+     * 按爬虫自身的调度表达式定时运行
+     *
+     * @param spider 爬虫
+     */
+    public void schedule(Spider spider) {
+        if (spider.getSchedule() == null) {
+            throw new IllegalArgumentException("爬虫 " + spider.getName() + " 没有调度表达式");
+        }
+        schedule(spider, Triggers.parse(spider.getSchedule()));
+    }
+
+    /**
+     * 按指定的触发器定时运行
+     *
+     * @param spider  爬虫
+     * @param trigger 触发器
+     */
+    public void schedule(Spider spider, Trigger trigger) {
+        if (shutdown) {
+            throw new IllegalStateException("调度器已关闭");
+        }
+        Job job = new Job(spider, trigger);
+        if (jobs.putIfAbsent(spider.getName(), job) != null) {
+            throw new IllegalArgumentException("爬虫 " + spider.getName() + " 已在调度中");
+        }
+        //固定频率从整秒开始计算，时间段标识不带毫秒
+        ZonedDateTime now = ZonedDateTime.now(zone).truncatedTo(ChronoUnit.SECONDS);
+        logger.info("调度爬虫 {}: {}，下一次触发时间 {}", spider.getName(), trigger, trigger.next(now));
+        scheduleNext(job, now);
+    }
+
+    /**
+     * 爬虫是否正在运行(或已触发正在排队)
+     *
+     * @param name 爬虫名称
+     * @return
+     */
+    public boolean isRunning(String name) {
+        Job job = jobs.get(name);
+        return job != null && job.running.get();
+    }
+
+    /**
+     * 因上一次运行尚未结束而跳过的触发次数
+     *
+     * @param name 爬虫名称
+     * @return
+     */
+    public long getSkippedCount(String name) {
+        Job job = jobs.get(name);
+        return job != null ? job.skipped.get() : 0L;
+    }
+
+    /**
+     * 停止调度并等待正在运行的爬虫结束
+     *
+     * @param timeout 等待时间
+     * @param unit    时间单位
+     * @return 是否都已结束
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        shutdown = true;
+        for (Job job : jobs.values()) {
+            ScheduledFuture<?> future = job.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+        timer.shutdownNow();
+        return SpiderExecutors.shutdownAndAwait(workers, timeout, unit);
+    }
+
+    /**
+     * 安排下一次触发
+     *
+     * @param job   调度任务
+     * @param after 上一次计划触发时间
+     */
+    private void scheduleNext(Job job, ZonedDateTime after) {
+        if (shutdown) {
+            return;
+        }
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        ZonedDateTime fireTime = job.trigger.next(after);
+        if (fireTime != null && fireTime.isBefore(now)) {
+            logger.warn("爬虫 {} 错过了 {} 的触发", job.spider.getName(), fireTime);
+            fireTime = job.trigger.next(now);
+        }
+        if (fireTime == null) {
+            logger.info("爬虫 {} 不会再触发", job.spider.getName());
+            return;
+        }
+        ZonedDateTime nextFireTime = job.trigger.next(fireTime);
+        Duration period = nextFireTime != null ? Duration.between(fireTime, nextFireTime) : Duration.ofDays(1L);
+        long delayMillis = Duration.between(now, fireTime).toMillis() + jitterMillis(period);
+        ZonedDateTime scheduledTime = fireTime;
+        try {
+            job.future = timer.schedule(() -> fire(job, scheduledTime, period), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("调度器已关闭，不再安排爬虫 {}", job.spider.getName());
+        }
+    }
+
+    /**
+     * 触发一次运行
+     *
+     * @param job       调度任务
+     * @param fireTime  计划触发时间
+     * @param period    到下一次触发的间隔
+     */
+    private void fire(Job job, ZonedDateTime fireTime, Duration period) {
+        //先安排下一次触发，触发间隔不受运行耗时影响
+        scheduleNext(job, fireTime);
+        if (!job.running.compareAndSet(false, true)) {
+            job.skipped.incrementAndGet();
+            logger.warn("爬虫 {} 上一次运行尚未结束，跳过 {} 的触发", job.spider.getName(), fireTime);
+            return;
+        }
+        TimeBucket bucket = new TimeBucket(fireTime, period);
+        try {
+            workers.execute(() -> {
+                try {
+                    runner.run(job.spider, bucket);
+                } finally {
+                    job.running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            job.running.set(false);
+            logger.debug("调度器已关闭，取消爬虫 {} 的运行", job.spider.getName());
+        }
+    }
+
+    private long jitterMillis(Duration period) {
+        long bound = Math.min(maxJitter.toMillis(), period.toMillis() / 2);
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound) : 0L;
+    }
+
+    /**
+     * 调度任务
+     */
+    private static final class Job {
+        private final Spider spider;
+
+        private final Trigger trigger;
+
+        /**
+         * 是否正在运行
+         */
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        /**
+         * 跳过的触发次数
+         */
+        private final AtomicLong skipped = new AtomicLong();
+
+        /**
+         * 下一次触发
+         */
+        private volatile ScheduledFuture<?> future;
+
+        Job(Spider spider, Trigger trigger) {
+            this.spider = spider;
+            this.trigger = trigger;
+        }
+    }
+
+    /**
+     * 定时运行已注册的爬虫
+     * 参数为要调度的爬虫名称，为空时调度全部有调度表达式的爬虫；
+     * 调度表达式可以用系统属性 spider.[爬虫名称].schedule 覆盖，最大抖动用 spider.maxJitterSeconds 指定；其他配置见 SpiderRunner
+     *
+     * @param args 爬虫名称
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws InterruptedException {
+        List<Spider> spiders = SpiderRunner.loadSpiders(args);
+        SpiderRunner runner = SpiderRunner.fromSystemProperties(spiders);
+        SpiderScheduler scheduler = new SpiderScheduler(runner);
+        scheduler.setMaxJitter(Duration.ofSeconds(Long.getLong("spider.maxJitterSeconds", DEFAULT_MAX_JITTER.getSeconds())));
+        for (Spider spider : spiders) {
+            String schedule = System.getProperty("spider." + spider.getName() + ".schedule", spider.getSchedule());
+            if (schedule == null) {
+                logger.info("爬虫 {} 没有调度表达式，不参与调度", spider.getName());
+                continue;
+            }
+            scheduler.schedule(spider, Triggers.parse(schedule));
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            scheduler.shutdown(1L, TimeUnit.MINUTES);
+            stopped.countDown();
+        }, "spider-scheduler-shutdown"));
+        stopped.await();
+    }
+}
@@ -0,0 +1,132 @@
+package com.apifan.spider.common.util;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * 时间段
+ * 每次运行所属的时间段，标识(key)用于输出文件名和缓存有效期：同一时间段内的重复运行复用缓存，进入新的时间段后重新抓取。
+ * 单独运行时为当天(标识为 yyyyMMdd，与以前按天输出的文件名一致)，定时运行时从计划触发时间开始、长度为调度间隔
+ *
+ * @author yin
+ */
+public final class TimeBucket {
+
+    private static final Duration ONE_DAY = Duration.ofDays(1L);
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final DateTimeFormatter MINUTE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmm");
+
+    private static final DateTimeFormatter SECOND_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private static final DateTimeFormatter MILLIS_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    /**
+     * 开始时间
+     */
+    private final ZonedDateTime start;
+
+    /**
+     * 长度
+     */
+    private final Duration length;
+
+    /**
+     * 构造函数
+     *
+     * @param start  开始时间
+     * @param length 长度
+     */
+    public TimeBucket(ZonedDateTime start, Duration length) {
+        if (start == null || length == null || length.isNegative() || length.isZero()) {
+            throw new IllegalArgumentException("时间段的开始时间和长度不能为空且长度必须大于0");
+        }
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * 某个时间所在的自然日
+     *
+     * @param time 时间
+     * @return 时间段
+     */
+    public static TimeBucket dayOf(ZonedDateTime time) {
+        return new TimeBucket(time.truncatedTo(ChronoUnit.DAYS), ONE_DAY);
+    }
+
+    public ZonedDateTime getStart() {
+        return start;
+    }
+
+    public Duration getLength() {
+        return length;
+    }
+
+    /**
+     * 开始时间(毫秒时间戳)
+     *
+     * @return
+     */
+    public long getStartMillis() {
+        return start.toInstant().toEpochMilli();
+    }
+
+    /**
+     * 时间段标识
+     * 从零点开始的整天为 yyyyMMdd，否则为 yyyyMMddHHmm；
+     * 长度不足1分钟或开始时间不在整分钟时为 yyyyMMddHHmmss，开始时间不在整秒时再加上毫秒
+     *
+     * @return
+     */
+    public String getKey() {
+        if (length.compareTo(ONE_DAY) >= 0 && start.toLocalTime().equals(LocalTime.MIDNIGHT)) {
+            return start.format(DAY_FORMATTER);
+        }
+        if (start.getNano() != 0) {
+            return start.format(MILLIS_FORMATTER);
+        }
+        if (length.getSeconds() < 60L || start.getSecond() != 0) {
+            return start.format(SECOND_FORMATTER);
+        }
+        return start.format(MINUTE_FORMATTER);
+    }
+
+    /**
+     * 是否包含某个时间
+     *
+     * @param millis 毫秒时间戳
+     * @return
+     */
+    public boolean contains(long millis) {
+        long startMillis = getStartMillis();
+        return millis >= startMillis && millis - startMillis < length.toMillis();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TimeBucket that = (TimeBucket) o;
+        return start.equals(that.start) && length.equals(that.length);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, length);
+    }
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+}
@@ -0,0 +1,96 @@
+package com.apifan.spider.common.util;
+
+/**
+ * 令牌桶
+ * 令牌按固定速率补充，最多积累burst个；令牌不足时允许预支，返回需要等待的时间，
+ * 因此调用方可以自行决定如何等待(阻塞当前线程或延迟调度)
+ *
+ * @author yin
+ */
+final class TokenBucket {
+
+    /**
+     * 每秒补充的令牌数
+     */
+    private final double permitsPerSecond;
+
+    /**
+     * 最多积累的令牌数
+     */
+    private final int burst;
+
+    /**
+     * 当前令牌数(预支时为负数)
+     */
+    private double tokens;
+
+    /**
+     * 上次补充令牌的时间(纳秒)
+     */
+    private long lastRefillNanos;
+
+    /**
+     * 创建时间(纳秒)
+     */
+    private final long createdNanos;
+
+    private long acquired;
+
+    private long delayed;
+
+    private long totalWaitNanos;
+
+    private long maxWaitNanos;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0D) {
+            throw new IllegalArgumentException("速率必须大于0");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.createdNanos = System.nanoTime();
+        this.lastRefillNanos = createdNanos;
+    }
+
+    /**
+     * 预定一个令牌
+     *
+     * @return 获得令牌前需要等待的时间(纳秒)，0表示无需等待
+     */
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerSecond / 1e9);
+        lastRefillNanos = now;
+        long waitNanos = 0L;
+        if (tokens < 1D) {
+            waitNanos = (long) Math.ceil((1D - tokens) / permitsPerSecond * 1e9);
+            delayed++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        }
+        tokens -= 1D;
+        acquired++;
+        return waitNanos;
+    }
+
+    /**
+     * 获取统计数据
+     *
+     * @param host 主机名
+     * @return 统计数据
+     */
+    synchronized RateLimiterMetrics metrics(String host) {
+        RateLimiterMetrics metrics = new RateLimiterMetrics();
+        metrics.setHost(host);
+        metrics.setPermitsPerSecond(permitsPerSecond);
+        metrics.setBurst(burst);
+        metrics.setAcquired(acquired);
+        metrics.setDelayed(delayed);
+        metrics.setTotalWaitMillis(totalWaitNanos / 1_000_000L);
+        metrics.setMaxWaitMillis(maxWaitNanos / 1_000_000L);
+        double elapsedSeconds = (System.nanoTime() - createdNanos) / 1e9;
+        metrics.setObservedPermitsPerSecond(elapsedSeconds > 0D ? acquired / elapsedSeconds : 0D);
+        return metrics;
+    }
+}
@@ -0,0 +1,19 @@
+package com.apifan.spider.common.util;
+
+import java.time.ZonedDateTime;
+
+/**
+ * 调度触发器
+ *
+ * @author yin
+ */
+public interface Trigger {
+
+    /**
+     * 计算下一次触发时间
+     *
+     * @param after 上一次触发时间(或开始调度的时间)
+     * @return 严格晚于 after 的下一次触发时间，不再触发时为null
+     */
+    ZonedDateTime next(ZonedDateTime after);
+}
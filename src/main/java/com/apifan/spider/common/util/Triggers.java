@@ -0,0 +1,84 @@
+package com.apifan.spider.common.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * 触发器工具类
+ *
+ * @author yin
+ */
+public final class Triggers {
+
+    private static final String EVERY = "@every";
+
+    private Triggers() {
+    }
+
+    /**
+     * 解析调度表达式
+     * 支持5段cron表达式、固定频率("@every 30s"、"@every 10m"、"@every 2h"、"@every 1d" 或ISO-8601格式如 "@every PT10M")，
+     * 以及 @hourly、@daily(@midnight)、@weekly、@monthly、@yearly(@annually)
+     *
+     * @param expression 调度表达式
+     * @return 触发器
+     */
+    public static Trigger parse(String expression) {
+        String value = StringUtils.trimToEmpty(expression);
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("调度表达式为空");
+        }
+        if (StringUtils.startsWithIgnoreCase(value, EVERY)) {
+            return new FixedRateTrigger(parseDuration(value.substring(EVERY.length()).trim()));
+        }
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "@hourly":
+                return new CronTrigger("0 * * * *");
+            case "@daily":
+            case "@midnight":
+                return new CronTrigger("0 0 * * *");
+            case "@weekly":
+                return new CronTrigger("0 0 * * 0");
+            case "@monthly":
+                return new CronTrigger("0 0 1 * *");
+            case "@yearly":
+            case "@annually":
+                return new CronTrigger("0 0 1 1 *");
+            default:
+                return new CronTrigger(value);
+        }
+    }
+
+    /**
+     * 解析时长
+     *
+     * @param value 如 30s、10m、2h、1d，或ISO-8601格式
+     * @return 时长
+     */
+    static Duration parseDuration(String value) {
+        try {
+            if (StringUtils.startsWithIgnoreCase(value, "P")) {
+                return Duration.parse(value);
+            }
+            long amount = Long.parseLong(value.substring(0, value.length() - 1).trim());
+            switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+                case 's':
+                    return Duration.ofSeconds(amount);
+                case 'm':
+                    return Duration.ofMinutes(amount);
+                case 'h':
+                    return Duration.ofHours(amount);
+                case 'd':
+                    return Duration.ofDays(amount);
+                default:
+                    break;
+            }
+        } catch (NumberFormatException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            //按格式错误处理
+        }
+        throw new IllegalArgumentException("时长格式错误: " + value);
+    }
+}
@@ -0,0 +1,458 @@
+package com.apifan.spider.common.util;
+
+import com.google.common.base.Charsets;
+import okhttp3.HttpUrl;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * URL待抓取队列
+ * 按深度(小的优先)和分值(大的优先)排序，已加入过的URL不会重复加入；
+ * 每个主机一个子队列，同一主机两次取出之间至少间隔礼貌时间，多个主机轮流取出；
+ * 指定检查点文件时，加入、完成的URL都追加写入该文件，中断后用同一文件重新创建即可从中断处继续：
+ * 已完成的URL不再取出，未完成(含取出后未完成)的URL重新排队
+ *
+ * @author yin
+ */
+public class UrlFrontier implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(UrlFrontier.class);
+
+    /**
+     * 检查点记录：加入
+     */
+    private static final String OP_ADD = "A";
+
+    /**
+     * 检查点记录：完成
+     */
+    private static final String OP_DONE = "D";
+
+    private static final String SEPARATOR = "\t";
+
+    private static final Comparator<FrontierUrl> PRIORITY = Comparator.comparingInt(FrontierUrl::getDepth)
+            .thenComparing(Comparator.comparingDouble(FrontierUrl::getScore).reversed())
+            .thenComparingLong(FrontierUrl::getSequence);
+
+    /**
+     * 已加入过的URL
+     */
+    private final Set<String> seen = new HashSet<>();
+
+    /**
+     * 已完成的URL
+     */
+    private final Set<String> done = new HashSet<>();
+
+    /**
+     * 已取出未完成的URL
+     */
+    private final Map<String, FrontierUrl> inFlight = new HashMap<>();
+
+    /**
+     * 主机名 -> 子队列(按加入顺序)
+     */
+    private final Map<String, HostQueue> hostQueues = new LinkedHashMap<>();
+
+    /**
+     * 检查点文件的写入流，不持久化时为null
+     */
+    private final Writer checkpoint;
+
+    /**
+     * 同一主机两次取出之间的最小间隔(毫秒)
+     */
+    private volatile long politenessMillis;
+
+    private long sequence;
+
+    private int pendingCount;
+
+    /**
+     * 构造函数(不持久化)
+     */
+    public UrlFrontier() {
+        this.checkpoint = null;
+    }
+
+    /**
+     * 构造函数
+     * 检查点文件已存在时先恢复其中的状态，并截掉中断时写了一半的最后一条记录
+     *
+     * @param checkpointFile 检查点文件
+     * @throws IOException
+     */
+    public UrlFrontier(File checkpointFile) throws IOException {
+        if (checkpointFile.isFile()) {
+            long validLength = replay(checkpointFile);
+            if (validLength < checkpointFile.length()) {
+                try (FileChannel channel = FileChannel.open(checkpointFile.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+                logger.warn("已截掉检查点文件 {} 末尾不完整的记录", checkpointFile.getAbsolutePath());
+            }
+        } else {
+            FileUtils.forceMkdirParent(checkpointFile);
+        }
+        this.checkpoint = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(checkpointFile, true), Charsets.UTF_8));
+    }
+
+    public Duration getPolitenessDelay() {
+        return Duration.ofMillis(politenessMillis);
+    }
+
+    /**
+     * 设置同一主机两次取出之间的最小间隔
+     *
+     * @param delay 间隔
+     */
+    public void setPolitenessDelay(Duration delay) {
+        if (delay == null || delay.isNegative()) {
+            throw new IllegalArgumentException("间隔不能为负数");
+        }
+        this.politenessMillis = delay.toMillis();
+    }
+
+    /**
+     * 加入URL(深度0，分值0)
+     *
+     * @param url URL
+     * @return 是否加入(URL无效或已加入过时为false)
+     */
+    public boolean add(String url) {
+        return add(url, 0, 0D);
+    }
+
+    /**
+     * 加入URL
+     *
+     * @param url   URL
+     * @param depth 深度(越小越优先)
+     * @param score 分值(同一深度内越大越优先)
+     * @return 是否加入(URL无效或已加入过时为false)
+     */
+    public synchronized boolean add(String url, int depth, double score) {
+        HttpUrl httpUrl = parse(url);
+        if (httpUrl == null) {
+            logger.warn("忽略无效的URL: {}", url);
+            return false;
+        }
+        String key = httpUrl.toString();
+        if (!seen.add(key)) {
+            return false;
+        }
+        enqueue(new FrontierUrl(key, httpUrl.host(), depth, score, sequence++));
+        writeCheckpoint(OP_ADD + SEPARATOR + depth + SEPARATOR + score + SEPARATOR + key);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * 取出当前可以抓取的优先级最高的URL
+     *
+     * @return 没有待抓取的URL或各主机都在礼貌间隔内时为null
+     */
+    public synchronized FrontierUrl poll() {
+        long now = System.currentTimeMillis();
+        HostQueue best = null;
+        for (HostQueue queue : hostQueues.values()) {
+            if (queue.urls.isEmpty() || queue.nextPollAt > now) {
+                continue;
+            }
+            if (best == null || PRIORITY.compare(queue.urls.peek(), best.urls.peek()) < 0
+                    || PRIORITY.compare(queue.urls.peek(), best.urls.peek()) == 0 && queue.lastPolledAt < best.lastPolledAt) {
+                best = queue;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        FrontierUrl url = best.urls.poll();
+        best.lastPolledAt = now;
+        best.nextPollAt = now + politenessMillis;
+        pendingCount--;
+        inFlight.put(url.getUrl(), url);
+        return url;
+    }
+
+    /**
+     * 取出优先级最高的URL，各主机都在礼貌间隔内时等待
+     *
+     * @return 没有待抓取的URL时为null
+     * @throws InterruptedException
+     */
+    public synchronized FrontierUrl take() throws InterruptedException {
+        while (pendingCount > 0) {
+            FrontierUrl url = poll();
+            if (url != null) {
+                return url;
+            }
+            long waitMillis = Long.MAX_VALUE;
+            long now = System.currentTimeMillis();
+            for (HostQueue queue : hostQueues.values()) {
+                if (!queue.urls.isEmpty()) {
+                    waitMillis = Math.min(waitMillis, queue.nextPollAt - now);
+                }
+            }
+            wait(Math.max(1L, waitMillis));
+        }
+        return null;
+    }
+
+    /**
+     * 依次取出待抓取的URL，直到没有待抓取的URL
+     * 迭代过程中线程被中断时结束迭代
+     *
+     * @return URL序列(只能迭代一次)
+     */
+    public Iterable<String> drain() {
+        return () -> new Iterator<String>() {
+            private FrontierUrl next;
+
+            private boolean finished;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !finished) {
+                    try {
+                        next = take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finished = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String url = next.getUrl();
+                next = null;
+                return url;
+            }
+        };
+    }
+
+    /**
+     * 标记URL已完成，之后(包括从检查点恢复后)不再取出
+     *
+     * @param url URL
+     */
+    public synchronized void complete(String url) {
+        HttpUrl httpUrl = parse(url);
+        if (httpUrl == null) {
+            return;
+        }
+        String key = httpUrl.toString();
+        inFlight.remove(key);
+        if (seen.contains(key) && done.add(key)) {
+            writeCheckpoint(OP_DONE + SEPARATOR + key);
+        }
+        notifyAll();
+    }
+
+    /**
+     * 标记URL本次抓取失败
+     * 本次运行不再重试，从检查点恢复后重新排队
+     *
+     * @param url URL
+     */
+    public synchronized void fail(String url) {
+        HttpUrl httpUrl = parse(url);
+        if (httpUrl != null) {
+            inFlight.remove(httpUrl.toString());
+        }
+        notifyAll();
+    }
+
+    /**
+     * 是否已加入过
+     *
+     * @param url URL
+     * @return
+     */
+    public synchronized boolean isSeen(String url) {
+        HttpUrl httpUrl = parse(url);
+        return httpUrl != null && seen.contains(httpUrl.toString());
+    }
+
+    /**
+     * 是否已完成
+     *
+     * @param url URL
+     * @return
+     */
+    public synchronized boolean isDone(String url) {
+        HttpUrl httpUrl = parse(url);
+        return httpUrl != null && done.contains(httpUrl.toString());
+    }
+
+    /**
+     * 待抓取的URL数
+     *
+     * @return
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * 已取出未完成的URL数
+     *
+     * @return
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 已完成的URL数
+     *
+     * @return
+     */
+    public synchronized int getDoneCount() {
+        return done.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (checkpoint != null) {
+            checkpoint.close();
+        }
+    }
+
+    private void enqueue(FrontierUrl url) {
+        hostQueues.computeIfAbsent(url.getHost(), host -> new HostQueue()).urls.add(url);
+        pendingCount++;
+    }
+
+    /**
+     * 追加一条检查点记录并刷新到文件，进程中断时最多丢失正在写入的一条
+     */
+    private void writeCheckpoint(String line) {
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            checkpoint.write(line);
+            checkpoint.write('\n');
+            checkpoint.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("无法写入检查点文件", e);
+        }
+    }
+
+    /**
+     * 从检查点文件恢复状态
+     * 每条记录以换行结束，没有换行的最后一行是中断时写了一半的记录，直接忽略
+     *
+     * @return 完整记录的总长度(字节)
+     */
+    private long replay(File checkpointFile) throws IOException {
+        Map<String, FrontierUrl> added = new LinkedHashMap<>();
+        int lines = 0;
+        long validLength = 0L;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(checkpointFile))) {
+            ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b != '\n') {
+                    record.write(b);
+                    continue;
+                }
+                validLength += record.size() + 1;
+                String line = new String(record.toByteArray(), Charsets.UTF_8);
+                record.reset();
+                lines++;
+                String[] fields = StringUtils.splitPreserveAllTokens(line, SEPARATOR);
+                try {
+                    if (OP_ADD.equals(fields[0]) && fields.length == 4) {
+                        HttpUrl httpUrl = HttpUrl.get(fields[3]);
+                        added.putIfAbsent(fields[3], new FrontierUrl(fields[3], httpUrl.host(), Integer.parseInt(fields[1]), Double.parseDouble(fields[2]), sequence++));
+                    } else if (OP_DONE.equals(fields[0]) && fields.length == 2) {
+                        done.add(fields[1]);
+                    } else {
+                        logger.warn("忽略检查点文件 {} 第 {} 行无法识别的记录", checkpointFile.getName(), lines);
+                    }
+                } catch (IllegalArgumentException e) {
+                    logger.warn("忽略检查点文件 {} 第 {} 行无效的记录", checkpointFile.getName(), lines);
+                }
+            }
+        }
+        for (FrontierUrl url : added.values()) {
+            seen.add(url.getUrl());
+            if (!done.contains(url.getUrl())) {
+                enqueue(url);
+            }
+        }
+        done.retainAll(seen);
+        logger.info("已从检查点 {} 恢复: 已加入 {} 个URL，已完成 {} 个，待抓取 {} 个", checkpointFile.getAbsolutePath(), seen.size(), done.size(), pendingCount);
+        return validLength;
+    }
+
+    /**
+     * 规范化URL(去掉片段)，与加入队列时的处理相同
+     *
+     * @param url URL
+     * @return 无效时为null
+     */
+    public static String normalize(String url) {
+        HttpUrl httpUrl = parse(url);
+        return httpUrl != null ? httpUrl.toString() : null;
+    }
+
+    /**
+     * 解析并规范化URL(去掉片段)
+     *
+     * @param url URL
+     * @return 无效时为null
+     */
+    private static HttpUrl parse(String url) {
+        HttpUrl httpUrl = url != null ? HttpUrl.parse(url.trim()) : null;
+        return httpUrl != null ? httpUrl.newBuilder().fragment(null).build() : null;
+    }
+
+    /**
+     * 主机子队列
+     */
+    private static final class HostQueue {
+        private final PriorityQueue<FrontierUrl> urls = new PriorityQueue<>(PRIORITY);
+
+        /**
+         * 下一次可以取出的时间
+         */
+        private long nextPollAt;
+
+        /**
+         * 上一次取出的时间
+         */
+        private long lastPolledAt;
+    }
+}
@@ -41,6 +41,26 @@ public final class DaguerreImageConstant {
      */
     public static final int MAX_THREADS_COUNT = 64;
 
+    /**
+     * 下载及解析详细页的线程数
+     */
+    public static final int DETAIL_PAGE_THREADS_COUNT = 8;
+
+    /**
+     * 下载队列的默认容量(高水位)，待下载的图片超过时阻塞提交
+     */
+    public static final int DOWNLOAD_QUEUE_CAPACITY = 256;
+
+    /**
+     * 下载图片时每个图片主机每秒的请求数
+     */
+    public static final double IMAGE_HOST_PERMITS_PER_SECOND = 3.0D;
+
+    /**
+     * 下载图片时每个图片主机的突发请求数上限
+     */
+    public static final int IMAGE_HOST_BURST = 6;
+
     /**
      * 标题中可能存在的需排除的敏感词
      */
@@ -0,0 +1,36 @@
+package com.apifan.spider.daguerre;
+
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.time.Duration;
+
+/**
+ * 达盖尔图片下载定时任务
+ *
+ * @author yin
+ */
+public class DaguerreImageJob implements Spider {
+
+    @Override
+    public String getName() {
+        return "daguerre";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "0 2 * * *";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(360L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        DaguerreImageSpider spider = new DaguerreImageSpider(context.getBasePath(), context.getProxyHost(), context.getProxyPort(),
+                context.getProxyUsername(), context.getProxyPassword());
+        spider.process();
+    }
+}
@@ -4,6 +4,7 @@ package com.apifan.spider.daguerre;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.apifan.spider.common.util.*;
+import okhttp3.HttpUrl;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -18,11 +19,18 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -44,11 +52,21 @@ public class DaguerreImageSpider {
      */
     private static final long OLD_HTML_DAYS = 30L;
 
+    /**
+     * 检查点文件后缀
+     */
+    private static final String FRONTIER_SUFFIX = ".log";
+
     /**
      * 图片大小下限(单位: 字节)
      */
     private long minSize = 30000;
 
+    /**
+     * 下载队列容量(高水位)
+     */
+    private int downloadQueueCapacity = DaguerreImageConstant.DOWNLOAD_QUEUE_CAPACITY;
+
     /**
      * 异步线程池
      */
@@ -59,11 +77,6 @@ public class DaguerreImageSpider {
      */
     private String basePath;
 
-    /**
-     * 当天日期
-     */
-    private String date;
-
     /**
      * 是否使用代理
      */
@@ -98,7 +111,9 @@ public class DaguerreImageSpider {
             this.useProxy = true;
             this.httpProxy = new HttpProxyConfig(proxyHost, proxyPort, proxyUsername, proxyPassword);
         }
-        this.date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        String host = HttpUrl.get(DaguerreImageConstant.baseUrl).host();
+        RetryPolicies.configureIfAbsent(host, new ExponentialBackoffRetryPolicy());
+        HttpClientRegistry.configureProfileIfAbsent(host, HttpClientProfile.HTML_PAGE);
         String cheveretoUrlsFile = this.getClass().getResource("/chevereto_urls.txt").getFile();
         try {
             List<String> urls = FileUtils.readLines(new File(cheveretoUrlsFile), StandardCharsets.UTF_8);
@@ -125,44 +140,131 @@ public class DaguerreImageSpider {
         this(basePath, null, -1, null, null);
     }
 
+    /**
+     * 设置下载队列容量(高水位)
+     *
+     * @param downloadQueueCapacity 队列容量
+     */
+    public void setDownloadQueueCapacity(int downloadQueueCapacity) {
+        Preconditions.checkArgument(downloadQueueCapacity > 0, "下载队列容量必须大于0");
+        this.downloadQueueCapacity = downloadQueueCapacity;
+    }
+
     /**
      * 处理
+     * 详细页的下载、解析(包括Chevereto图片页)在独立的线程池中并发进行，每解析完一个帖子立即提交其图片的下载任务。
+     * 详细页链接记入当天的检查点，帖子的图片全部下载成功(或已存在)后才标记详细页已完成；重新运行时跳过已完成的详细页
      */
     public void process() throws Exception {
         downloadIndex();
-        List<DaguerreImagePost> imagePostList = parseImagePosts();
-        if (CollectionUtils.isEmpty(imagePostList)) {
-            logger.error("没有解析到任何待下载的图片");
-            return;
-        }
-        int postsCount = imagePostList.size();
-        logger.info("总共有 {} 个帖子的图片需要下载!", postsCount);
-        threadPool = Executors.newFixedThreadPool(postsCount < DaguerreImageConstant.MAX_THREADS_COUNT ? postsCount : DaguerreImageConstant.MAX_THREADS_COUNT);
-        for (int i = 0; i < postsCount; i++) {
-            DaguerreImagePost post = imagePostList.get(i);
-            if (post == null || CollectionUtils.isEmpty(post.getImageUrlList())) {
-                continue;
-            }
-            String dirName = StringUtils.truncate(StringUtils.isNotEmpty(post.getPostTitle()) ? post.getPostTitle().trim() : String.valueOf(System.currentTimeMillis()), 64);
-            File dir = new File(basePath + File.separator + dirName);
-            try {
-                FileUtils.forceMkdir(dir);
-            } catch (IOException e) {
-                logger.warn("无法初始化目录: {}", dir.getAbsolutePath(), e);
-                continue;
+        try (UrlFrontier frontier = new UrlFrontier(getFrontierFile())) {
+            parseDetailPageLinks(frontier);
+            int pageCount = frontier.getPendingCount();
+            if (pageCount == 0) {
+                logger.info("今天的详细页都已处理完毕");
+            } else {
+                processDetailPages(frontier, pageCount);
             }
-            for (String url : post.getImageUrlList()) {
-                downloadImage(url, dir.getAbsolutePath(), post.getPostId());
-            }
-            logger.info("已提交 {} 个帖子到下载队列，总共 {} 个帖子", i + 1, postsCount);
         }
-        threadPool.shutdown();
-        threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
         logger.info("已关闭线程池。本次下载工作已结束。累计下载成功 {} 张图片。", totalCount.get());
         FileUtils.deleteEmptyDirs(basePath);
         removeOldHtmlFiles();
     }
 
+    /**
+     * 下载并解析待抓取的详细页，提交图片的下载任务
+     *
+     * @param frontier  待抓取的详细页
+     * @param pageCount 待抓取的详细页数
+     * @throws InterruptedException
+     */
+    void processDetailPages(UrlFrontier frontier, int pageCount) throws InterruptedException {
+        //有界队列：待下载的图片达到高水位时阻塞提交，内存占用不随图片总数增长
+        threadPool = SpiderExecutors.newBoundedExecutor("daguerre-download", Math.min(pageCount, DaguerreImageConstant.MAX_THREADS_COUNT),
+                downloadQueueCapacity, QueueFullPolicy.BLOCK);
+        ExecutorService pagePool = SpiderExecutors.newExecutor("daguerre-page", Math.min(pageCount, DaguerreImageConstant.DETAIL_PAGE_THREADS_COUNT));
+        CompletionService<DaguerreImagePost> pageStage = new ExecutorCompletionService<>(pagePool);
+        Map<Future<DaguerreImagePost>, String> pageUrls = new HashMap<>();
+        for (String linkUrl : frontier.drain()) {
+            pageUrls.put(pageStage.submit(() -> parseImagePost(linkUrl)), linkUrl);
+        }
+        pagePool.shutdown();
+        int postsCount = 0;
+        try {
+            for (int i = 0; i < pageCount; i++) {
+                Future<DaguerreImagePost> future = pageStage.take();
+                String linkUrl = pageUrls.remove(future);
+                DaguerreImagePost post;
+                try {
+                    post = future.get();
+                } catch (ExecutionException e) {
+                    logger.warn("解析详细页时出现异常: {}", linkUrl, e.getCause());
+                    frontier.fail(linkUrl);
+                    continue;
+                }
+                if (post == null || CollectionUtils.isEmpty(post.getImageUrlList())) {
+                    frontier.complete(linkUrl);
+                    continue;
+                }
+                if (submitDownloads(post, () -> frontier.complete(linkUrl), () -> frontier.fail(linkUrl))) {
+                    postsCount++;
+                    logger.info("已提交 {} 个帖子到下载队列，已处理 {} 个详细页，总共 {} 个详细页", postsCount, i + 1, pageCount);
+                } else {
+                    frontier.fail(linkUrl);
+                }
+            }
+        } finally {
+            SpiderExecutors.shutdownAndAwait(pagePool, 1L, TimeUnit.MINUTES);
+            SpiderExecutors.shutdownAndAwait(threadPool, Long.MAX_VALUE, TimeUnit.SECONDS);
+        }
+        if (postsCount == 0) {
+            logger.error("没有解析到任何待下载的图片");
+        }
+    }
+
+    /**
+     * 当天的详细页检查点文件
+     *
+     * @return
+     */
+    private File getFrontierFile() {
+        String date = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        return new File(basePath + File.separator + "html" + File.separator + "frontier_" + date + FRONTIER_SUFFIX);
+    }
+
+    /**
+     * 提交帖子中所有图片的下载任务
+     *
+     * @param post      图片帖子
+     * @param onSuccess 所有图片都下载成功或已存在时的回调(在下载线程中执行)
+     * @param onFailure 所有图片都结束但有图片下载失败时的回调(在下载线程中执行)
+     * @return 是否已提交
+     */
+    private boolean submitDownloads(DaguerreImagePost post, Runnable onSuccess, Runnable onFailure) {
+        String dirName = StringUtils.truncate(StringUtils.isNotEmpty(post.getPostTitle()) ? post.getPostTitle().trim() : String.valueOf(System.currentTimeMillis()), 64);
+        File dir = new File(basePath + File.separator + dirName);
+        try {
+            FileUtils.forceMkdir(dir);
+        } catch (IOException e) {
+            logger.warn("无法初始化目录: {}", dir.getAbsolutePath(), e);
+            return false;
+        }
+        //在提交下载任务前预解析图片主机名
+        Set<String> imageHosts = new HashSet<>();
+        for (String url : post.getImageUrlList()) {
+            HttpUrl httpUrl = HttpUrl.parse(url);
+            if (httpUrl != null) {
+                imageHosts.add(httpUrl.host());
+            }
+        }
+        HttpClientRegistry.prefetchDns(imageHosts);
+        PostDownloads progress = new PostDownloads(post.getImageUrlList().size(), onSuccess, onFailure);
+        for (String url : post.getImageUrlList()) {
+            downloadImage(url, dir.getAbsolutePath(), post.getPostId(), progress);
+        }
+        return true;
+    }
+
     /**
      * 下载索引文件
      */
@@ -175,24 +277,25 @@ public class DaguerreImageSpider {
             logger.error("无法初始化目录 {}", basePath, e);
             throw new RuntimeException("无法初始化目录" + basePath);
         }
-        indexFile = new File(outDir.getAbsolutePath() + File.separator + "index_" + date + ".html");
-        if (!indexFile.exists()) {
-            //如果索引文件不存在，则下载它
-            try {
-                HttpUtils.download(DaguerreImageConstant.baseUrl + "thread0806.php?fid=16&search=today", indexFile.getAbsolutePath(), getHttpProxy());
-            } catch (IOException e) {
-                logger.error("无法下载索引文件", e);
-                throw new RuntimeException("无法下载索引文件" + indexFile.getAbsolutePath());
-            }
+        //索引页通过HTTP缓存获取，缓存过期后重新校验
+        HttpCache httpCache = new HttpCache(new File(basePath + "cache"));
+        String indexUrl = DaguerreImageConstant.baseUrl + "thread0806.php?fid=16&search=today";
+        try {
+            indexFile = HttpUtils.getCached(indexUrl, null, getHttpProxy(), httpCache);
+        } catch (IOException e) {
+            logger.error("无法下载索引文件", e);
+        }
+        if (indexFile == null) {
+            throw new RuntimeException("无法下载索引文件" + indexUrl);
         }
     }
 
     /**
-     * 解析图片帖子集合
+     * 解析索引页中的详细页链接
      *
-     * @return 图片下载地址
+     * @param frontier 待抓取的详细页
      */
-    private List<DaguerreImagePost> parseImagePosts() {
+    private void parseDetailPageLinks(UrlFrontier frontier) {
         //解析详细页链接
         Document indexDocument = JsoupUtils.getDocument(indexFile, "GBK");
         String pageSelector = "#ajaxtable > tbody > tr > td.tal > h3 > a";
@@ -201,7 +304,7 @@ public class DaguerreImageSpider {
             throw new RuntimeException("未找到详细页的链接");
         }
 
-        List<String> detailPageLinkList = Lists.newArrayList();
+        int detailPageCount = 0;
         for (Element pageLinkElement : pageLinkElements) {
             if (JsoupUtils.isEmptyElement(pageLinkElement)) {
                 continue;
@@ -213,106 +316,142 @@ public class DaguerreImageSpider {
             if (!link.startsWith(DaguerreImageConstant.baseUrl)) {
                 link = DaguerreImageConstant.baseUrl + link;
             }
-            detailPageLinkList.add(link.trim());
+            //索引页靠前的帖子优先
+            frontier.add(link.trim(), 1, -detailPageCount);
+            detailPageCount++;
         }
-        int detailPageCount = detailPageLinkList.size();
         if (detailPageCount == 0) {
             throw new RuntimeException("没有解析到任何详细页链接");
         }
-        logger.info("解析到 {} 个详细页链接", detailPageCount);
+        logger.info("解析到 {} 个详细页链接，其中 {} 个待处理", detailPageCount, frontier.getPendingCount());
+    }
 
-        List<DaguerreImagePost> postList = Lists.newArrayList();
-        //依次下载详细页
-        for (String linkUrl : detailPageLinkList) {
-            String postId = parsePostId(linkUrl);
-            File htmlFile = new File(basePath + File.separator + "html" + File.separator + generateDetailPageName(postId));
-            if (!htmlFile.exists()) {
-                try {
-                    boolean downloadResult = HttpUtils.download(linkUrl, htmlFile.getAbsolutePath(), getHttpProxy());
-                    if(!downloadResult){
-                        logger.warn("下载详细页文件失败: URL={}", linkUrl);
-                        continue;
-                    }
-                } catch (IOException e) {
-                    logger.warn("无法下载详细页文件", e);
-                    continue;
-                }
-            }
+    /**
+     * 下载并解析一个详细页
+     *
+     * @param linkUrl 详细页URL
+     * @return 图片帖子，需跳过或没有图片时返回null
+     */
+    private DaguerreImagePost parseImagePost(String linkUrl) {
+        String postId = parsePostId(linkUrl);
+        File htmlFile = new File(basePath + File.separator + "html" + File.separator + generateDetailPageName(postId));
+        Document detailPageDocument = loadDetailPage(linkUrl, htmlFile);
+        if (detailPageDocument == null) {
+            throw new RuntimeException("无法下载详细页 " + linkUrl);
+        }
 
-            //解析详细页
-            Document detailPageDocument = JsoupUtils.getDocument(htmlFile, "GBK");
-            //帖子标题
-            String postTitle = getCleanedTitle(detailPageDocument.title());
-            if (needsToSkip(postTitle)) {
-                //无关帖子排除掉
-                logger.warn("帖子 {} 包含敏感词，跳过", postTitle);
-                continue;
-            }
+        //帖子标题
+        String postTitle = getCleanedTitle(detailPageDocument.title());
+        if (needsToSkip(postTitle)) {
+            //无关帖子排除掉
+            logger.warn("帖子 {} 包含敏感词，跳过", postTitle);
+            return null;
+        }
 
-            String imageSelector = "input[type=image]";
-            Elements imageElements = detailPageDocument.select(imageSelector);
-            int imageCount = imageElements != null ? imageElements.size() : 0;
-            if (imageCount == 0) {
-                logger.warn("详细页 {} 没有图片", htmlFile.getAbsolutePath());
+        String imageSelector = "input[type=image]";
+        Elements imageElements = detailPageDocument.select(imageSelector);
+        int imageCount = imageElements != null ? imageElements.size() : 0;
+        if (imageCount == 0) {
+            logger.warn("详细页 {} 没有图片", htmlFile.getAbsolutePath());
+            return null;
+        }
+        logger.info("详细页 {} 可能有 {} 张图片", htmlFile.getAbsolutePath(), imageCount);
+
+        //解析待下载的图片URL
+        Set<String> imageUrls = new LinkedHashSet<>();
+        for (Element imageElement : imageElements) {
+            String imageUrl = imageElement.attr("data-link");
+            if (StringUtils.isEmpty(imageUrl) || !imageUrl.startsWith("http")) {
                 continue;
             }
-            logger.info("详细页 {} 可能有 {} 张图片", htmlFile.getAbsolutePath(), imageCount);
-
-            //解析待下载的图片URL
-            Set<String> imageUrls = new LinkedHashSet<>();
-            for (Element imageElement : imageElements) {
-                String imageUrl = imageElement.attr("data-link");
-                if (StringUtils.isEmpty(imageUrl) || !imageUrl.startsWith("http")) {
-                    continue;
-                }
-                if (isCheveretoBased(imageUrl)) {
-                    //特殊情况特殊处理
-                    String realImageUrl = parseRealImageUrlOfChevereto(imageUrl);
-                    if (StringUtils.isNotEmpty(realImageUrl)) {
-                        imageUrl = realImageUrl;
-                    }
+            if (isCheveretoBased(imageUrl)) {
+                //特殊情况特殊处理
+                String realImageUrl = parseRealImageUrlOfChevereto(imageUrl);
+                if (StringUtils.isNotEmpty(realImageUrl)) {
+                    imageUrl = realImageUrl;
                 }
-                imageUrl = imageUrl.replace("i/?i=", "");
-                imageUrls.add(imageUrl);
             }
-            if (CollectionUtils.isEmpty(imageUrls)) {
-                logger.warn("帖子 {} 没有符合要求的图片", postTitle);
-                continue;
+            imageUrl = imageUrl.replace("i/?i=", "");
+            imageUrls.add(imageUrl);
+        }
+        if (CollectionUtils.isEmpty(imageUrls)) {
+            logger.warn("帖子 {} 没有符合要求的图片", postTitle);
+            return null;
+        }
+        DaguerreImagePost post = new DaguerreImagePost();
+        post.setPostId(postId);
+        post.setPostTitle(postTitle);
+        post.setImageUrlList(Lists.newArrayList(imageUrls));
+        return post;
+    }
+
+    /**
+     * 加载详细页
+     * 已保存过的直接从文件解析；否则下载后保存原始字节，并直接从响应解析，不再从文件重新读取
+     *
+     * @param linkUrl  详细页URL
+     * @param htmlFile 详细页文件
+     * @return 文档对象，下载失败时返回null
+     */
+    private Document loadDetailPage(String linkUrl, File htmlFile) {
+        if (htmlFile.exists()) {
+            return JsoupUtils.getDocument(htmlFile, "GBK");
+        }
+        try {
+            HttpResponse response = HttpUtils.get(linkUrl, getHttpProxy());
+            if (response.getCode() != 200 || response.getBody() == null) {
+                logger.warn("下载详细页文件失败: URL={}, 状态码={}", linkUrl, response.getCode());
+                return null;
             }
-            DaguerreImagePost post = new DaguerreImagePost();
-            post.setPostId(postId);
-            post.setPostTitle(postTitle);
-            post.setImageUrlList(Lists.newArrayList(imageUrls));
-            postList.add(post);
+            FileUtils.writeAtomically(htmlFile, response.getBody());
+            return JsoupUtils.getDocument(response, "GBK");
+        } catch (IOException e) {
+            logger.warn("无法下载详细页文件", e);
         }
-        return postList;
+        return null;
     }
 
     /**
-     * 异步下载图片文件
+     * 下载图片
      *
-     * @param url    文件URL
-     * @param dir    文件保存目录的路径
-     * @param postId 所属的帖子ID
+     * @param url      图片URL
+     * @param dir      保存目录
+     * @param postId   所属的帖子ID
+     * @param progress 所属帖子的下载进度
      */
-    private void downloadImage(String url, String dir, String postId) {
+    private void downloadImage(String url, String dir, String postId, PostDownloads progress) {
         File targetFile = new File(dir + File.separator + getUniqueFileName(url, postId));
         if (targetFile.exists() && targetFile.length() > minSize) {
             logger.error("URL: {} 对应的图片文件已存在", url);
+            progress.finished(true);
             return;
         }
-        threadPool.execute(() -> {
-            logger.debug("将 {} 添加到下载队列", url);
-            try {
-                Thread.sleep(300L);
-                boolean downloadSuccess = HttpUtils.download(url, targetFile.getAbsolutePath(), 30000, 60000, 15000, minSize, getHttpProxy());
-                if (downloadSuccess) {
-                    logger.info("本次已下载成功 {} 张图片", totalCount.incrementAndGet());
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl != null) {
+            //按图片主机限流、重试，并使用批量下载的连接池
+            RateLimiters.configureIfAbsent(httpUrl.host(), DaguerreImageConstant.IMAGE_HOST_PERMITS_PER_SECOND, DaguerreImageConstant.IMAGE_HOST_BURST);
+            RetryPolicies.configureIfAbsent(httpUrl.host(), new ExponentialBackoffRetryPolicy());
+            HttpClientRegistry.configureProfileIfAbsent(httpUrl.host(), HttpClientProfile.BULK_DOWNLOAD);
+        }
+        try {
+            threadPool.execute(() -> {
+                logger.debug("将 {} 添加到下载队列", url);
+                boolean downloadSuccess = false;
+                try {
+                    downloadSuccess = HttpUtils.download(url, targetFile.getAbsolutePath(), 30000, 60000, 15000, minSize, getHttpProxy());
+                    if (downloadSuccess) {
+                        logger.info("本次已下载成功 {} 张图片", totalCount.incrementAndGet());
+                    }
+                } catch (Exception e) {
+                    logger.error("从 {} 下载文件失败", url, e);
+                } finally {
+                    progress.finished(downloadSuccess);
                 }
-            } catch (Exception e) {
-                logger.error("从 {} 下载文件失败", url, e);
-            }
-        });
+            });
+        } catch (RejectedExecutionException e) {
+            progress.finished(false);
+            throw e;
+        }
     }
 
     /**
@@ -462,7 +601,7 @@ public class DaguerreImageSpider {
     }
 
     /**
-     * 删除旧的网页文件
+     * 删除旧的网页文件和检查点文件
      */
     private void removeOldHtmlFiles() {
         File base = new File(basePath + File.separator + "html");
@@ -479,7 +618,7 @@ public class DaguerreImageSpider {
         //计算截止时间戳
         long timestamp = System.currentTimeMillis() - 86400 * 1000 * OLD_HTML_DAYS;
         for (File htmlFile : htmlFiles) {
-            if (!htmlFile.getName().endsWith(".html")) {
+            if (!htmlFile.getName().endsWith(".html") && !htmlFile.getName().endsWith(FRONTIER_SUFFIX)) {
                 continue;
             }
             if (htmlFile.lastModified() < timestamp) {
@@ -490,6 +629,54 @@ public class DaguerreImageSpider {
         }
     }
 
+    /**
+     * 一个帖子的图片下载进度
+     * 所有图片都结束后执行回调：都下载成功或已存在时执行成功回调，有任何一张失败时执行失败回调，重新运行时该帖子会重新处理
+     */
+    private static final class PostDownloads {
+
+        /**
+         * 尚未结束的图片数
+         */
+        private final AtomicInteger remaining;
+
+        /**
+         * 是否有图片下载失败
+         */
+        private volatile boolean failed;
+
+        private final Runnable onSuccess;
+
+        private final Runnable onFailure;
+
+        private PostDownloads(int imagesCount, Runnable onSuccess, Runnable onFailure) {
+            this.remaining = new AtomicInteger(imagesCount);
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+        }
+
+        /**
+         * 一张图片的下载结束
+         *
+         * @param success 是否成功(包括已存在)
+         */
+        private void finished(boolean success) {
+            if (!success) {
+                failed = true;
+            }
+            if (remaining.decrementAndGet() == 0) {
+                try {
+                    if (failed) {
+                        onFailure.run();
+                    } else {
+                        onSuccess.run();
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("无法记录帖子的下载结果", e);
+                }
+            }
+        }
+    }
 
     public static void main(String[] args) throws Exception {
         String basePath = "D:\\spider\\daguerre";
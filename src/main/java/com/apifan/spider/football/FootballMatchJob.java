@@ -0,0 +1,49 @@
+package com.apifan.spider.football;
+
+import com.apifan.spider.common.util.JsonUtils;
+import com.apifan.spider.common.util.PipelineStats;
+import com.apifan.spider.common.util.Sink;
+import com.apifan.spider.common.util.Sinks;
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 足球赛程信息定时任务
+ *
+ * @author yin
+ */
+public class FootballMatchJob implements Spider {
+
+    @Override
+    public String getName() {
+        return "football";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "0 */2 * * *";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(5L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        File outFile = new File(context.getBasePath(), "football_" + date + ".txt");
+        try (Sink<FootballMatch> sink = Sinks.toLines(outFile, JsonUtils::toJson)) {
+            PipelineStats stats = new FootballMatchSpider(context.getBasePath()).process(sink);
+            if (stats == null || stats.getFailures() > 0) {
+                throw new RuntimeException("抓取足球赛程信息失败");
+            }
+            sink.commit();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.apifan.spider.fund;
+
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.time.Duration;
+
+/**
+ * 开放式基金数据定时任务
+ *
+ * @author yin
+ */
+public class OpenEndFundsJob implements Spider {
+
+    @Override
+    public String getName() {
+        return "fund";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "0 22 * * 1-5";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(10L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        new OpenEndFundsSpider(context.getBasePath()).process();
+    }
+}
@@ -2,14 +2,20 @@ package com.apifan.spider.fund;
 
 import com.apifan.spider.common.util.HttpUtils;
 import com.apifan.spider.common.util.JsonUtils;
+import com.apifan.spider.common.util.Sink;
+import com.apifan.spider.common.util.Sinks;
 import com.google.common.base.Charsets;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
@@ -34,12 +40,34 @@ public class OpenEndFundsSpider {
 
     private static final String BASE_URL = "http://fund.eastmoney.com/Data/Fund_JJJZ_Data.aspx?t=1&lx=1&letter=&gsid=&text=&sort=zdf,desc&page=1,9999&feature=|&dt=%d&atfc=&onlySale=1";
 
+    /**
+     * 最多输出的基金数
+     */
+    private static final int MAX_OUTPUT_COUNT = 1000;
 
-    public static void main(String[] args) throws Exception {
-
+    /**
+     * 输出路径
+     */
+    private String outPath;
 
-        String outPath = "D:\\tmp\\fund";
+    /**
+     * 构造函数
+     *
+     * @param outPath 输出路径
+     */
+    public OpenEndFundsSpider(String outPath) {
+        super();
+        this.outPath = StringUtils.isNotEmpty(outPath) ? outPath : System.getProperty("user.home");
+    }
 
+    /**
+     * 处理
+     * 下载当天的基金净值数据，按日增长倒排序后输出前1000条
+     *
+     * @return 输出文件路径
+     * @throws IOException
+     */
+    public String process() throws IOException {
         String today = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
 
         String filePath = outPath + File.separator + today + ".json";
@@ -48,21 +76,15 @@ public class OpenEndFundsSpider {
             HttpUtils.download(String.format(BASE_URL, System.currentTimeMillis()), filePath);
         }
 
-        String json = FileUtils.readFileToString(dataFile, Charsets.UTF_8);
-        //处理
-        json = json
-                .replace("var db=", "")
-                .replace("chars:", "\"chars\":")
-                .replace("datas:", "\"datas\":")
-                .replace("count:", "\"count\":")
-                .replace("record:", "\"record\":")
-                .replace("pages:", "\"pages\":")
-                .replace("curpage:", "\"curpage\":")
-                .replace("indexsy:", "\"indexsy\":")
-                .replace("showday:", "\"showday\":")
-                .replace(",]", "]");
-
-        Map<String, Object> resultMap = JsonUtils.readAsMap(json);
+        //数据为JavaScript对象字面量(var db={chars:[...],datas:[...],...})，跳过变量声明后以宽松模式流式解析
+        Map<String, Object> resultMap;
+        try (PushbackReader reader = new PushbackReader(new BufferedReader(new InputStreamReader(new FileInputStream(dataFile), Charsets.UTF_8)))) {
+            skipToObjectStart(reader);
+            resultMap = JsonUtils.readLenientAsMap(reader);
+        }
+        if (resultMap == null) {
+            throw new RuntimeException("解析基金数据失败");
+        }
         List<List<String>> fundsList = (List<List<String>>) resultMap.get("datas");
         int fundsCount = fundsList.size();
         logger.info("条数={}", fundsCount);
@@ -124,24 +146,56 @@ public class OpenEndFundsSpider {
         });
 
         //输出前1000条
-        int outputCount = openEndFundList.size() > 1000 ? 1000 : openEndFundList.size();
-        List<String> outLines = new ArrayList<>(outputCount);
-        for (int i = 0; i < outputCount; i++) {
-            OpenEndFund fund = openEndFundList.get(i);
-            String line = fund.getFundCode()
-                    + TAB + fund.getFundName()
-                    + TAB + fund.getPurchaseStatus()
-                    + TAB + fund.getRedemptionStatus()
-                    + TAB + fund.getNetAssetValue()
-                    + TAB + fund.getNetAccumValue()
-                    + TAB + fund.getIncrement()
-                    + TAB + fund.getIncrementRate()
-                    + TAB + fund.getRedemptionFeeRate()
-                    + TAB + fund.getOcDate();
-            outLines.add(line);
-        }
+        int outputCount = Math.min(openEndFundList.size(), MAX_OUTPUT_COUNT);
         File outFile = new File(outPath + File.separator + "fund_" + today + ".txt");
-        FileUtils.writeLines(outFile, Charsets.UTF_8.name(), outLines, System.getProperty("line.separator"));
+        try (Sink<OpenEndFund> sink = Sinks.toLines(outFile, OpenEndFundsSpider::formatLine)) {
+            for (int i = 0; i < outputCount; i++) {
+                sink.write(openEndFundList.get(i));
+            }
+            sink.commit();
+        }
+        return outFile.getAbsolutePath();
+    }
+
+    /**
+     * 输出的一行数据(以TAB分隔)
+     *
+     * @param fund 基金
+     * @return
+     */
+    private static String formatLine(OpenEndFund fund) {
+        return fund.getFundCode()
+                + TAB + fund.getFundName()
+                + TAB + fund.getPurchaseStatus()
+                + TAB + fund.getRedemptionStatus()
+                + TAB + fund.getNetAssetValue()
+                + TAB + fund.getNetAccumValue()
+                + TAB + fund.getIncrement()
+                + TAB + fund.getIncrementRate()
+                + TAB + fund.getRedemptionFeeRate()
+                + TAB + fund.getOcDate();
+    }
+
+    public static void main(String[] args) throws Exception {
+        OpenEndFundsSpider spider = new OpenEndFundsSpider("D:\\tmp\\fund");
+        spider.process();
+    }
+
+    /**
+     * 跳过对象字面量之前的内容(如"var db=")
+     *
+     * @param reader 字符流
+     * @throws IOException
+     */
+    private static void skipToObjectStart(PushbackReader reader) throws IOException {
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '{') {
+                reader.unread(c);
+                return;
+            }
+        }
+        throw new RuntimeException("数据中没有找到对象字面量");
     }
 
     /**
@@ -0,0 +1,49 @@
+package com.apifan.spider.lagou;
+
+import com.apifan.spider.common.util.FileUtils;
+import com.apifan.spider.common.util.JsonUtils;
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 拉勾网职位信息定时任务
+ * 自定义参数: city 城市，keyword 关键词，pages 页数(默认3)
+ *
+ * @author yin
+ */
+public class LagouPositionJob implements Spider {
+
+    @Override
+    public String getName() {
+        return "lagou";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "0 8 * * *";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(30L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        String city = context.getProperty("city", "长沙");
+        String keyword = context.getProperty("keyword", "安卓");
+        LagouPositionSpider spider = new LagouPositionSpider(context.getBasePath(), context.getProxyHost(), context.getProxyPort(),
+                context.getProxyUsername(), context.getProxyPassword());
+        List<LagouPositionInfo> positionList = spider.getPositionList(city, keyword, context.getIntProperty("pages", 3));
+        String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        File outFile = new File(context.getBasePath(), date + "#" + city + "#" + keyword + ".txt");
+        FileUtils.writeAtomically(outFile, JsonUtils.toJson(positionList, true).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -3,7 +3,7 @@ package com.apifan.spider.lagou;
 import com.apifan.spider.common.util.*;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
+import okhttp3.HttpUrl;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -39,6 +39,34 @@ public class LagouPositionSpider {
      */
     private static String jsonUrl = "https://m.lagou.com/search.json?city=%s&positionName=%s&pageNo=%d";
 
+    /**
+     * cookie快照文件名
+     */
+    private static final String COOKIES_FILE = "lagou_cookies.txt";
+
+    /**
+     * 每秒请求数
+     */
+    private static final double PERMITS_PER_SECOND = 1.0D;
+
+    /**
+     * 搜索页请求模板
+     */
+    private static final RequestTemplate PAGE_TEMPLATE = RequestTemplate.DEFAULT
+            .with("User-Agent", "Mozilla/5.0 (iPad; CPU OS 11_0 like Mac OS X) AppleWebKit/604.1.34 (KHTML, like Gecko) Version/11.0 Mobile/15A5341f Safari/604.1")
+            .with("Connection", "keep-alive")
+            .with("Accept-Encoding", "gzip, deflate, br")
+            .with("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8,zh-TW;q=0.7");
+
+    /**
+     * JSON接口请求模板(模拟ajax请求)
+     */
+    private static final RequestTemplate AJAX_TEMPLATE = PAGE_TEMPLATE
+            .with("Accept", "application/json")
+            .with("Host", "m.lagou.com")
+            .with("Referer", searchUrl)
+            .with("X-Requested-With", "XMLHttpRequest");
+
     /**
      * 代理
      */
@@ -54,6 +82,11 @@ public class LagouPositionSpider {
      */
     private String basePath;
 
+    /**
+     * HTTP缓存
+     */
+    private HttpCache httpCache;
+
     /**
      * 构造函数
      *
@@ -80,6 +113,16 @@ public class LagouPositionSpider {
             httpProxy = new HttpProxyConfig(proxyHost, proxyPort, proxyUsername, proxyPassword);
         }
         date = LocalDate.now();
+        RateLimiters.configure("lagou.com", PERMITS_PER_SECOND, 1);
+        RetryPolicies.configure("lagou.com", new ExponentialBackoffRetryPolicy());
+        HttpClientRegistry.configureProfile("lagou.com", HttpClientProfile.API_JSON);
+        httpCache = new HttpCache(new File(basePath, "cache"));
+        try {
+            int count = HttpClientRegistry.getCookieJar().restore(new File(basePath, COOKIES_FILE));
+            logger.info("恢复了 {} 个拉勾网cookie", count);
+        } catch (IOException e) {
+            logger.warn("恢复拉勾网cookies失败", e);
+        }
         logger.info("初始化完成。文件输出路径: {}", basePath);
         if (httpProxy != null) {
             logger.info("使用以下HTTP代理: {}:{}", proxyHost, proxyPort);
@@ -99,12 +142,17 @@ public class LagouPositionSpider {
 
 
     /**
-     * 获取拉勾网的cookies
+     * 获取拉勾网的cookies(已有可用的cookie时跳过)，并保存快照供下次使用
      *
      * @throws IOException
      */
     private void getLagouCookies() throws IOException {
-        HttpUtils.getWithCookies(searchUrl, buildHeaders(false), httpProxy);
+        PersistentCookieJar cookieJar = HttpClientRegistry.getCookieJar();
+        if (cookieJar.hasCookies(HttpUrl.get(searchUrl))) {
+            return;
+        }
+        HttpUtils.getWithCookies(searchUrl, PAGE_TEMPLATE, httpProxy);
+        cookieJar.snapshot(new File(basePath, COOKIES_FILE));
     }
 
     /**
@@ -120,16 +168,6 @@ public class LagouPositionSpider {
         Preconditions.checkArgument(StringUtils.isNotEmpty(city), "城市名称为空");
         Preconditions.checkArgument(StringUtils.isNotEmpty(keyword), "职位关键词为空");
 
-        //检查临时目录
-        File tmpDir = new File(basePath + File.separator + "tmp");
-        if (tmpDir.exists() && !tmpDir.isDirectory()) {
-            throw new RuntimeException("路径 " + tmpDir.getAbsolutePath() + " 必须是一个目录");
-        }
-        if (!tmpDir.exists()) {
-            if (!tmpDir.mkdirs()) {
-                throw new RuntimeException("无法初始化路径 " + tmpDir.getAbsolutePath());
-            }
-        }
         try {
             getLagouCookies();
         } catch (IOException e) {
@@ -137,27 +175,18 @@ public class LagouPositionSpider {
             throw new RuntimeException("无法获得拉勾网cookies");
         }
         List<File> jsonFiles = Lists.newArrayList();
-        Map<String, String> headersMap = buildHeaders(true);
         for (int i = 1; i <= pages; i++) {
-            String jsonFilePath = tmpDir.getAbsolutePath() + File.separator + date.format(dateFormatter) + "#" + city + "#" + keyword + "#" + i + ".json";
-            File jsonFile = new File(jsonFilePath);
-            if (!jsonFile.exists()) {
-                //下载文件
-                String requestUrl = String.format(jsonUrl, city, keyword, i);
-                try {
-                    Thread.sleep(1000L * i);
-                    HttpResponse httpResponse = HttpUtils.getWithCookies(requestUrl, headersMap, httpProxy);
-                    if (httpResponse == null || httpResponse.getCode() != 200) {
-                        logger.error("无法下载URL:{}", requestUrl);
-                        continue;
-                    }
-                    FileUtils.write(jsonFile, httpResponse.getMessage(), StandardCharsets.UTF_8);
-                } catch (Exception e) {
-                    logger.error("下载数据失败", e);
+            String requestUrl = String.format(jsonUrl, city, keyword, i);
+            try {
+                File jsonFile = HttpUtils.getCached(requestUrl, AJAX_TEMPLATE, null, 10000, 10000, 10000, httpProxy, true, httpCache);
+                if (jsonFile == null) {
+                    logger.error("无法下载URL:{}", requestUrl);
                     continue;
                 }
+                jsonFiles.add(jsonFile);
+            } catch (Exception e) {
+                logger.error("下载数据失败", e);
             }
-            jsonFiles.add(jsonFile);
         }
         return parsePositionList(jsonFiles);
     }
@@ -239,27 +268,6 @@ public class LagouPositionSpider {
         return positionList;
     }
 
-    /**
-     * 构建请求头参数
-     *
-     * @param isAjax 是否模拟ajax请求头
-     * @return
-     */
-    private Map<String, String> buildHeaders(boolean isAjax) {
-        Map<String, String> headersMap = Maps.newHashMap();
-        headersMap.put("User-Agent", "Mozilla/5.0 (iPad; CPU OS 11_0 like Mac OS X) AppleWebKit/604.1.34 (KHTML, like Gecko) Version/11.0 Mobile/15A5341f Safari/604.1");
-        headersMap.put("Connection", "keep-alive");
-        headersMap.put("Accept-Encoding", "gzip, deflate, br");
-        headersMap.put("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8,zh-TW;q=0.7");
-        if (isAjax) {
-            headersMap.put("Accept", "application/json");
-            headersMap.put("Host", "m.lagou.com");
-            headersMap.put("Referer", searchUrl);
-            headersMap.put("X-Requested-With", "XMLHttpRequest");
-        }
-        return headersMap;
-    }
-
     /**
      * 测试
      *
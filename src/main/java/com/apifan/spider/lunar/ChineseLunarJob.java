@@ -0,0 +1,56 @@
+package com.apifan.spider.lunar;
+
+import com.apifan.spider.common.util.FileUtils;
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 农历数据定时任务
+ * 自定义参数: beginDate 起始日期(yyyy-MM-dd，默认当天)，days 天数(默认366)
+ *
+ * @author yin
+ */
+public class ChineseLunarJob implements Spider {
+
+    private static final String TAB = "\t";
+
+    @Override
+    public String getName() {
+        return "lunar";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "0 1 1 * *";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(60L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        LocalDate beginDate = LocalDate.parse(context.getProperty("beginDate", LocalDate.now().toString()));
+        int days = context.getIntProperty("days", 366);
+        ChineseLunarQuery query = new ChineseLunarQuery();
+        List<String> outLines = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("查询农历数据被中断");
+            }
+            LocalDate date = beginDate.plusDays(i);
+            String[] result = query.process(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+            outLines.add(date + TAB + result[0] + TAB + result[1] + TAB + result[2]);
+        }
+        File outFile = new File(context.getBasePath(), "lunar_" + beginDate + ".txt");
+        FileUtils.writeAtomically(outFile, String.join(System.lineSeparator(), outLines).getBytes(StandardCharsets.UTF_8));
+    }
+}
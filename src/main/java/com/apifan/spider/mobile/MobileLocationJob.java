@@ -0,0 +1,34 @@
+package com.apifan.spider.mobile;
+
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.time.Duration;
+
+/**
+ * 手机号段归属地数据定时任务
+ *
+ * @author yin
+ */
+public class MobileLocationJob implements Spider {
+
+    @Override
+    public String getName() {
+        return "mobile";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "0 3 1 * *";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(120L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        new MobileLocationSpider(context.getBasePath()).processToFile();
+    }
+}
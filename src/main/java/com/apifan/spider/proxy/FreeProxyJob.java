@@ -0,0 +1,47 @@
+package com.apifan.spider.proxy;
+
+import com.apifan.spider.common.util.JsonUtils;
+import com.apifan.spider.common.util.Sink;
+import com.apifan.spider.common.util.Sinks;
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 免费高匿代理服务器信息定时任务
+ * 自定义参数: pages 抓取的页数(默认1)
+ *
+ * @author yin
+ */
+public class FreeProxyJob implements Spider {
+
+    @Override
+    public String getName() {
+        return "free-proxy";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "0 * * * *";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(10L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        FreeProxySpider spider = new FreeProxySpider(context.getIntProperty("pages", 1), context.getBasePath());
+        String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        File outFile = new File(context.getBasePath(), "proxy_" + date + ".txt");
+        try (Sink<FreeProxyInfo> sink = Sinks.toLines(outFile, JsonUtils::toJson)) {
+            spider.process(sink);
+            sink.commit();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.apifan.spider.tieba;
+
+import com.apifan.spider.common.util.Sink;
+import com.apifan.spider.common.util.Sinks;
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * 百度贴吧热议话题定时任务
+ *
+ * @author yin
+ */
+public class TiebaKeywordsJob implements Spider {
+
+    @Override
+    public String getName() {
+        return "tieba";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "*/5 * * * *";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(5L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        TiebaKeywordsSpider spider = new TiebaKeywordsSpider(context.getBasePath(), context.getProxyHost(), context.getProxyPort(),
+                context.getProxyUsername(), context.getProxyPassword());
+        spider.setTimeBucket(context.getTimeBucket());
+        File outFile = new File(context.getBasePath(), "keywords_" + spider.getDate() + ".txt");
+        try (Sink<String> sink = Sinks.toLines(outFile, keyword -> keyword)) {
+            spider.process(sink);
+            sink.commit();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.apifan.spider.weibo;
+
+import com.apifan.spider.common.util.Sink;
+import com.apifan.spider.common.util.Sinks;
+import com.apifan.spider.common.util.Spider;
+import com.apifan.spider.common.util.SpiderContext;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * 新浪微博热搜关键词定时任务
+ *
+ * @author yin
+ */
+public class WeiboKeywordsJob implements Spider {
+
+    @Override
+    public String getName() {
+        return "weibo";
+    }
+
+    @Override
+    public String getSchedule() {
+        return "*/5 * * * *";
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return Duration.ofMinutes(5L);
+    }
+
+    @Override
+    public void run(SpiderContext context) throws Exception {
+        WeiboKeywordsSpider spider = new WeiboKeywordsSpider(context.getBasePath(), context.getProxyHost(), context.getProxyPort(),
+                context.getProxyUsername(), context.getProxyPassword());
+        spider.setTimeBucket(context.getTimeBucket());
+        File outFile = new File(context.getBasePath(), "keywords_" + spider.getDate() + ".txt");
+        try (Sink<String> sink = Sinks.toLines(outFile, keyword -> keyword)) {
+            spider.process(sink);
+            sink.commit();
+        }
+    }
+}
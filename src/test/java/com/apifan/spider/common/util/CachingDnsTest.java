@@ -0,0 +1,59 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Dns;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * DNS缓存测试
+ *
+ * @author yin
+ */
+public class CachingDnsTest {
+
+    /**
+     * 测试DNS缓存、失败缓存和预解析
+     */
+    @Test
+    public void cachingDnsCachesLookups() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        Dns delegate = hostname -> {
+            lookups.incrementAndGet();
+            if (hostname.startsWith("missing")) {
+                throw new UnknownHostException(hostname);
+            }
+            return Collections.singletonList(InetAddress.getByAddress(hostname, new byte[]{127, 0, 0, 1}));
+        };
+        CachingDns dns = new CachingDns(delegate, 60000L, 60000L);
+        assertEquals(dns.lookup("img.example.com"), dns.lookup("img.example.com"));
+        for (int i = 0; i < 2; i++) {
+            try {
+                dns.lookup("missing.example.com");
+                fail();
+            } catch (UnknownHostException e) {
+                //解析失败的结果也被缓存
+            }
+        }
+        assertEquals(2, lookups.get());
+
+        dns.prefetch(Arrays.asList("a.example.com", "b.example.com", "img.example.com"));
+        for (int i = 0; i < 100 && dns.getMetrics().getCachedHosts() < 4; i++) {
+            Thread.sleep(10L);
+        }
+        dns.lookup("a.example.com");
+        DnsMetrics metrics = dns.getMetrics();
+        assertEquals(4, lookups.get());
+        assertEquals(2, metrics.getPrefetches());
+        assertEquals(3, metrics.getHits());
+        assertEquals(1, metrics.getNegativeHits());
+        assertEquals(2, metrics.getMisses());
+    }
+}
@@ -0,0 +1,125 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 下载性能对比(本地MockWebServer)
+ * 对比旧的2KB byte[]循环写FileOutputStream与HttpUtils.download的吞吐量(MB/s)。
+ * 文件名不匹配surefire的默认规则，不随常规测试运行，需手动执行：
+ * mvn test -Dtest=DownloadBenchmark [-Dbenchmark.sizeMb=32] [-Dbenchmark.rounds=10]
+ *
+ * @author yin
+ */
+public class DownloadBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(DownloadBenchmark.class);
+
+    /**
+     * 文件大小(MB)
+     */
+    private static final int SIZE_MB = Integer.getInteger("benchmark.sizeMb", 32);
+
+    /**
+     * 轮数
+     */
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 10);
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        byte[] payload = new byte[SIZE_MB * 1024 * 1024];
+        new Random(42).nextBytes(payload);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(new Buffer().write(payload));
+            }
+        });
+        server.start();
+        CircuitBreakers.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void compareDownloads() throws Exception {
+        String url = server.url("/file.bin").toString();
+        File dir = tmp.getRoot();
+        OkHttpClient client = new OkHttpClient();
+        //预热
+        legacyDownload(client, url, new File(dir, "warmup-legacy.bin"));
+        assertTrue(HttpUtils.download(url, new File(dir, "warmup-new.bin").getAbsolutePath(), null));
+
+        long legacyNanos = 0L;
+        long newNanos = 0L;
+        for (int i = 0; i < ROUNDS; i++) {
+            File legacyFile = new File(dir, "legacy-" + i + ".bin");
+            long begin = System.nanoTime();
+            legacyDownload(client, url, legacyFile);
+            legacyNanos += System.nanoTime() - begin;
+
+            File newFile = new File(dir, "new-" + i + ".bin");
+            begin = System.nanoTime();
+            assertTrue(HttpUtils.download(url, newFile.getAbsolutePath(), null));
+            newNanos += System.nanoTime() - begin;
+
+            assertEquals(SIZE_MB * 1024L * 1024L, newFile.length());
+            FileUtils.deleteQuietly(legacyFile);
+            FileUtils.deleteQuietly(newFile);
+        }
+        logger.info("文件大小 {} MB，轮数 {}", SIZE_MB, ROUNDS);
+        logger.info("旧实现(2KB byte[] + FileOutputStream): {} MB/s", String.format("%.1f", throughput(legacyNanos)));
+        logger.info("新实现(直接缓冲区 + FileChannel): {} MB/s", String.format("%.1f", throughput(newNanos)));
+    }
+
+    /**
+     * 旧的下载实现
+     */
+    private static void legacyDownload(OkHttpClient client, String url, File target) throws Exception {
+        Request request = new Request.Builder().url(url).header("Accept-Encoding", "identity").build();
+        try (Response response = client.newCall(request).execute();
+             InputStream ins = response.body().byteStream();
+             OutputStream os = new FileOutputStream(target)) {
+            byte[] buffer = new byte[2 * 1024];
+            int len;
+            while ((len = ins.read(buffer)) != -1) {
+                os.write(buffer, 0, len);
+            }
+            os.flush();
+        }
+    }
+
+    private static double throughput(long nanos) {
+        return SIZE_MB * (double) ROUNDS / (nanos / 1e9);
+    }
+}
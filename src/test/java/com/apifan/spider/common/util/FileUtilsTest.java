@@ -0,0 +1,58 @@
+package com.apifan.spider.common.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 文件工具类测试
+ *
+ * @author yin
+ */
+public class FileUtilsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * 测试同一文件的并发原子写入各自使用临时文件，结果是其中一次完整的写入且不留下临时文件
+     */
+    @Test
+    public void concurrentAtomicWritesDoNotShareTempFile() throws Exception {
+        File target = new File(tmp.getRoot(), "out/data.txt");
+        Set<String> contents = new HashSet<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            String content = StringUtils.repeat((char) ('a' + i), 64 * 1024);
+            byte[] data = content.getBytes(StandardCharsets.UTF_8);
+            contents.add(content);
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                    FileUtils.writeAtomically(target, data);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        start.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+
+        assertTrue(contents.contains(FileUtils.readFileToString(target, StandardCharsets.UTF_8)));
+        assertArrayEquals(new String[]{"data.txt"}, target.getParentFile().list());
+    }
+}
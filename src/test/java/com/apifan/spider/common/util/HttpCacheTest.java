@@ -0,0 +1,183 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * HTTP缓存测试(使用本地MockWebServer)
+ *
+ * @author yin
+ */
+public class HttpCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        CircuitBreakers.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /**
+     * 测试HTTP缓存的条件请求、304处理和出错时使用过期缓存
+     */
+    @Test
+    public void cachedGetRevalidates() throws Exception {
+        HttpCache cache = new HttpCache(tmp.newFolder("cache"), HttpCache.DEFAULT_MAX_SIZE, 0L);
+        String url = server.url("/index.html").toString();
+        server.enqueue(new MockResponse().setBody("v1").setHeader("ETag", "\"e1\""));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        server.enqueue(new MockResponse().setBody("v2").setHeader("ETag", "\"e2\""));
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        File first = HttpUtils.getCached(url, null, null, cache);
+        assertEquals("v1", FileUtils.readFileToString(first, StandardCharsets.UTF_8));
+        server.takeRequest();
+        assertEquals(first, HttpUtils.getCached(url, null, null, cache));
+        assertEquals("\"e1\"", server.takeRequest().getHeader("If-None-Match"));
+        File second = HttpUtils.getCached(url, null, null, cache);
+        assertEquals("v2", FileUtils.readFileToString(second, StandardCharsets.UTF_8));
+        //内容变化后旧内容延迟删除，之前的调用方仍可读取
+        assertEquals("v1", FileUtils.readFileToString(first, StandardCharsets.UTF_8));
+        assertEquals(2L, cache.size());
+        //服务端出错时使用过期的缓存
+        assertEquals(second, HttpUtils.getCached(url, null, null, cache));
+        assertEquals(1, cache.count());
+    }
+
+    /**
+     * 测试TTL内不发请求，超过大小上限时淘汰最久未使用的条目
+     */
+    @Test
+    public void cacheEvictsLeastRecentlyUsed() throws Exception {
+        File dir = tmp.newFolder("lru");
+        HttpCache cache = new HttpCache(dir, 10L, HttpCache.DEFAULT_TTL_MILLIS);
+        server.enqueue(new MockResponse().setBody("aaaaaa"));
+        server.enqueue(new MockResponse().setBody("bbbbbb"));
+        File a = HttpUtils.getCached(server.url("/a").toString(), null, null, cache);
+        HttpUtils.getCached(server.url("/a").toString(), null, null, cache);
+        assertEquals(1, server.getRequestCount());
+        HttpUtils.getCached(server.url("/b").toString(), null, null, cache);
+        assertEquals(1, cache.count());
+        assertEquals(6L, cache.size());
+        //已淘汰的内容文件暂不删除，之前的调用方仍可读取
+        assertEquals("aaaaaa", FileUtils.readFileToString(a, StandardCharsets.UTF_8));
+
+        //其他实例正在写入的临时文件不删除，早已残留的临时文件删除
+        File blobs = new File(dir, "blobs");
+        File writing = new File(blobs, "writing.tmp");
+        File stale = new File(blobs, "stale.tmp");
+        FileUtils.writeStringToFile(writing, "x", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(stale, "x", StandardCharsets.UTF_8);
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - HttpCache.DELETE_GRACE_MILLIS - 1000L));
+        //重新打开后恢复缓存
+        assertEquals(1, new HttpCache(dir, 10L, HttpCache.DEFAULT_TTL_MILLIS).count());
+        assertTrue(writing.exists());
+        assertFalse(stale.exists());
+    }
+
+    /**
+     * 测试请求头不同的缓存获取不会合并
+     */
+    @Test
+    public void cachedGetsWithDifferentHeadersAreNotCoalesced() throws Exception {
+        CountDownLatch bothArrived = new CountDownLatch(2);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                bothArrived.countDown();
+                bothArrived.await(10, TimeUnit.SECONDS);
+                return new MockResponse().setBody(request.getHeader("Accept-Language"));
+            }
+        });
+        HttpCache cache = new HttpCache(tmp.newFolder("cache"));
+        String url = server.url("/lang").toString();
+        CompletableFuture<File> zh = CompletableFuture.supplyAsync(() -> getCached(url, "zh", cache));
+        CompletableFuture<File> en = CompletableFuture.supplyAsync(() -> getCached(url, "en", cache));
+        assertEquals("zh", FileUtils.readFileToString(zh.get(10, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+        assertEquals("en", FileUtils.readFileToString(en.get(10, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+        assertEquals(2, server.getRequestCount());
+        //两个变体各自缓存，TTL内读到的仍是各自的内容
+        assertEquals(2, cache.count());
+        assertEquals("zh", FileUtils.readFileToString(getCached(url, "zh", cache), StandardCharsets.UTF_8));
+        assertEquals("en", FileUtils.readFileToString(getCached(url, "en", cache), StandardCharsets.UTF_8));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    /**
+     * 测试不缓存 no-store 的响应，带 Vary 的响应只在所列请求头一致时命中
+     */
+    @Test
+    public void cacheHonorsNoStoreAndVary() throws Exception {
+        File dir = tmp.newFolder("cache");
+        HttpCache cache = new HttpCache(dir);
+        String noStoreUrl = server.url("/no-store").toString();
+        server.enqueue(new MockResponse().setBody("n1").setHeader("Cache-Control", "no-store"));
+        server.enqueue(new MockResponse().setBody("n2").setHeader("Cache-Control", "no-store"));
+        assertEquals("n1", FileUtils.readFileToString(HttpUtils.getCached(noStoreUrl, null, null, cache), StandardCharsets.UTF_8));
+        assertEquals("n2", FileUtils.readFileToString(HttpUtils.getCached(noStoreUrl, null, null, cache), StandardCharsets.UTF_8));
+        assertEquals(0, cache.count());
+
+        //第一个响应设置了cookie，之后的请求带上cookie，与缓存时的 Cookie 不一致
+        String varyUrl = server.url("/vary").toString();
+        server.enqueue(new MockResponse().setBody("anonymous").setHeader("Vary", "Cookie").setHeader("Set-Cookie", "cacheVary=1; Path=/vary"));
+        server.enqueue(new MockResponse().setBody("signed-in").setHeader("Vary", "Cookie"));
+        assertEquals("anonymous", FileUtils.readFileToString(getCachedWithCookies(varyUrl, cache), StandardCharsets.UTF_8));
+        assertEquals("signed-in", FileUtils.readFileToString(getCachedWithCookies(varyUrl, cache), StandardCharsets.UTF_8));
+        assertEquals("signed-in", FileUtils.readFileToString(getCachedWithCookies(varyUrl, cache), StandardCharsets.UTF_8));
+        assertEquals(4, server.getRequestCount());
+        server.takeRequest();
+        server.takeRequest();
+        server.takeRequest();
+        assertEquals("cacheVary=1", server.takeRequest().getHeader("Cookie"));
+
+        //重新打开后 Vary 的值仍然有效；不带cookies的请求是另一个条目
+        HttpCache reopened = new HttpCache(dir);
+        assertEquals("signed-in", FileUtils.readFileToString(getCachedWithCookies(varyUrl, reopened), StandardCharsets.UTF_8));
+        assertEquals(4, server.getRequestCount());
+        server.enqueue(new MockResponse().setBody("anonymous"));
+        assertEquals("anonymous", FileUtils.readFileToString(HttpUtils.getCached(varyUrl, null, null, reopened), StandardCharsets.UTF_8));
+        assertEquals(5, server.getRequestCount());
+    }
+
+    private static File getCachedWithCookies(String url, HttpCache cache) throws IOException {
+        return HttpUtils.getCached(url, null, 10000, 10000, 10000, null, true, cache);
+    }
+
+    private static File getCached(String url, String language, HttpCache cache) {
+        try {
+            return HttpUtils.getCached(url, Collections.singletonMap("Accept-Language", language), null, cache);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
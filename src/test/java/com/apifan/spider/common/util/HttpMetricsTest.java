@@ -0,0 +1,69 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * HTTP请求指标测试(使用本地MockWebServer)
+ *
+ * @author yin
+ */
+public class HttpMetricsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        CircuitBreakers.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /**
+     * 测试按主机统计请求指标
+     */
+    @Test
+    public void recordsHostMetrics() throws Exception {
+        HttpMetrics.reset();
+        server.enqueue(new MockResponse().setBody("hello"));
+        server.enqueue(new MockResponse().setBody("world!"));
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("missing"));
+        assertEquals("hello", HttpUtils.get(server.url("/a").toString()).getMessage());
+        assertEquals("world!", HttpUtils.get(server.url("/b").toString()).getMessage());
+        assertEquals(404, HttpUtils.get(server.url("/c").toString()).getCode());
+
+        HttpHostMetrics metrics = HttpMetrics.getSnapshot(server.url("/").host());
+        assertEquals(3, metrics.getCalls());
+        assertEquals(0, metrics.getFailures());
+        assertEquals(18, metrics.getBytesReceived());
+        assertEquals(Long.valueOf(2L), metrics.getStatusCodes().get(200));
+        assertEquals(Long.valueOf(1L), metrics.getStatusCodes().get(404));
+        assertEquals(3, metrics.getConnectionsAcquired());
+        assertTrue(metrics.getConnectionReuseRatio() > 0.5D);
+        assertEquals(3, metrics.getPhases().get(HttpMetrics.PHASE_TTFB).getCount());
+        assertEquals(3, metrics.getPhases().get(HttpMetrics.PHASE_TOTAL).getCount());
+
+        File jsonFile = tmp.newFile("metrics.json");
+        HttpMetrics.report(jsonFile);
+        assertTrue(FileUtils.readFileToString(jsonFile, StandardCharsets.UTF_8).contains("\"bytesReceived\""));
+    }
+}
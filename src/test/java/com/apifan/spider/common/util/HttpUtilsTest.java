@@ -0,0 +1,463 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * HTTP工具类测试(使用本地MockWebServer)
+ *
+ * @author yin
+ */
+public class HttpUtilsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        CircuitBreakers.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /**
+     * 测试异步GET请求
+     */
+    @Test
+    public void getAsync() throws Exception {
+        server.enqueue(new MockResponse().setBody("hello"));
+        CompletableFuture<HttpResponse> future = HttpUtils.getAsync(server.url("/hello").toString());
+        HttpResponse response = future.get(10, TimeUnit.SECONDS);
+        assertEquals(200, response.getCode());
+        assertEquals("hello", response.getMessage());
+    }
+
+    /**
+     * 测试异步提交XML
+     */
+    @Test
+    public void postXmlAsync() throws Exception {
+        server.enqueue(new MockResponse().setBody("ok"));
+        String xml = "<req><id>1</id></req>";
+        HttpResponse response = HttpUtils.postXmlAsync(server.url("/xml").toString(), null, xml, null).get(10, TimeUnit.SECONDS);
+        assertEquals("ok", response.getMessage());
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertTrue(request.getHeader("Content-Type").startsWith("application/xml"));
+        assertEquals(xml, request.getBody().readUtf8());
+    }
+
+    /**
+     * 测试异步下载
+     */
+    @Test
+    public void downloadAsync() throws Exception {
+        server.enqueue(new MockResponse().setBody("0123456789"));
+        server.enqueue(new MockResponse().setResponseCode(404));
+        File target = new File(tmp.getRoot(), "a.bin");
+        assertTrue(HttpUtils.downloadAsync(server.url("/a.bin").toString(), target.getAbsolutePath(), null).get(10, TimeUnit.SECONDS));
+        assertEquals("0123456789", FileUtils.readFileToString(target, StandardCharsets.UTF_8));
+
+        File missing = new File(tmp.getRoot(), "b.bin");
+        assertFalse(HttpUtils.downloadAsync(server.url("/b.bin").toString(), missing.getAbsolutePath(), null).get(10, TimeUnit.SECONDS));
+        assertFalse(missing.exists());
+    }
+
+    /**
+     * 测试相同配置的代理复用同一个客户端
+     */
+    @Test
+    public void proxiedClientsAreReused() {
+        HttpClientKey a = new HttpClientKey(1000, 2000, 3000, new HttpProxyConfig("127.0.0.1", 8888, "u", "p"), false);
+        HttpClientKey b = new HttpClientKey(1000, 2000, 3000, new HttpProxyConfig("127.0.0.1", 8888, "u", "p"), false);
+        HttpClientKey c = new HttpClientKey(1000, 2000, 3000, new HttpProxyConfig("127.0.0.1", 8889, "u", "p"), false);
+        assertEquals(a, b);
+        assertTrue(HttpClientRegistry.getClient(a) == HttpClientRegistry.getClient(b));
+        assertFalse(HttpClientRegistry.getClient(a) == HttpClientRegistry.getClient(c));
+        assertTrue(HttpClientRegistry.getClient(a).connectionPool() == HttpClientRegistry.getClient(c).connectionPool());
+        assertTrue(HttpClientRegistry.getClient(a).dispatcher() == HttpClientRegistry.getClient(c).dispatcher());
+
+        //修改已用过的代理配置不影响已有的键
+        HttpProxyConfig mutable = new HttpProxyConfig("127.0.0.1", 8888, "u", "p");
+        HttpClientKey d = new HttpClientKey(1000, 2000, 3000, mutable, false);
+        mutable.setPort(8889);
+        assertEquals(a, d);
+        assertEquals(a.hashCode(), d.hashCode());
+        assertTrue(HttpClientRegistry.getClient(a) == HttpClientRegistry.getClient(d));
+        assertEquals(8888, d.getProxyConfig().getPort());
+    }
+
+    /**
+     * 测试流式响应按Content-Type中的字符集解析HTML
+     */
+    @Test
+    public void getStreamParsesDocument() throws Exception {
+        Buffer body = new Buffer().writeString("<html><head><title>达盖尔</title></head></html>", Charset.forName("GBK"));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html; charset=GBK").setBody(body));
+        try (HttpStreamResponse response = HttpUtils.getStream(server.url("/index").toString(), null, null)) {
+            assertEquals(200, response.getCode());
+            assertEquals("GBK", response.getCharset().name());
+            assertEquals("达盖尔", response.parseDocument().title());
+        }
+    }
+
+    /**
+     * 测试下载中断时不会留下不完整的目标文件
+     */
+    @Test
+    public void interruptedDownloadLeavesNoFile() throws Exception {
+        server.enqueue(new MockResponse().setBody(new Buffer().write(new byte[64 * 1024])).setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        File target = new File(tmp.getRoot(), "broken.jpg");
+        assertFalse(HttpUtils.download(server.url("/broken.jpg").toString(), target.getAbsolutePath(), null));
+        assertFalse(target.exists());
+        assertFalse(new File(tmp.getRoot(), "broken.jpg.part").exists());
+    }
+
+    /**
+     * 测试下载中断后通过Range/If-Range续传
+     */
+    @Test
+    public void resumesInterruptedDownload() throws Exception {
+        byte[] payload = new byte[512 * 1024];
+        new Random(1).nextBytes(payload);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String range = request.getHeader("Range");
+                if (range == null) {
+                    return new MockResponse().setHeader("ETag", "\"v1\"").setBody(new Buffer().write(payload))
+                            .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+                }
+                int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                return new MockResponse().setResponseCode(206)
+                        .setHeader("Content-Range", "bytes " + from + "-" + (payload.length - 1) + "/" + payload.length)
+                        .setBody(new Buffer().write(payload, from, payload.length - from));
+            }
+        });
+        File target = new File(tmp.getRoot(), "big.jpg");
+        assertTrue(HttpUtils.download(server.url("/big.jpg").toString(), target.getAbsolutePath(), null));
+        assertTrue(Arrays.equals(payload, FileUtils.readFileToByteArray(target)));
+        assertEquals(2, server.getRequestCount());
+        server.takeRequest();
+        RecordedRequest resumed = server.takeRequest();
+        assertEquals("\"v1\"", resumed.getHeader("If-Range"));
+        assertFalse(new File(tmp.getRoot(), "big.jpg.part").exists());
+        assertFalse(new File(tmp.getRoot(), "big.jpg.part.meta").exists());
+    }
+
+    /**
+     * 测试分段并行下载
+     */
+    @Test
+    public void downloadsInSegments() throws Exception {
+        byte[] payload = new byte[1024 * 1024 + 123];
+        new Random(2).nextBytes(payload);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String[] range = request.getHeader("Range").substring("bytes=".length()).split("-");
+                int from = Integer.parseInt(range[0]);
+                int to = Integer.parseInt(range[1]);
+                return new MockResponse().setResponseCode(206)
+                        .setHeader("Content-Range", "bytes " + from + "-" + to + "/" + payload.length)
+                        .setBody(new Buffer().write(payload, from, to - from + 1));
+            }
+        });
+        File target = new File(tmp.getRoot(), "video.mp4");
+        SegmentedDownloadConfig config = new SegmentedDownloadConfig(256 * 1024, 4);
+        assertTrue(HttpUtils.downloadSegmented(server.url("/video.mp4").toString(), target.getAbsolutePath(), config, null));
+        assertTrue(Arrays.equals(payload, FileUtils.readFileToByteArray(target)));
+        //1次探测 + 4个分段
+        assertEquals(5, server.getRequestCount());
+    }
+
+    /**
+     * 测试按主机限流
+     */
+    @Test
+    public void rateLimitsPerHost() throws Exception {
+        String host = server.getHostName();
+        RateLimiters.configure(host, 10.0D, 1);
+        try {
+            for (int i = 0; i < 4; i++) {
+                server.enqueue(new MockResponse().setBody("ok"));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < 4; i++) {
+                assertEquals(200, HttpUtils.get(server.url("/limited").toString()).getCode());
+            }
+            //突发1个, 其余3个每个间隔100毫秒
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+            RateLimiterMetrics metrics = RateLimiters.getMetrics().get(host);
+            assertEquals(4, metrics.getAcquired());
+            assertEquals(3, metrics.getDelayed());
+        } finally {
+            RateLimiters.remove(host);
+        }
+    }
+
+    /**
+     * 测试按重试策略重试(同步和异步)
+     */
+    @Test
+    public void retriesTransientFailures() throws Exception {
+        String host = server.getHostName();
+        RetryPolicies.configure(host, new ExponentialBackoffRetryPolicy(3, 10L, 100L));
+        try {
+            server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "0"));
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+            server.enqueue(new MockResponse().setBody("ok"));
+            assertEquals("ok", HttpUtils.get(server.url("/flaky").toString()).getMessage());
+
+            server.enqueue(new MockResponse().setResponseCode(500));
+            server.enqueue(new MockResponse().setBody("async"));
+            assertEquals("async", HttpUtils.getAsync(server.url("/flaky").toString()).get(10, TimeUnit.SECONDS).getMessage());
+
+            //超过最多尝试次数后返回最后一次的响应
+            for (int i = 0; i < 3; i++) {
+                server.enqueue(new MockResponse().setResponseCode(502));
+            }
+            assertEquals(502, HttpUtils.get(server.url("/down").toString()).getCode());
+            assertEquals(8, server.getRequestCount());
+        } finally {
+            RetryPolicies.remove(host);
+        }
+    }
+
+    /**
+     * 测试Retry-After超过最长等待时间时不重试
+     */
+    @Test
+    public void honorsRetryAfter() throws Exception {
+        String host = server.getHostName();
+        RetryPolicies.configure(host, new ExponentialBackoffRetryPolicy(3, 10L, 1000L));
+        try {
+            server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "120"));
+            assertEquals(429, HttpUtils.get(server.url("/busy").toString()).getCode());
+            assertEquals(1, server.getRequestCount());
+            server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "99999999999999999999"));
+            assertEquals(429, HttpUtils.get(server.url("/busy").toString()).getCode());
+            assertEquals(2, server.getRequestCount());
+        } finally {
+            RetryPolicies.remove(host);
+        }
+        assertEquals(120000L, ExponentialBackoffRetryPolicy.parseRetryAfter("120"));
+        assertEquals(Long.MAX_VALUE, ExponentialBackoffRetryPolicy.parseRetryAfter("99999999999999999999"));
+    }
+
+    /**
+     * 测试熔断器打开后快速失败，半开试探成功后关闭
+     */
+    @Test
+    public void circuitBreakerFailsFast() throws Exception {
+        String host = server.getHostName();
+        CircuitBreakers.configure(host, new CircuitBreakerConfig(4, 4, 50, 200L));
+        try {
+            for (int i = 0; i < 4; i++) {
+                server.enqueue(new MockResponse().setResponseCode(500));
+            }
+            for (int i = 0; i < 4; i++) {
+                assertEquals(500, HttpUtils.get(server.url("/dead").toString()).getCode());
+            }
+            assertEquals(CircuitBreakerState.OPEN, CircuitBreakers.getStates().get(host));
+            try {
+                HttpUtils.get(server.url("/dead").toString());
+                fail();
+            } catch (CircuitBreakerOpenException e) {
+                assertEquals(host, e.getHost());
+            }
+            assertEquals(4, server.getRequestCount());
+
+            Thread.sleep(250L);
+            for (int i = 0; i < 3; i++) {
+                server.enqueue(new MockResponse().setBody("ok"));
+                assertEquals(200, HttpUtils.get(server.url("/alive").toString()).getCode());
+            }
+            assertEquals(CircuitBreakerState.CLOSED, CircuitBreakers.getStates().get(host));
+        } finally {
+            CircuitBreakers.remove(host);
+        }
+    }
+
+    /**
+     * 测试无效的URL
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidURL() throws Exception {
+        HttpUtils.get("ftp://example.com/a.txt");
+    }
+
+    /**
+     * 测试相同的并发GET请求合并为一次
+     */
+    @Test
+    public void concurrentGetsAreCoalesced() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("shared").setHeadersDelay(500, TimeUnit.MILLISECONDS);
+            }
+        });
+        String url = server.url("/same").toString();
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        List<CompletableFuture<HttpResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return HttpUtils.get(url);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+        futures.add(HttpUtils.getAsync(url));
+        List<HttpResponse> responses = new ArrayList<>();
+        for (CompletableFuture<HttpResponse> future : futures) {
+            responses.add(future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, server.getRequestCount());
+        //每个调用方得到独立的副本，修改其中一个不影响其他调用方
+        responses.get(0).setMessage("changed");
+        for (HttpResponse response : responses.subList(1, responses.size())) {
+            assertEquals("shared", response.getMessage());
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * 测试同一文件的同步下载和异步下载合并为一次请求
+     */
+    @Test
+    public void syncAndAsyncDownloadsOfSameFileAreCoalesced() throws Exception {
+        byte[] payload = new byte[256 * 1024];
+        new Random(7).nextBytes(payload);
+        CountDownLatch arrived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                arrived.countDown();
+                release.await(10L, TimeUnit.SECONDS);
+                return new MockResponse().setBody(new Buffer().write(payload));
+            }
+        });
+        String url = server.url("/same.bin").toString();
+        File target = new File(tmp.getRoot(), "same.bin");
+        CompletableFuture<Boolean> sync = CompletableFuture.supplyAsync(() -> {
+            try {
+                return HttpUtils.download(url, target.getAbsolutePath(), null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        //同步下载的请求到达服务端后再发起异步下载，此时同步下载一定还在进行中
+        assertTrue(arrived.await(10L, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> async = HttpUtils.downloadAsync(url, target.getAbsolutePath(), null);
+        release.countDown();
+
+        assertTrue(sync.get(10L, TimeUnit.SECONDS));
+        assertTrue(async.get(10L, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertTrue(Arrays.equals(payload, FileUtils.readFileToByteArray(target)));
+        assertFalse(new File(target.getAbsolutePath() + FileDownloader.PART_SUFFIX).exists());
+    }
+
+    /**
+     * 测试更换DNS解析时关闭旧客户端的Dispatcher线程池
+     */
+    @Test
+    public void settingDnsShutsDownOldClients() {
+        HttpClientKey key = new HttpClientKey(1000, 2000, 3000, null, false);
+        OkHttpClient old = HttpClientRegistry.getClient(key);
+        HttpClientRegistry.setDns(HttpClientRegistry.getDns());
+        assertTrue(old.dispatcher().executorService().isShutdown());
+        OkHttpClient current = HttpClientRegistry.getClient(key);
+        assertFalse(old == current);
+        assertFalse(current.dispatcher().executorService().isShutdown());
+    }
+
+    /**
+     * 测试不同配置档使用独立的连接池和Dispatcher
+     */
+    @Test
+    public void profilesHaveOwnPools() throws Exception {
+        HttpClientKey bulk = new HttpClientKey(10000, 10000, 10000, null, false, HttpClientProfile.BULK_DOWNLOAD);
+        HttpClientKey page = new HttpClientKey(10000, 10000, 10000, null, false, HttpClientProfile.HTML_PAGE);
+        assertFalse(HttpClientRegistry.getClient(bulk).connectionPool() == HttpClientRegistry.getClient(page).connectionPool());
+        assertEquals(16, HttpClientRegistry.getClient(bulk).dispatcher().getMaxRequestsPerHost());
+
+        String host = server.getHostName();
+        assertEquals(HttpClientProfile.DEFAULT, HttpClientRegistry.resolveProfile(host));
+        HttpClientRegistry.configureProfile(host, HttpClientProfile.BULK_DOWNLOAD);
+        try {
+            assertEquals(HttpClientProfile.BULK_DOWNLOAD, HttpClientRegistry.resolveProfile(host));
+            server.enqueue(new MockResponse().setBody("bulk"));
+            assertEquals("bulk", HttpUtils.get(server.url("/bulk").toString()).getMessage());
+            assertEquals(1, HttpClientRegistry.getClient(bulk).connectionPool().connectionCount());
+        } finally {
+            HttpClientRegistry.removeProfile(host);
+        }
+    }
+
+    /**
+     * 测试响应保留原始字节并按声明的字符集解码
+     */
+    @Test
+    public void responseDecodesDeclaredCharset() throws Exception {
+        Charset gbk = Charset.forName("GBK");
+        String html = "<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=gb2312\"></head><body><p>农历</p></body></html>";
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html")
+                .addHeader("Set-Cookie", "a=1").addHeader("Set-Cookie", "b=2")
+                .setBody(new Buffer().write(html.getBytes(gbk))));
+        server.enqueue(new MockResponse().setBody(new Buffer().write("农历".getBytes(gbk))));
+
+        HttpResponse response = HttpUtils.get(server.url("/gbk").toString());
+        assertTrue(Arrays.equals(html.getBytes(gbk), response.getBody()));
+        assertEquals(gbk, response.getCharset());
+        assertEquals(Arrays.asList("a=1", "b=2"), response.getHeaders().values("Set-Cookie"));
+        assertEquals("农历", JsoupUtils.getDocument(response).select("p").text());
+
+        //未声明字符集时使用指定的默认字符集
+        HttpResponse undeclared = HttpUtils.get(server.url("/plain").toString());
+        assertNull(undeclared.getDeclaredCharset());
+        assertEquals("农历", undeclared.getMessage(gbk));
+    }
+}
@@ -0,0 +1,64 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.Cookie;
+import okhttp3.HttpUrl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * cookie持久化测试
+ *
+ * @author yin
+ */
+public class PersistentCookieJarTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * 测试cookie按名称和路径合并，并可保存快照后恢复
+     */
+    @Test
+    public void cookiesAreMergedAndRestored() throws Exception {
+        PersistentCookieJar cookieJar = new PersistentCookieJar();
+        HttpUrl url = HttpUrl.get("https://www.example.com/jobs/list");
+        cookieJar.saveFromResponse(url, Arrays.asList(
+                Cookie.parse(url, "session=a; Path=/"),
+                Cookie.parse(url, "token=t; Domain=example.com; Path=/; Max-Age=3600")));
+        //同一响应只返回了其中一个cookie，不应覆盖另一个
+        cookieJar.saveFromResponse(url, Collections.singletonList(Cookie.parse(url, "session=b; Path=/")));
+        assertEquals("b", valueOf(cookieJar.loadForRequest(url), "session"));
+        assertEquals("t", valueOf(cookieJar.loadForRequest(HttpUrl.get("https://m.example.com/")), "token"));
+        //host-only的cookie不发送给其他子域名
+        assertNull(valueOf(cookieJar.loadForRequest(HttpUrl.get("https://m.example.com/")), "session"));
+        //过期即删除
+        cookieJar.saveFromResponse(url, Collections.singletonList(Cookie.parse(url, "session=; Path=/; Max-Age=0")));
+        assertNull(valueOf(cookieJar.loadForRequest(url), "session"));
+
+        File snapshot = new File(tmp.getRoot(), "cookies.txt");
+        cookieJar.snapshot(snapshot);
+        PersistentCookieJar restored = new PersistentCookieJar();
+        assertEquals(1, restored.restore(snapshot));
+        assertTrue(restored.hasCookies(url));
+        assertEquals("t", valueOf(restored.loadForRequest(url), "token"));
+    }
+
+    private static String valueOf(List<Cookie> cookies, String name) {
+        for (Cookie cookie : cookies) {
+            if (cookie.name().equals(name)) {
+                return cookie.value();
+            }
+        }
+        return null;
+    }
+}
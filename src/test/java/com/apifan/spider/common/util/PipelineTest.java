@@ -0,0 +1,131 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jsoup.nodes.Element;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 抓取-解析-输出流水线测试(使用本地MockWebServer)
+ *
+ * @author yin
+ */
+public class PipelineTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        CircuitBreakers.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /**
+     * 测试流水线并发抓取解析并逐行输出，失败的页面不影响其他页面
+     */
+    @Test
+    public void pipelineStreamsItemsToSink() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String page = request.getPath().substring("/page/".length());
+                if ("missing".equals(page)) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                return new MockResponse().setHeader("Content-Type", "text/html; charset=UTF-8")
+                        .setBody("<ul><li>" + page + "-a</li><li>" + page + "-b</li></ul>");
+            }
+        });
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            urls.add(server.url("/page/" + i).toString());
+        }
+        urls.add(server.url("/page/missing").toString());
+
+        Pipeline<String> pipeline = new Pipeline<>("test", Fetchers.inMemory(RequestTemplate.DEFAULT, null, null), (page, emitter) -> {
+            for (Element li : page.select("li")) {
+                emitter.accept(li.text());
+            }
+        });
+        pipeline.setFetchThreads(4);
+        pipeline.setParseThreads(2);
+        pipeline.setQueueCapacity(2);
+
+        File target = new File(tmp.getRoot(), "items.txt");
+        PipelineStats stats;
+        try (Sink<String> sink = Sinks.toLines(target, item -> item)) {
+            stats = pipeline.run(urls, sink);
+            assertFalse(target.exists());
+            sink.commit();
+        }
+        assertEquals(21, stats.getUrls());
+        assertEquals(20, stats.getFetched());
+        assertEquals(1, stats.getFetchFailures());
+        assertEquals(40, stats.getItems());
+        List<String> lines = FileUtils.readLines(target, StandardCharsets.UTF_8);
+        assertEquals(40, lines.size());
+        assertTrue(lines.contains("0-a") && lines.contains("19-b"));
+    }
+
+    /**
+     * 测试单个URL在调用线程中处理，未提交的输出不覆盖原有文件
+     */
+    @Test
+    public void singleUrlPipelineRunsInlineAndPublishesOnlyOnCommit() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html; charset=UTF-8")
+                .setBody("<ul><li>a</li><li>b</li></ul>"));
+        Thread caller = Thread.currentThread();
+        Pipeline<String> pipeline = new Pipeline<>("test", Fetchers.inMemory(RequestTemplate.DEFAULT, null, null), (page, emitter) -> {
+            assertTrue(Thread.currentThread() == caller);
+            for (Element li : page.select("li")) {
+                emitter.accept(li.text());
+            }
+        });
+
+        File target = new File(tmp.getRoot(), "items.txt");
+        FileUtils.writeStringToFile(target, "old", StandardCharsets.UTF_8);
+        PipelineStats stats;
+        try (Sink<String> sink = Sinks.toLines(target, item -> item)) {
+            stats = pipeline.run(server.url("/index.html").toString(), sink);
+        }
+        assertEquals(0, stats.getFailures());
+        assertEquals(2, stats.getItems());
+        assertEquals("old", FileUtils.readFileToString(target, StandardCharsets.UTF_8));
+        assertArrayEquals(new String[]{"items.txt"}, tmp.getRoot().list());
+
+        server.enqueue(new MockResponse().setHeader("Content-Type", "text/html; charset=UTF-8")
+                .setBody("<ul><li>c</li></ul>"));
+        try (Sink<String> sink = Sinks.toLines(target, item -> item)) {
+            pipeline.run(server.url("/index.html").toString(), sink);
+            sink.commit();
+        }
+        assertEquals(Collections.singletonList("c"), FileUtils.readLines(target, StandardCharsets.UTF_8));
+        assertArrayEquals(new String[]{"items.txt"}, tmp.getRoot().list());
+    }
+}
@@ -0,0 +1,58 @@
+package com.apifan.spider.common.util;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 请求模板测试(使用本地MockWebServer)
+ *
+ * @author yin
+ */
+public class RequestTemplateTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        CircuitBreakers.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /**
+     * 测试请求模板及不修改调用方的header信息
+     */
+    @Test
+    public void requestTemplatesLayerHeaders() throws Exception {
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+        RequestTemplate template = RequestTemplate.DEFAULT.with("User-Agent", "spider/1.0").with("Accept", "text/html");
+        Map<String, String> headersMap = new HashMap<>();
+        headersMap.put("Accept", " application/json ");
+
+        HttpUtils.get(server.url("/t").toString(), template, headersMap, 10000, 10000, 10000, null, false);
+        RecordedRequest request = server.takeRequest();
+        assertEquals("spider/1.0", request.getHeader("User-Agent"));
+        assertEquals("application/json", request.getHeader("Accept"));
+        assertEquals("text/html", template.getHeaders().get("Accept"));
+
+        HttpUtils.get(server.url("/m").toString(), headersMap);
+        assertTrue(server.takeRequest().getHeader("User-Agent").startsWith("Mozilla/5.0"));
+        assertEquals(1, headersMap.size());
+    }
+}
@@ -0,0 +1,132 @@
+package com.apifan.spider.common.util;
+
+import com.apifan.spider.daguerre.DaguerreImageConstant;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 平台线程池与虚拟线程模式的下载吞吐量和内存对比
+ * 模拟达盖尔爬虫的图片下载：本地服务端每个响应延迟一段时间后返回固定大小的图片。
+ * 文件名不匹配surefire的默认规则，不随常规测试运行，需手动执行(虚拟线程部分需JDK 21及以上)：
+ * mvn test -Dtest=SpiderExecutorsBenchmark
+ *
+ * @author yin
+ */
+public class SpiderExecutorsBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(SpiderExecutorsBenchmark.class);
+
+    /**
+     * 图片数量
+     */
+    private static final int IMAGES = Integer.getInteger("benchmark.images", 2000);
+
+    /**
+     * 图片大小(字节)
+     */
+    private static final int IMAGE_SIZE = 40 * 1024;
+
+    /**
+     * 服务端响应延迟(毫秒)
+     */
+    private static final long LATENCY_MILLIS = Long.getLong("benchmark.latency", 50L);
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        byte[] image = new byte[IMAGE_SIZE];
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setHeadersDelay(LATENCY_MILLIS, TimeUnit.MILLISECONDS)
+                        .setBody(new Buffer().write(image));
+            }
+        });
+        server.start();
+        CircuitBreakers.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        SpiderExecutors.setVirtualThreadsEnabled(false);
+    }
+
+    @Test
+    public void compareExecutors() throws Exception {
+        //预热连接池和JIT
+        run("warmup", false, DaguerreImageConstant.MAX_THREADS_COUNT);
+        run("platform", false, DaguerreImageConstant.MAX_THREADS_COUNT);
+        if (!SpiderExecutors.isVirtualThreadsSupported()) {
+            logger.warn("当前JDK {} 不支持虚拟线程，跳过虚拟线程模式", System.getProperty("java.version"));
+            return;
+        }
+        run("virtual", true, DaguerreImageConstant.MAX_THREADS_COUNT);
+        run("virtual-x8", true, DaguerreImageConstant.MAX_THREADS_COUNT * 8);
+    }
+
+    private void run(String name, boolean virtual, int concurrency) throws Exception {
+        SpiderExecutors.setVirtualThreadsEnabled(virtual);
+        File dir = tmp.newFolder(name);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        System.gc();
+        long heapBefore = usedHeap();
+        AtomicLong peakHeap = new AtomicLong(heapBefore);
+        AtomicInteger downloaded = new AtomicInteger();
+
+        long start = System.nanoTime();
+        ExecutorService executor = SpiderExecutors.newExecutor("benchmark-" + name, concurrency);
+        for (int i = 0; i < IMAGES; i++) {
+            String url = server.url("/image/" + i + ".jpg").toString();
+            File target = new File(dir, i + ".jpg");
+            executor.execute(() -> {
+                try {
+                    if (HttpUtils.download(url, target.getAbsolutePath(), 30000, 60000, 15000, IMAGE_SIZE - 1, null)) {
+                        downloaded.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    logger.error("下载失败: {}", url, e);
+                }
+                peakHeap.accumulateAndGet(usedHeap(), Math::max);
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10L, TimeUnit.MINUTES);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(IMAGES, downloaded.get());
+        logger.info("[{}] 并发={} 图片={} 耗时={}ms 吞吐量={}/s 峰值平台线程数={} 峰值堆增长={}KB",
+                name, concurrency, IMAGES, elapsedMillis, String.format("%.1f", IMAGES * 1000D / Math.max(1L, elapsedMillis)),
+                threads.getPeakThreadCount(), (peakHeap.get() - heapBefore) / 1024);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,133 @@
+package com.apifan.spider.common.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.apifan.spider.common.util.SpiderTestSupport.awaitCondition;
+import static com.apifan.spider.common.util.SpiderTestSupport.forEachExecutorMode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 任务线程池测试
+ *
+ * @author yin
+ */
+public class SpiderExecutorsTest {
+
+    /**
+     * 测试任务线程池限制并发数(支持虚拟线程时同时测试虚拟线程模式)
+     */
+    @Test
+    public void spiderExecutorsLimitConcurrency() throws Exception {
+        forEachExecutorMode(() -> {
+            ExecutorService executor = SpiderExecutors.newExecutor("test", 3);
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            AtomicInteger completed = new AtomicInteger();
+            for (int i = 0; i < 30; i++) {
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    completed.incrementAndGet();
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+            assertEquals(30, completed.get());
+            assertTrue(maxRunning.get() <= 3);
+        });
+    }
+
+    /**
+     * 测试有界线程池在队列已满时阻塞提交方或由提交方执行
+     */
+    @Test
+    public void boundedExecutorAppliesBackpressure() throws Exception {
+        forEachExecutorMode(() -> {
+            CountDownLatch release = new CountDownLatch(1);
+            Runnable blocked = () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+
+            //1个执行中+1个排队后，第3个任务阻塞提交方直到有空位
+            ExecutorService blocking = SpiderExecutors.newBoundedExecutor("block", 1, 1, QueueFullPolicy.BLOCK);
+            blocking.execute(blocked);
+            blocking.execute(blocked);
+            AtomicBoolean submitted = new AtomicBoolean();
+            Thread submitter = new Thread(() -> {
+                blocking.execute(blocked);
+                submitted.set(true);
+            }, "test-submitter");
+            submitter.start();
+            awaitCondition("提交方没有阻塞", () -> submitter.getState() == Thread.State.WAITING);
+            assertFalse(submitted.get());
+
+            //队列已满时由提交方线程执行
+            ExecutorService callerRuns = SpiderExecutors.newBoundedExecutor("caller", 1, 1, QueueFullPolicy.CALLER_RUNS);
+            callerRuns.execute(blocked);
+            callerRuns.execute(blocked);
+            Thread caller = Thread.currentThread();
+            AtomicReference<Thread> ranOn = new AtomicReference<>();
+            callerRuns.execute(() -> ranOn.set(Thread.currentThread()));
+            assertEquals(caller, ranOn.get());
+
+            release.countDown();
+            submitter.join(10000L);
+            assertTrue(submitted.get());
+            assertTrue(SpiderExecutors.shutdownAndAwait(blocking, 10L, TimeUnit.SECONDS));
+            assertTrue(SpiderExecutors.shutdownAndAwait(callerRuns, 10L, TimeUnit.SECONDS));
+        });
+    }
+
+    /**
+     * 测试等待执行许可时被中断的任务被取消，等待结果的调用方不会一直阻塞
+     */
+    @Test
+    public void interruptedWaitingTaskIsCancelled() throws Exception {
+        ExecutorService delegate = Executors.newCachedThreadPool();
+        ConcurrencyLimitedExecutor executor = new ConcurrencyLimitedExecutor(delegate, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(10L, TimeUnit.SECONDS));
+        Future<String> waiting = executor.submit(() -> "done");
+
+        executor.shutdownNow();
+        try {
+            waiting.get(10L, TimeUnit.SECONDS);
+            fail("等待许可时被中断的任务应被取消");
+        } catch (CancellationException e) {
+            assertTrue(waiting.isCancelled());
+        }
+        release.countDown();
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,97 @@
+package com.apifan.spider.common.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.apifan.spider.common.util.SpiderTestSupport.newSpider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 爬虫运行器测试
+ *
+ * @author yin
+ */
+public class SpiderRunnerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * 测试运行器并发运行爬虫，失败和超时互相隔离
+     */
+    @Test
+    public void spiderRunnerIsolatesFailuresAndTimeouts() throws Exception {
+        List<Spider> registered = SpiderRunner.loadSpiders();
+        assertEquals(12, registered.size());
+        assertEquals(12, registered.stream().map(Spider::getName).distinct().count());
+
+        SpiderRunner runner = new SpiderRunner(tmp.getRoot().getAbsolutePath());
+        runner.setConcurrency(3);
+        runner.setDefaultTimeout(Duration.ofMillis(500L));
+        runner.setProperty("ok", "greeting", "hello");
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<SpiderResult> results = runner.runAll(Arrays.asList(
+                newSpider("ok", context -> FileUtils.writeAtomically(new File(context.getBasePath(), "out.txt"),
+                        context.getProperty("greeting").getBytes(StandardCharsets.UTF_8))),
+                newSpider("failing", context -> {
+                    throw new IllegalStateException("boom");
+                }),
+                newSpider("slow", context -> {
+                    try {
+                        new CountDownLatch(1).await();
+                    } finally {
+                        interrupted.countDown();
+                    }
+                })));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(0).isTimedOut());
+        assertEquals("hello", FileUtils.readFileToString(new File(tmp.getRoot(), "ok/out.txt"), StandardCharsets.UTF_8));
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getErrorMessage().contains("boom"));
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(2).isTimedOut());
+        assertEquals(0L, interrupted.getCount());
+    }
+
+    /**
+     * 测试超时中断不会遗留在运行线程上影响下一个爬虫
+     */
+    @Test
+    public void timeoutInterruptDoesNotLeakToNextSpider() throws Exception {
+        SpiderRunner runner = new SpiderRunner(tmp.getRoot().getAbsolutePath());
+        runner.setConcurrency(1);
+        runner.setDefaultTimeout(Duration.ofMillis(200L));
+        AtomicReference<Thread> slowThread = new AtomicReference<>();
+        AtomicReference<Thread> nextThread = new AtomicReference<>();
+        AtomicBoolean nextInterrupted = new AtomicBoolean(true);
+        List<SpiderResult> results = runner.runAll(Arrays.asList(
+                newSpider("slow", context -> {
+                    slowThread.set(Thread.currentThread());
+                    new CountDownLatch(1).await();
+                }),
+                newSpider("next", context -> {
+                    nextThread.set(Thread.currentThread());
+                    nextInterrupted.set(Thread.currentThread().isInterrupted());
+                })));
+
+        assertTrue(results.get(0).isTimedOut());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(1).isTimedOut());
+        assertEquals(slowThread.get(), nextThread.get());
+        assertFalse(nextInterrupted.get());
+    }
+}
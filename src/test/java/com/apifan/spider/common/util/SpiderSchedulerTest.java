@@ -0,0 +1,89 @@
+package com.apifan.spider.common.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.apifan.spider.common.util.SpiderTestSupport.awaitCondition;
+import static com.apifan.spider.common.util.SpiderTestSupport.newSpider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 爬虫调度器测试
+ *
+ * @author yin
+ */
+public class SpiderSchedulerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * 测试cron触发时间和时间段标识
+     */
+    @Test
+    public void triggersComputeNextFireTime() {
+        ZoneId zone = ZoneId.of("Asia/Shanghai");
+        ZonedDateTime base = ZonedDateTime.of(2026, 10, 18, 12, 3, 20, 0, zone);
+        assertEquals(base.withMinute(5).withSecond(0), Triggers.parse("*/5 * * * *").next(base));
+        assertEquals(ZonedDateTime.of(2026, 10, 19, 22, 0, 0, 0, zone), Triggers.parse("0 22 * * MON-FRI").next(base));
+        assertEquals(ZonedDateTime.of(2026, 11, 1, 0, 0, 0, 0, zone), Triggers.parse("@monthly").next(base));
+        assertEquals(base.plusMinutes(10), Triggers.parse("@every 10m").next(base));
+        assertEquals("20261018", TimeBucket.dayOf(base).getKey());
+        assertEquals("202610181205", new TimeBucket(base.withMinute(5).withSecond(0), Duration.ofMinutes(5L)).getKey());
+    }
+
+    /**
+     * 测试调度器跳过与上一次运行重叠的触发，上一次运行结束后继续触发
+     */
+    @Test
+    public void schedulerSkipsOverlappingRuns() throws Exception {
+        SpiderRunner runner = new SpiderRunner(tmp.getRoot().getAbsolutePath());
+        runner.setConcurrency(2);
+        SpiderScheduler scheduler = new SpiderScheduler(runner, ZoneId.of("Asia/Shanghai"));
+        scheduler.setMaxJitter(Duration.ZERO);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> buckets = Collections.synchronizedList(new ArrayList<>());
+        scheduler.schedule(newSpider("slow", context -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            buckets.add(context.getTimeBucket().getKey());
+            try {
+                if (runs.incrementAndGet() == 1) {
+                    firstStarted.countDown();
+                    releaseFirst.await();
+                } else {
+                    secondStarted.countDown();
+                }
+            } finally {
+                running.decrementAndGet();
+            }
+        }), new FixedRateTrigger(Duration.ofMillis(100L)));
+
+        //第一次运行结束前的触发都被跳过
+        assertTrue(firstStarted.await(10L, TimeUnit.SECONDS));
+        awaitCondition("重叠的触发没有被跳过", () -> scheduler.getSkippedCount("slow") > 0);
+        assertEquals(1, runs.get());
+        releaseFirst.countDown();
+        assertTrue(secondStarted.await(10L, TimeUnit.SECONDS));
+        assertTrue(scheduler.shutdown(10L, TimeUnit.SECONDS));
+
+        assertEquals(1, maxRunning.get());
+        assertEquals(buckets.size(), buckets.stream().distinct().count());
+    }
+}
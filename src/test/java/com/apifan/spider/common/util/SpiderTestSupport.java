@@ -0,0 +1,90 @@
+package com.apifan.spider.common.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.fail;
+
+/**
+ * 爬虫框架测试共用的辅助方法
+ *
+ * @author yin
+ */
+final class SpiderTestSupport {
+
+    private SpiderTestSupport() {
+    }
+
+    /**
+     * 分别在平台线程池和虚拟线程模式(JDK支持时)下执行，结束后恢复为平台线程池
+     *
+     * @param body 测试内容
+     * @throws Exception
+     */
+    static void forEachExecutorMode(TestBody body) throws Exception {
+        List<Boolean> modes = SpiderExecutors.isVirtualThreadsSupported() ? Arrays.asList(false, true) : Collections.singletonList(false);
+        try {
+            for (boolean virtual : modes) {
+                SpiderExecutors.setVirtualThreadsEnabled(virtual);
+                body.run();
+            }
+        } finally {
+            SpiderExecutors.setVirtualThreadsEnabled(false);
+        }
+    }
+
+    /**
+     * 等待条件成立，10秒内不成立时测试失败
+     *
+     * @param message   失败信息
+     * @param condition 条件
+     * @throws InterruptedException
+     */
+    static void awaitCondition(String message, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail(message);
+            }
+            Thread.sleep(5L);
+        }
+    }
+
+    /**
+     * 创建只有名称和运行内容的爬虫
+     *
+     * @param name 名称
+     * @param body 运行内容
+     * @return 爬虫
+     */
+    static Spider newSpider(String name, SpiderBody body) {
+        return new Spider() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void run(SpiderContext context) throws Exception {
+                body.run(context);
+            }
+        };
+    }
+
+    /**
+     * 爬虫的运行内容
+     */
+    interface SpiderBody {
+        void run(SpiderContext context) throws Exception;
+    }
+
+    /**
+     * 测试内容
+     */
+    interface TestBody {
+        void run() throws Exception;
+    }
+}
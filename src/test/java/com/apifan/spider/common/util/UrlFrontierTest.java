@@ -0,0 +1,109 @@
+package com.apifan.spider.common.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.apifan.spider.common.util.SpiderTestSupport.awaitCondition;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * URL待抓取队列测试
+ *
+ * @author yin
+ */
+public class UrlFrontierTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * 测试URL待抓取队列的去重、优先级，以及从检查点继续
+     */
+    @Test
+    public void frontierResumesFromCheckpoint() throws Exception {
+        File log = new File(tmp.getRoot(), "frontier.log");
+        try (UrlFrontier frontier = new UrlFrontier(log)) {
+            assertTrue(frontier.add("http://a.example.com/1"));
+            assertTrue(frontier.add("http://a.example.com/2", 0, 5D));
+            assertTrue(frontier.add("http://b.example.com/1", 1, 0D));
+            assertFalse(frontier.add("http://a.example.com/1#top"));
+            assertFalse(frontier.add("not a url"));
+            assertEquals(3, frontier.getPendingCount());
+
+            //深度优先于分值，同一深度分值大的优先
+            assertEquals("http://a.example.com/2", frontier.poll().getUrl());
+            assertEquals("http://a.example.com/1", frontier.poll().getUrl());
+            frontier.complete("http://a.example.com/2");
+            frontier.fail("http://a.example.com/1");
+        }
+        //模拟中断时写了一半的记录(其中的URL本身是有效的)
+        long length = log.length();
+        FileUtils.writeStringToFile(log, "A\t0\t0\thttp://a.example.com/parti", StandardCharsets.UTF_8, true);
+
+        try (UrlFrontier frontier = new UrlFrontier(log)) {
+            assertEquals(length, log.length());
+            assertFalse(frontier.isSeen("http://a.example.com/parti"));
+            assertTrue(frontier.isDone("http://a.example.com/2"));
+            assertFalse(frontier.add("http://a.example.com/2"));
+            assertEquals(2, frontier.getPendingCount());
+            List<String> urls = new ArrayList<>();
+            frontier.drain().forEach(urls::add);
+            assertEquals(Arrays.asList("http://a.example.com/1", "http://b.example.com/1"), urls);
+            assertNull(frontier.poll());
+            //截断后追加的记录不会和残留的半条记录粘在一起
+            frontier.complete("http://a.example.com/1");
+        }
+
+        try (UrlFrontier frontier = new UrlFrontier(log)) {
+            assertTrue(frontier.isDone("http://a.example.com/1"));
+            assertEquals(1, frontier.getPendingCount());
+            assertEquals("http://b.example.com/1", frontier.poll().getUrl());
+        }
+    }
+
+    /**
+     * 测试同一主机受礼貌间隔限制，其他主机的URL先取出
+     */
+    @Test
+    public void frontierHonorsPolitenessDelay() throws Exception {
+        UrlFrontier frontier = new UrlFrontier();
+        frontier.setPolitenessDelay(Duration.ofHours(1L));
+        frontier.add("http://a.example.com/1");
+        frontier.add("http://a.example.com/2");
+        frontier.add("http://b.example.com/1", 1, 0D);
+        assertEquals("http://a.example.com/1", frontier.poll().getUrl());
+        assertEquals("http://b.example.com/1", frontier.poll().getUrl());
+        assertNull(frontier.poll());
+
+        //各主机都在礼貌间隔内时 take 等待，加入其他主机的URL后立即取出
+        AtomicReference<String> taken = new AtomicReference<>();
+        Thread taker = new Thread(() -> {
+            try {
+                taken.set(frontier.take().getUrl());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "test-taker");
+        taker.start();
+        awaitCondition("take 没有等待礼貌间隔", () -> taker.getState() == Thread.State.TIMED_WAITING);
+        assertNull(taken.get());
+        frontier.add("http://c.example.com/1");
+        taker.join(10000L);
+        assertEquals("http://c.example.com/1", taken.get());
+        assertEquals(1, frontier.getPendingCount());
+
+        assertNull(new UrlFrontier().take());
+    }
+}
@@ -0,0 +1,148 @@
+package com.apifan.spider.daguerre;
+
+import com.apifan.spider.common.util.CircuitBreakers;
+import com.apifan.spider.common.util.HttpClientRegistry;
+import com.apifan.spider.common.util.RateLimiters;
+import com.apifan.spider.common.util.RetryPolicies;
+import com.apifan.spider.common.util.UrlFrontier;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 达盖尔的旗帜图片爬虫测试(使用本地MockWebServer)
+ *
+ * @author yin
+ */
+public class DaguerreImageSpiderTest {
+
+    /**
+     * 详细页数
+     */
+    private static final int PAGES = 4;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    /**
+     * 所有详细页请求是否同时到达过服务端
+     */
+    private final AtomicBoolean pagesConcurrent = new AtomicBoolean(true);
+
+    @Before
+    public void setUp() throws Exception {
+        byte[] image = new byte[40 * 1024];
+        CountDownLatch pagesArrived = new CountDownLatch(PAGES);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                String path = request.getPath();
+                if (path.startsWith("/img/")) {
+                    if (path.endsWith("-bad.jpg")) {
+                        return new MockResponse().setResponseCode(404);
+                    }
+                    return new MockResponse().setBody(new Buffer().write(image));
+                }
+                //每个详细页都要等到所有详细页的请求都到达后才返回，顺序抓取时会等待超时
+                pagesArrived.countDown();
+                if (!pagesArrived.await(10L, TimeUnit.SECONDS)) {
+                    pagesConcurrent.set(false);
+                }
+                switch (path) {
+                    case "/htm_data/1.html":
+                        return page("complete", "/img/1-a.jpg", "/img/1-b.jpg");
+                    case "/htm_data/2.html":
+                        return page("partial", "/img/2-a.jpg", "/img/2-bad.jpg");
+                    case "/htm_data/4.html":
+                        return page("empty");
+                    default:
+                        return new MockResponse().setResponseCode(404);
+                }
+            }
+        });
+        server.start();
+        CircuitBreakers.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        String host = server.getHostName();
+        RateLimiters.remove(host);
+        RetryPolicies.remove(host);
+        HttpClientRegistry.removeProfile(host);
+    }
+
+    /**
+     * 测试详细页并发下载解析，只有图片全部下载成功的详细页记为完成，失败的详细页从检查点恢复后重新排队
+     */
+    @Test
+    public void detailPagesAreProcessedConcurrently() throws Exception {
+        File checkpoint = new File(tmp.getRoot(), "html/frontier.log");
+        List<String> urls = new ArrayList<>();
+        for (int i = 1; i <= PAGES; i++) {
+            urls.add(server.url("/htm_data/" + i + ".html").toString());
+        }
+        DaguerreImageSpider spider = new DaguerreImageSpider(tmp.getRoot().getAbsolutePath());
+        try (UrlFrontier frontier = new UrlFrontier(checkpoint)) {
+            for (int i = 0; i < urls.size(); i++) {
+                frontier.add(urls.get(i), 1, -i);
+            }
+            spider.processDetailPages(frontier, frontier.getPendingCount());
+
+            assertTrue(pagesConcurrent.get());
+            //图片全部下载成功或没有图片的记为完成；有图片失败或详细页下载失败的不记为完成
+            assertTrue(frontier.isDone(urls.get(0)));
+            assertFalse(frontier.isDone(urls.get(1)));
+            assertFalse(frontier.isDone(urls.get(2)));
+            assertTrue(frontier.isDone(urls.get(3)));
+            assertEquals(0, frontier.getInFlightCount());
+        }
+        assertEquals(2, new File(tmp.getRoot(), "complete").list().length);
+        assertEquals(1, new File(tmp.getRoot(), "partial").list().length);
+
+        try (UrlFrontier frontier = new UrlFrontier(checkpoint)) {
+            List<String> pending = new ArrayList<>();
+            frontier.drain().forEach(pending::add);
+            assertEquals(Arrays.asList(urls.get(1), urls.get(2)), pending);
+        }
+    }
+
+    /**
+     * 详细页(GBK编码)
+     *
+     * @param title  标题
+     * @param images 图片路径
+     * @return
+     */
+    private MockResponse page(String title, String... images) {
+        StringBuilder html = new StringBuilder("<html><head><title>").append(title).append("</title></head><body>");
+        for (String image : images) {
+            html.append("<input type=\"image\" data-link=\"").append(server.url(image)).append("\">");
+        }
+        html.append("</body></html>");
+        return new MockResponse().setHeader("Content-Type", "text/html; charset=GBK").setBody(html.toString());
+    }
+}